@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.benchmark;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.support.StaticApplicationContext;
+
+import fr.paris.lutece.plugins.fccertifier.business.InseeReference;
+import fr.paris.lutece.plugins.fccertifier.service.InseeReferenceIndex;
+import fr.paris.lutece.plugins.fccertifier.service.InseeReferenceService;
+import fr.paris.lutece.plugins.fccertifier.service.MemoryValidationInfosStore;
+import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * In-process environment of the benchmarks : properties read from src/benchmark/webapp, a Spring context holding stub services instead of the remote
+ * clients, and an INSEE index standing in for the geocodes service.
+ */
+public final class BenchmarkSupport
+{
+    public static final String PLACE_CODE = "75056";
+    public static final String COUNTRY_CODE = "99100";
+    private static final String WEBAPP_PATH = "src/benchmark/webapp";
+    private static final String CONF_PATH = "/WEB-INF/conf/";
+    private static final String BEAN_IDENTITYSTORE_SERVICE = "fccertifier.identitystore.service";
+    private static final String BEAN_VALIDATION_INFOS_STORE = "fccertifier.validationInfosStore";
+    private static final String FIELD_SPRING_CONTEXT = "_context";
+    private static final int GENERATED_COMMUNES = 40000;
+    private static final int GENERATED_COUNTRIES = 300;
+
+    private static boolean _bInitialized;
+
+    /**
+     * Private constructor
+     */
+    private BenchmarkSupport( )
+    {
+    }
+
+    /**
+     * Initialize the environment once per JVM
+     *
+     * @param nIdentityStoreLatency
+     *            the latency of the stub identitystore calls, in milliseconds
+     * @throws Exception
+     *             if the environment can't be initialized
+     */
+    public static synchronized void init( int nIdentityStoreLatency ) throws Exception
+    {
+        if ( _bInitialized )
+        {
+            return;
+        }
+
+        AppPathService.init( new File( WEBAPP_PATH ).getAbsolutePath( ) );
+        AppPropertiesService.init( CONF_PATH );
+
+        StaticApplicationContext context = new StaticApplicationContext( );
+        context.getBeanFactory( ).registerSingleton( BEAN_IDENTITYSTORE_SERVICE, new StubIdentityService( nIdentityStoreLatency ) );
+        context.getBeanFactory( ).registerSingleton( BEAN_VALIDATION_INFOS_STORE, new MemoryValidationInfosStore( ) );
+        context.refresh( );
+
+        // SpringContextService is only initialized by the servlet context : the stub context is installed directly
+        Field field = SpringContextService.class.getDeclaredField( FIELD_SPRING_CONTEXT );
+        field.setAccessible( true );
+        field.set( null, context );
+
+        InseeReferenceService.setIndex( buildIndex( ) );
+        _bInitialized = true;
+    }
+
+    /**
+     * Build a FranceConnect identity whose places are in the index
+     *
+     * @param nIndex
+     *            a number making the identity unique
+     * @return the identity
+     */
+    public static UserInfo newUserInfo( int nIndex )
+    {
+        UserInfo userInfo = new UserInfo( );
+        userInfo.setSub( "sub" + nIndex );
+        userInfo.setGivenName( "Jean Pierre" );
+        userInfo.setFamilyName( "Dupont" + nIndex );
+        userInfo.setPreferredUsername( "Martin" );
+        userInfo.setGender( ( nIndex % 2 == 0 ) ? "male" : "female" );
+        userInfo.setBirthDate( String.format( "19%02d-%02d-%02d", 40 + nIndex % 60, 1 + nIndex % 12, 1 + nIndex % 28 ) );
+        userInfo.setBirthPlace( PLACE_CODE );
+        userInfo.setBirthCountry( COUNTRY_CODE );
+        userInfo.setEmail( "user" + nIndex + "@example.org" );
+
+        return userInfo;
+    }
+
+    /**
+     * Build an index of the size of the real reference tables
+     *
+     * @return the index
+     */
+    private static InseeReferenceIndex buildIndex( )
+    {
+        List<InseeReference> listCommunes = new ArrayList<>( GENERATED_COMMUNES + 1 );
+        listCommunes.add( newReference( PLACE_CODE, "Paris" ) );
+
+        for ( int i = 0; i < GENERATED_COMMUNES; i++ )
+        {
+            listCommunes.add( newReference( String.format( "%05d", 1000 + i ), "Commune " + i ) );
+        }
+
+        List<InseeReference> listCountries = new ArrayList<>( GENERATED_COUNTRIES + 1 );
+        listCountries.add( newReference( COUNTRY_CODE, "France" ) );
+
+        for ( int i = 0; i < GENERATED_COUNTRIES; i++ )
+        {
+            listCountries.add( newReference( String.valueOf( 99101 + i ), "Pays " + i ) );
+        }
+
+        return InseeReferenceIndex.build( listCommunes, listCountries );
+    }
+
+    /**
+     * Build a reference valid at any date
+     *
+     * @param strCode
+     *            the code
+     * @param strLabel
+     *            the label
+     * @return the reference
+     */
+    private static InseeReference newReference( String strCode, String strLabel )
+    {
+        InseeReference reference = new InseeReference( );
+        reference.setCode( strCode );
+        reference.setLabel( strLabel );
+
+        return reference;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.benchmark;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.RequestAuthor;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatus;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatusType;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.IdentityChangeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.IdentityChangeResponse;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.IdentitySearchResponse;
+import fr.paris.lutece.plugins.identitystore.v3.web.service.IdentityService;
+
+/**
+ * In-process identitystore answering every connection id with the same identity after a fixed latency
+ */
+public class StubIdentityService extends IdentityService
+{
+    private final int _nLatency;
+
+    /**
+     * Constructor
+     *
+     * @param nLatency
+     *            the latency of each call, in milliseconds
+     */
+    public StubIdentityService( int nLatency )
+    {
+        _nLatency = nLatency;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public IdentitySearchResponse getIdentityByConnectionId( String strConnectionId, String strClientCode, RequestAuthor author )
+    {
+        pause( );
+
+        IdentityDto identity = new IdentityDto( );
+        identity.setConnectionId( strConnectionId );
+        identity.setCustomerId( "customer-" + strConnectionId );
+        identity.setLastUpdateDate( new Timestamp( System.currentTimeMillis( ) ) );
+
+        List<AttributeDto> listAttributes = new ArrayList<>( );
+        listAttributes.add( newAttribute( "family_name", "Dupont" ) );
+        listAttributes.add( newAttribute( "first_name", "Jean" ) );
+        listAttributes.add( newAttribute( "birthdate", "17/05/1980" ) );
+        listAttributes.add( newAttribute( "email", "user@example.org" ) );
+        identity.setAttributes( listAttributes );
+
+        IdentitySearchResponse response = new IdentitySearchResponse( );
+        response.setIdentities( Collections.singletonList( identity ) );
+
+        return response;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public IdentityChangeResponse updateIdentity( String strCustomerId, IdentityChangeRequest request, String strClientCode, RequestAuthor author )
+    {
+        pause( );
+
+        ResponseStatus status = new ResponseStatus( );
+        status.setType( ResponseStatusType.SUCCESS );
+
+        IdentityChangeResponse response = new IdentityChangeResponse( );
+        response.setStatus( status );
+
+        return response;
+    }
+
+    /**
+     * Build an attribute
+     *
+     * @param strKey
+     *            the key
+     * @param strValue
+     *            the value
+     * @return the attribute
+     */
+    private static AttributeDto newAttribute( String strKey, String strValue )
+    {
+        AttributeDto attribute = new AttributeDto( );
+        attribute.setKey( strKey );
+        attribute.setValue( strValue );
+        attribute.setCertifier( "mail" );
+        attribute.setCertificationDate( new Date( ) );
+
+        return attribute;
+    }
+
+    /**
+     * Wait for the latency
+     */
+    private void pause( )
+    {
+        if ( _nLatency > 0 )
+        {
+            try
+            {
+                Thread.sleep( _nLatency );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import fr.paris.lutece.plugins.fccertifier.benchmark.BenchmarkSupport;
+import fr.paris.lutece.plugins.fccertifier.util.SerializationUtils;
+import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
+
+/**
+ * Serialized size of the FranceConnect identity kept in the session, compared to the former layout extending UserInfo :
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=fr.paris.lutece.plugins.fccertifier.business.SessionFootprint
+ */
+public final class SessionFootprint
+{
+    private static final int SAMPLES = 1000;
+
+    /**
+     * Private constructor
+     */
+    private SessionFootprint( )
+    {
+    }
+
+    /**
+     * Print the average sizes
+     *
+     * @param args
+     *            not used
+     * @throws Exception
+     *             if the environment can't be initialized
+     */
+    public static void main( String [ ] args ) throws Exception
+    {
+        BenchmarkSupport.init( 0 );
+
+        long lUserInfo = 0;
+        long lLegacy = 0;
+        long lCompact = 0;
+
+        for ( int i = 0; i < SAMPLES; i++ )
+        {
+            UserInfo userInfo = BenchmarkSupport.newUserInfo( i );
+            FcIdentity identity = new FcIdentity( userInfo );
+
+            lUserInfo += SerializationUtils.getSerializedSize( userInfo );
+            lLegacy += SerializationUtils.getSerializedSize( new LegacyFcIdentity( userInfo, identity ) );
+            lCompact += SerializationUtils.getSerializedSize( identity );
+        }
+
+        System.out.println( String.format( "UserInfo             %6d bytes", lUserInfo / SAMPLES ) );
+        System.out.println( String.format( "FcIdentity (former)  %6d bytes", lLegacy / SAMPLES ) );
+        System.out.println( String.format( "FcIdentity (compact) %6d bytes", lCompact / SAMPLES ) );
+    }
+
+    /**
+     * The former session attribute : all the UserInfo claims plus the three IdentityStore formats
+     */
+    private static final class LegacyFcIdentity extends UserInfo
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _strIdsBirthDate;
+        private final String _strIdsBirthPlace;
+        private final String _strIdsBirthCountry;
+
+        /**
+         * Constructor
+         *
+         * @param userInfo
+         *            the claims
+         * @param identity
+         *            the enriched identity
+         */
+        LegacyFcIdentity( UserInfo userInfo, FcIdentity identity )
+        {
+            setBirthDate( userInfo.getBirthDate( ) );
+            setBirthPlace( userInfo.getBirthPlace( ) );
+            setBirthCountry( userInfo.getBirthCountry( ) );
+            setEmail( userInfo.getEmail( ) );
+            setEmailVerified( userInfo.getEmailVerified( ) );
+            setFamilyName( userInfo.getFamilyName( ) );
+            setGender( userInfo.getGender( ) );
+            setGivenName( userInfo.getGivenName( ) );
+            setMiddleName( userInfo.getMiddleName( ) );
+            setName( userInfo.getName( ) );
+            setNickname( userInfo.getNickname( ) );
+            setPhoneNumber( userInfo.getPhoneNumber( ) );
+            setPhoneNumberVerified( userInfo.getPhoneNumberVerified( ) );
+            setPreferredUsername( userInfo.getPreferredUsername( ) );
+            setSub( userInfo.getSub( ) );
+            _strIdsBirthDate = identity.getIdsBirthDate( );
+            _strIdsBirthPlace = identity.getIdsBirthPlace( );
+            _strIdsBirthCountry = identity.getIdsBirthCountry( );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import fr.paris.lutece.plugins.fccertifier.benchmark.BenchmarkSupport;
+import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+
+/**
+ * Certification against an in-process identitystore answering without latency : measures the plugin own cost
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class CertifyBenchmark
+{
+    private static final int USERS_COUNT = 10000;
+
+    private final CertifierService _certifierService = new CertifierService( );
+    private FcIdentity _fcIdentity;
+
+    /**
+     * Initialize the environment
+     *
+     * @throws Exception
+     *             if the environment can't be initialized
+     */
+    @Setup
+    public void setUp( ) throws Exception
+    {
+        BenchmarkSupport.init( 0 );
+        _fcIdentity = new FcIdentity( BenchmarkSupport.newUserInfo( 1 ) );
+    }
+
+    /**
+     * Certify a user
+     *
+     * @return the status
+     */
+    @Benchmark
+    @Threads( 8 )
+    public CertifierService.CertificationStatus certify( )
+    {
+        ValidationInfos infos = new ValidationInfos( );
+        infos.setUserConnectionId( "connection" + ThreadLocalRandom.current( ).nextInt( USERS_COUNT ) );
+        infos.setFCUserInfo( _fcIdentity );
+
+        return _certifierService.certify( infos );
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Validations in progress under churn : validations started and completed concurrently, the store being swept meanwhile
+ */
+@State( Scope.Group )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class ValidationInfosStoreBenchmark
+{
+    private static final long EXPIRES_DELAY = 300000L;
+    private static final long GRACE_PERIOD = 30000L;
+    private static final long IDEMPOTENCY_WINDOW = 30000L;
+
+    @Param( {
+            "10000", "100000"
+    } )
+    public int capacity;
+
+    private MemoryValidationInfosStore _store;
+
+    /**
+     * Build a store filled at half its capacity
+     */
+    @Setup
+    public void setUp( )
+    {
+        _store = new MemoryValidationInfosStore( capacity, EXPIRES_DELAY, GRACE_PERIOD );
+
+        for ( int i = 0; i < capacity / 2; i++ )
+        {
+            put( "user" + i );
+        }
+    }
+
+    /**
+     * Start a validation
+     */
+    @Benchmark
+    @Group( "churn" )
+    @GroupThreads( 8 )
+    public void start( )
+    {
+        put( "user" + ThreadLocalRandom.current( ).nextInt( capacity * 2 ) );
+    }
+
+    /**
+     * Complete a validation, as a certification submission does
+     *
+     * @return true if a validation in progress has been completed
+     */
+    @Benchmark
+    @Group( "churn" )
+    @GroupThreads( 8 )
+    public boolean complete( )
+    {
+        String strKey = "user" + ThreadLocalRandom.current( ).nextInt( capacity * 2 );
+        ValidationInfos infos = _store.get( strKey );
+
+        return infos != null && _store.complete( strKey, infos, CertifierService.ValidationResult.OK.name( ), System.currentTimeMillis( ) + IDEMPOTENCY_WINDOW );
+    }
+
+    /**
+     * Sweep the expired validations
+     *
+     * @return the number of purged validations
+     */
+    @Benchmark
+    @Group( "churn" )
+    @GroupThreads( 1 )
+    public int sweep( )
+    {
+        return _store.sweep( );
+    }
+
+    /**
+     * Store a validation
+     *
+     * @param strKey
+     *            the key
+     */
+    private void put( String strKey )
+    {
+        ValidationInfos infos = new ValidationInfos( );
+        infos.setUserConnectionId( strKey );
+        infos.setExpiresTime( System.currentTimeMillis( ) + EXPIRES_DELAY );
+        _store.put( strKey, infos );
+    }
+}
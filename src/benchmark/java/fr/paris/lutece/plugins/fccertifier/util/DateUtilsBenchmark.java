@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Date conversions, alone and with many threads converting at the same time
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class DateUtilsBenchmark
+{
+    private static final int DATES_COUNT = 1024;
+
+    private String [ ] _dates;
+
+    /**
+     * Build the dates to convert
+     */
+    @Setup
+    public void setUp( )
+    {
+        _dates = new String [ DATES_COUNT];
+
+        for ( int i = 0; i < DATES_COUNT; i++ )
+        {
+            _dates [i] = String.format( "%04d-%02d-%02d", 1920 + i % 100, 1 + i % 12, 1 + i % 28 );
+        }
+    }
+
+    /**
+     * Single threaded conversion
+     *
+     * @return the converted date
+     */
+    @Benchmark
+    @Threads( 1 )
+    public String convertFcToIds( )
+    {
+        return DateUtils.convertFcToIds( nextDate( ) );
+    }
+
+    /**
+     * Contended conversion
+     *
+     * @return the converted date
+     */
+    @Benchmark
+    @Threads( 32 )
+    public String convertFcToIdsContended( )
+    {
+        return DateUtils.convertFcToIds( nextDate( ) );
+    }
+
+    /**
+     * Pick a date
+     *
+     * @return the date
+     */
+    private String nextDate( )
+    {
+        return _dates [ThreadLocalRandom.current( ).nextInt( DATES_COUNT )];
+    }
+}
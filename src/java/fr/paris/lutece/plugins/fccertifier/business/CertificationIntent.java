@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+
+/**
+ * CertificationIntent : a certification stored in the outbox until the identitystore has been updated
+ */
+public class CertificationIntent
+{
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_FAILED = 1;
+
+    // Variables declarations
+    private int _nId;
+    private String _strUserConnectionId;
+    private String _strUserEmail;
+    private FcIdentity _identity;
+    private long _lCreationTime;
+    private long _lNextAttemptTime;
+    private int _nAttempts;
+    private int _nStatus;
+    private String _strLastError;
+
+    /**
+     * Returns the Id
+     *
+     * @return The Id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the Id
+     *
+     * @param nId
+     *            The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the UserConnectionId
+     *
+     * @return The UserConnectionId
+     */
+    public String getUserConnectionId( )
+    {
+        return _strUserConnectionId;
+    }
+
+    /**
+     * Sets the UserConnectionId
+     *
+     * @param strUserConnectionId
+     *            The UserConnectionId
+     */
+    public void setUserConnectionId( String strUserConnectionId )
+    {
+        _strUserConnectionId = strUserConnectionId;
+    }
+
+    /**
+     * Returns the UserEmail
+     *
+     * @return The UserEmail
+     */
+    public String getUserEmail( )
+    {
+        return _strUserEmail;
+    }
+
+    /**
+     * Sets the UserEmail
+     *
+     * @param strUserEmail
+     *            The UserEmail
+     */
+    public void setUserEmail( String strUserEmail )
+    {
+        _strUserEmail = strUserEmail;
+    }
+
+    /**
+     * Returns the FranceConnect identity to certify
+     *
+     * @return The identity, null if it could not be read back
+     */
+    public FcIdentity getIdentity( )
+    {
+        return _identity;
+    }
+
+    /**
+     * Sets the FranceConnect identity to certify
+     *
+     * @param identity
+     *            The identity
+     */
+    public void setIdentity( FcIdentity identity )
+    {
+        _identity = identity;
+    }
+
+    /**
+     * Returns the CreationTime
+     *
+     * @return The CreationTime
+     */
+    public long getCreationTime( )
+    {
+        return _lCreationTime;
+    }
+
+    /**
+     * Sets the CreationTime
+     *
+     * @param lCreationTime
+     *            The CreationTime
+     */
+    public void setCreationTime( long lCreationTime )
+    {
+        _lCreationTime = lCreationTime;
+    }
+
+    /**
+     * Returns the time before which the intent must not be applied
+     *
+     * @return The NextAttemptTime
+     */
+    public long getNextAttemptTime( )
+    {
+        return _lNextAttemptTime;
+    }
+
+    /**
+     * Sets the time before which the intent must not be applied
+     *
+     * @param lNextAttemptTime
+     *            The NextAttemptTime
+     */
+    public void setNextAttemptTime( long lNextAttemptTime )
+    {
+        _lNextAttemptTime = lNextAttemptTime;
+    }
+
+    /**
+     * Returns the number of failed attempts
+     *
+     * @return The Attempts
+     */
+    public int getAttempts( )
+    {
+        return _nAttempts;
+    }
+
+    /**
+     * Sets the number of failed attempts
+     *
+     * @param nAttempts
+     *            The Attempts
+     */
+    public void setAttempts( int nAttempts )
+    {
+        _nAttempts = nAttempts;
+    }
+
+    /**
+     * Returns the Status
+     *
+     * @return STATUS_PENDING or STATUS_FAILED
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Sets the Status
+     *
+     * @param nStatus
+     *            STATUS_PENDING or STATUS_FAILED
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Returns the error of the last attempt
+     *
+     * @return The LastError
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Sets the error of the last attempt
+     *
+     * @param strLastError
+     *            The LastError
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
+
+    /**
+     * Build the validation infos certified by this intent
+     *
+     * @return The validation infos
+     */
+    public ValidationInfos toValidationInfos( )
+    {
+        ValidationInfos infos = new ValidationInfos( );
+        infos.setUserConnectionId( _strUserConnectionId );
+        infos.setUserEmail( _strUserEmail );
+        infos.setFCUserInfo( _identity );
+
+        return infos;
+    }
+}
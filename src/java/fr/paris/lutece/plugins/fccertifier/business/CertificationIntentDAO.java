@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.fccertifier.util.SerializationUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the certification outbox
+ */
+public final class CertificationIntentDAO implements ICertificationIntentDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO fccertifier_certification_outbox ( user_connection_id, user_email, identity, creation_time, next_attempt_time, attempts, status, last_error ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE fccertifier_certification_outbox SET next_attempt_time = ?, attempts = ?, status = ?, last_error = ? WHERE id_intent = ? ";
+    private static final String SQL_QUERY_UPDATE_NEXT_ATTEMPT_TIME = "UPDATE fccertifier_certification_outbox SET next_attempt_time = ? WHERE id_intent = ? AND status = ? AND next_attempt_time = ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM fccertifier_certification_outbox WHERE id_intent = ? ";
+    private static final String SQL_QUERY_SELECT_DUE = "SELECT id_intent, user_connection_id, user_email, identity, creation_time, next_attempt_time, attempts, status, last_error FROM fccertifier_certification_outbox WHERE status = ? AND next_attempt_time <= ? ORDER BY next_attempt_time LIMIT ?";
+    private static final String SQL_QUERY_COUNT_BY_STATUS = "SELECT COUNT(*) FROM fccertifier_certification_outbox WHERE status = ? ";
+    private static final int LAST_ERROR_MAX_LENGTH = 255;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( CertificationIntent intent, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, intent.getUserConnectionId( ) );
+            daoUtil.setString( nIndex++, intent.getUserEmail( ) );
+            daoUtil.setBytes( nIndex++, SerializationUtils.serialize( intent.getIdentity( ) ) );
+            daoUtil.setLong( nIndex++, intent.getCreationTime( ) );
+            daoUtil.setLong( nIndex++, intent.getNextAttemptTime( ) );
+            daoUtil.setInt( nIndex++, intent.getAttempts( ) );
+            daoUtil.setInt( nIndex++, intent.getStatus( ) );
+            daoUtil.setString( nIndex, truncate( intent.getLastError( ) ) );
+
+            daoUtil.executeUpdate( );
+
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                intent.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void store( CertificationIntent intent, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setLong( nIndex++, intent.getNextAttemptTime( ) );
+            daoUtil.setInt( nIndex++, intent.getAttempts( ) );
+            daoUtil.setInt( nIndex++, intent.getStatus( ) );
+            daoUtil.setString( nIndex++, truncate( intent.getLastError( ) ) );
+            daoUtil.setInt( nIndex, intent.getId( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int storeNextAttemptTime( int nId, long lExpectedNextAttemptTime, long lNextAttemptTime, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_NEXT_ATTEMPT_TIME, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setLong( nIndex++, lNextAttemptTime );
+            daoUtil.setInt( nIndex++, nId );
+            daoUtil.setInt( nIndex++, CertificationIntent.STATUS_PENDING );
+            daoUtil.setLong( nIndex, lExpectedNextAttemptTime );
+
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( int nId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CertificationIntent> selectDueList( long lTime, int nMaxCount, Plugin plugin )
+    {
+        List<CertificationIntent> listIntents = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_DUE, plugin ) )
+        {
+            daoUtil.setInt( 1, CertificationIntent.STATUS_PENDING );
+            daoUtil.setLong( 2, lTime );
+            daoUtil.setInt( 3, nMaxCount );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                CertificationIntent intent = new CertificationIntent( );
+                int nIndex = 1;
+                intent.setId( daoUtil.getInt( nIndex++ ) );
+                intent.setUserConnectionId( daoUtil.getString( nIndex++ ) );
+                intent.setUserEmail( daoUtil.getString( nIndex++ ) );
+                Object identity = SerializationUtils.deserialize( daoUtil.getBytes( nIndex++ ) );
+                intent.setIdentity( ( identity instanceof FcIdentity ) ? (FcIdentity) identity : null );
+                intent.setCreationTime( daoUtil.getLong( nIndex++ ) );
+                intent.setNextAttemptTime( daoUtil.getLong( nIndex++ ) );
+                intent.setAttempts( daoUtil.getInt( nIndex++ ) );
+                intent.setStatus( daoUtil.getInt( nIndex++ ) );
+                intent.setLastError( daoUtil.getString( nIndex ) );
+
+                listIntents.add( intent );
+            }
+        }
+
+        return listIntents;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countByStatus( int nStatus, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_BY_STATUS, plugin ) )
+        {
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * Truncate an error message to the column size
+     *
+     * @param strError
+     *            the message
+     * @return the truncated message
+     */
+    private static String truncate( String strError )
+    {
+        return ( strError != null && strError.length( ) > LAST_ERROR_MAX_LENGTH ) ? strError.substring( 0, LAST_ERROR_MAX_LENGTH ) : strError;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods (create, find, ...) for the certification outbox
+ */
+public final class CertificationIntentHome
+{
+    // Static variable pointed at the DAO instance
+    private static ICertificationIntentDAO _dao = SpringContextService.getBean( "fccertifier.certificationIntentDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "fccertifier" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private CertificationIntentHome( )
+    {
+    }
+
+    /**
+     * Store a new intent. The insertion is committed when the method returns.
+     *
+     * @param intent
+     *            The intent
+     * @return The intent with its id
+     */
+    public static CertificationIntent create( CertificationIntent intent )
+    {
+        _dao.insert( intent, _plugin );
+
+        return intent;
+    }
+
+    /**
+     * Update the attempts, next attempt time, status and last error of an intent
+     *
+     * @param intent
+     *            The intent
+     */
+    public static void update( CertificationIntent intent )
+    {
+        _dao.store( intent, _plugin );
+    }
+
+    /**
+     * Remove an applied intent
+     *
+     * @param nId
+     *            The intent id
+     */
+    public static void remove( int nId )
+    {
+        _dao.delete( nId, _plugin );
+    }
+
+    /**
+     * Claim the pending intents due at a given time : their next attempt time is pushed back by a lease, so that they are not claimed again while
+     * they are applied. Each claim is a conditional update : of several nodes reading the same intent, only one gets it.
+     *
+     * @param lTime
+     *            The time
+     * @param lLease
+     *            The lease in milliseconds
+     * @param nMaxCount
+     *            The maximum number of intents
+     * @return The claimed intents
+     */
+    public static List<CertificationIntent> claimDue( long lTime, long lLease, int nMaxCount )
+    {
+        List<CertificationIntent> listClaimed = new ArrayList<>( );
+
+        for ( CertificationIntent intent : _dao.selectDueList( lTime, nMaxCount, _plugin ) )
+        {
+            if ( _dao.storeNextAttemptTime( intent.getId( ), intent.getNextAttemptTime( ), lTime + lLease, _plugin ) == 1 )
+            {
+                intent.setNextAttemptTime( lTime + lLease );
+                listClaimed.add( intent );
+            }
+        }
+
+        return listClaimed;
+    }
+
+    /**
+     * Count the intents of a status
+     *
+     * @param nStatus
+     *            The status
+     * @return The number of intents
+     */
+    public static int countByStatus( int nStatus )
+    {
+        return _dao.countByStatus( nStatus, _plugin );
+    }
+}
@@ -35,18 +35,43 @@
 package fr.paris.lutece.plugins.fccertifier.business;
 
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.time.LocalDate;
+
 import fr.paris.lutece.plugins.fccertifier.util.DateUtils;
 import fr.paris.lutece.plugins.fccertifier.util.InseeUtils;
 import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
 
 /**
- * FcIdentity
+ * FcIdentity : the FranceConnect pivot identity enriched with its IdentityStore formats. It is built once per FranceConnect callback and must not be
+ * modified afterwards. Only the claims used by the certification flow are kept, and the identity is serialized in a compact form since it lives in
+ * the HTTP session. Since 2.0.0 it is no longer a UserInfo : the other claims (email_verified, middle_name, name, nickname, phone_number,
+ * phone_number_verified) are not available to the certifier listeners.
  */
-public class FcIdentity extends UserInfo
+public final class FcIdentity implements Serializable
 {
-    private String _strIdsBirthDate;
-    private String _strIdsBirthPlace;
-    private String _strIdsBirthCountry;
+    private static final long serialVersionUID = 1L;
+    private static final String GENDER_MALE = "male";
+    private static final String GENDER_FEMALE = "female";
+
+    private final String _strSub;
+    private final String _strGivenName;
+    private final String _strFamilyName;
+    private final String _strPreferredUsername;
+    private final String _strGender;
+    private final String _strBirthDate;
+    private final String _strBirthPlace;
+    private final String _strBirthCountry;
+    private final String _strEmail;
+    private final String _strIdsBirthDate;
+    private final String _strIdsBirthPlace;
+    private final String _strIdsBirthCountry;
 
     /**
      * Constructor
@@ -54,91 +79,165 @@ public class FcIdentity extends UserInfo
      */
     public FcIdentity( UserInfo userInfo )
     {
-        super();
-        
-        setBirthDate( userInfo.getBirthDate( ) );
-        setBirthPlace( userInfo.getBirthPlace( ) );
-        setBirthCountry( userInfo.getBirthCountry( ) );
-        setEmail( userInfo.getEmail( ) );
-        setEmailVerified( userInfo.getEmailVerified( ) );
-        setFamilyName( userInfo.getFamilyName( ) );
-        setGender( userInfo.getGender( ) );
-        setGivenName( userInfo.getGivenName( ) );
-        setMiddleName( userInfo.getMiddleName( ) );
-        setName( userInfo.getName( ) );
-        setNickname( userInfo.getNickname( ) );
-        setPhoneNumber( userInfo.getPhoneNumber( ) );
-        setPhoneNumberVerified( userInfo.getPhoneNumberVerified( ) );
-        setPreferredUsername( userInfo.getPreferredUsername( ) );
-        setSub( userInfo.getSub( ) );
+        _strSub = userInfo.getSub( );
+        _strGivenName = userInfo.getGivenName( );
+        _strFamilyName = userInfo.getFamilyName( );
+        _strPreferredUsername = userInfo.getPreferredUsername( );
+        _strGender = userInfo.getGender( );
+        _strBirthDate = userInfo.getBirthDate( );
+        _strBirthPlace = userInfo.getBirthPlace( );
+        _strBirthCountry = userInfo.getBirthCountry( );
+        _strEmail = userInfo.getEmail( );
 
-        _strIdsBirthDate = DateUtils.convertFcToIds( getBirthDate( ) );
-        _strIdsBirthPlace = InseeUtils.getPlaceName( getBirthPlace( ),_strIdsBirthDate );
-        _strIdsBirthCountry = InseeUtils.getCountryName( getBirthCountry( ), _strIdsBirthDate );
+        LocalDate birthdate = DateUtils.parseFcDate( _strBirthDate );
+        _strIdsBirthDate = ( birthdate != null ) ? DateUtils.formatIds( birthdate ) : null;
 
+        // Resolved from the in-memory index, the geocodes service being called only for the unknown or ambiguous codes, under its guard timeout
+        _strIdsBirthPlace = InseeUtils.getPlaceName( _strBirthPlace, birthdate );
+        _strIdsBirthCountry = InseeUtils.getCountryName( _strBirthCountry, birthdate );
     }
 
     /**
-     * Returns the IdsBirthDate
+     * Constructor of a deserialized identity : the resolved places are restored, the birth date is formatted again
+     * @param form The serialized form
+     */
+    private FcIdentity( SerializedForm form )
+    {
+        String [ ] values = form._values;
+        _strSub = values [SerializedForm.SUB];
+        _strGivenName = values [SerializedForm.GIVEN_NAME];
+        _strFamilyName = values [SerializedForm.FAMILY_NAME];
+        _strPreferredUsername = values [SerializedForm.PREFERRED_USERNAME];
+        _strGender = values [SerializedForm.GENDER];
+        _strBirthDate = values [SerializedForm.BIRTH_DATE];
+        _strBirthPlace = values [SerializedForm.BIRTH_PLACE];
+        _strBirthCountry = values [SerializedForm.BIRTH_COUNTRY];
+        _strEmail = values [SerializedForm.EMAIL];
+        _strIdsBirthPlace = values [SerializedForm.IDS_BIRTH_PLACE];
+        _strIdsBirthCountry = values [SerializedForm.IDS_BIRTH_COUNTRY];
+
+        LocalDate birthdate = DateUtils.parseFcDate( _strBirthDate );
+        _strIdsBirthDate = ( birthdate != null ) ? DateUtils.formatIds( birthdate ) : null;
+    }
+
+    /**
+     * Returns the Sub
      * 
-     * @return The IdsBirthDate
+     * @return The Sub
      */
-    public String getIdsBirthDate( )
+    public String getSub( )
     {
-        return _strIdsBirthDate;
+        return _strSub;
     }
 
     /**
-     * Sets the IdsBirthDate
+     * Returns the GivenName
      * 
-     * @param strIdsBirthDate
-     *            The IdsBirthDate
+     * @return The GivenName
      */
-    public void setIdsBirthDate( String strIdsBirthDate )
+    public String getGivenName( )
     {
-        _strIdsBirthDate = strIdsBirthDate;
+        return _strGivenName;
     }
 
     /**
-     * Returns the IdsBirthPlace
+     * Returns the FamilyName
      * 
-     * @return The IdsBirthPlace
+     * @return The FamilyName
      */
-    public String getIdsBirthPlace( )
+    public String getFamilyName( )
     {
-        return _strIdsBirthPlace;
+        return _strFamilyName;
     }
 
     /**
-     * Sets the IdsBirthPlace
+     * Returns the PreferredUsername
      * 
-     * @param strIdsBirthPlace
-     *            The IdsBirthPlace
+     * @return The PreferredUsername
      */
-    public void setIdsBirthPlace( String strIdsBirthPlace )
+    public String getPreferredUsername( )
     {
-        _strIdsBirthPlace = strIdsBirthPlace;
+        return _strPreferredUsername;
     }
 
     /**
-     * Returns the IdsBirthCountry
+     * Returns the Gender
      * 
-     * @return The IdsBirthCountry
+     * @return The Gender
      */
-    public String getIdsBirthCountry( )
+    public String getGender( )
     {
-        return _strIdsBirthCountry;
+        return _strGender;
+    }
+
+    /**
+     * Returns the BirthDate
+     * 
+     * @return The BirthDate
+     */
+    public String getBirthDate( )
+    {
+        return _strBirthDate;
     }
 
     /**
-     * Sets the IdsBirthCountry
+     * Returns the BirthPlace
      * 
-     * @param strIdsBirthCountry
-     *            The IdsBirthCountry
+     * @return The BirthPlace
      */
-    public void setIdsBirthCountry( String strIdsBirthCountry )
+    public String getBirthPlace( )
     {
-        _strIdsBirthCountry = strIdsBirthCountry;
+        return _strBirthPlace;
+    }
+
+    /**
+     * Returns the BirthCountry
+     * 
+     * @return The BirthCountry
+     */
+    public String getBirthCountry( )
+    {
+        return _strBirthCountry;
+    }
+
+    /**
+     * Returns the Email
+     * 
+     * @return The Email
+     */
+    public String getEmail( )
+    {
+        return _strEmail;
+    }
+
+    /**
+     * Returns the IdsBirthDate
+     * 
+     * @return The IdsBirthDate
+     */
+    public String getIdsBirthDate( )
+    {
+        return _strIdsBirthDate;
+    }
+
+    /**
+     * Returns the IdsBirthPlace
+     * 
+     * @return The IdsBirthPlace
+     */
+    public String getIdsBirthPlace( )
+    {
+        return _strIdsBirthPlace;
+    }
+
+    /**
+     * Returns the IdsBirthCountry
+     * 
+     * @return The IdsBirthCountry
+     */
+    public String getIdsBirthCountry( )
+    {
+        return _strIdsBirthCountry;
     }
 
     /**
@@ -147,15 +246,140 @@ public class FcIdentity extends UserInfo
      */
     public String getIdsGender( )
     {
-        if ( getGender( ).equals( "male" ) )
+        if ( GENDER_MALE.equals( _strGender ) )
         {
             return "2";
         }
         else
-            if ( getGender( ).equals( "female" ) )
+            if ( GENDER_FEMALE.equals( _strGender ) )
             {
                 return "1";
             }
         return "0";
     }
+
+    /**
+     * The identity is serialized through its compact form
+     * @return The serialized form
+     */
+    private Object writeReplace( )
+    {
+        return new SerializedForm( this );
+    }
+
+    /**
+     * The identity can only be deserialized from its compact form
+     * @param stream The stream
+     * @throws InvalidObjectException always
+     */
+    private void readObject( ObjectInputStream stream ) throws InvalidObjectException
+    {
+        throw new InvalidObjectException( "FcIdentity must be deserialized from its compact form" );
+    }
+
+    /**
+     * SerializedForm : a presence mask followed by the present values in modified UTF-8, without any field descriptor. The IdentityStore birth date
+     * is derived from the FranceConnect one and is not written.
+     */
+    private static final class SerializedForm implements Externalizable
+    {
+        private static final long serialVersionUID = 1L;
+        private static final byte VERSION = 1;
+        private static final int SUB = 0;
+        private static final int GIVEN_NAME = 1;
+        private static final int FAMILY_NAME = 2;
+        private static final int PREFERRED_USERNAME = 3;
+        private static final int GENDER = 4;
+        private static final int BIRTH_DATE = 5;
+        private static final int BIRTH_PLACE = 6;
+        private static final int BIRTH_COUNTRY = 7;
+        private static final int EMAIL = 8;
+        private static final int IDS_BIRTH_PLACE = 9;
+        private static final int IDS_BIRTH_COUNTRY = 10;
+        private static final int VALUES_COUNT = 11;
+
+        private String [ ] _values;
+
+        /**
+         * Constructor used by the deserialization
+         */
+        public SerializedForm( )
+        {
+        }
+
+        /**
+         * Constructor
+         * @param identity The identity
+         */
+        SerializedForm( FcIdentity identity )
+        {
+            _values = new String [ ] {
+                    identity._strSub, identity._strGivenName, identity._strFamilyName, identity._strPreferredUsername, identity._strGender,
+                    identity._strBirthDate, identity._strBirthPlace, identity._strBirthCountry, identity._strEmail, identity._strIdsBirthPlace,
+                    identity._strIdsBirthCountry
+            };
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void writeExternal( ObjectOutput out ) throws IOException
+        {
+            int nMask = 0;
+
+            for ( int i = 0; i < VALUES_COUNT; i++ )
+            {
+                if ( _values [i] != null )
+                {
+                    nMask |= 1 << i;
+                }
+            }
+
+            out.writeByte( VERSION );
+            out.writeShort( nMask );
+
+            for ( String strValue : _values )
+            {
+                if ( strValue != null )
+                {
+                    out.writeUTF( strValue );
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void readExternal( ObjectInput in ) throws IOException
+        {
+            byte nVersion = in.readByte( );
+
+            if ( nVersion != VERSION )
+            {
+                throw new InvalidObjectException( "Unsupported FcIdentity serialized form version : " + nVersion );
+            }
+
+            int nMask = in.readUnsignedShort( );
+            _values = new String [ VALUES_COUNT];
+
+            for ( int i = 0; i < VALUES_COUNT; i++ )
+            {
+                if ( ( nMask & ( 1 << i ) ) != 0 )
+                {
+                    _values [i] = in.readUTF( );
+                }
+            }
+        }
+
+        /**
+         * Rebuild the identity
+         * @return The identity
+         */
+        private Object readResolve( )
+        {
+            return new FcIdentity( this );
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * ICertificationIntentDAO Interface
+ */
+public interface ICertificationIntentDAO
+{
+    /**
+     * Insert a new record in the table. The generated id is set in the intent.
+     *
+     * @param intent
+     *            instance of the CertificationIntent object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( CertificationIntent intent, Plugin plugin );
+
+    /**
+     * Update the attempts, next attempt time, status and last error of a record
+     *
+     * @param intent
+     *            the reference of the CertificationIntent
+     * @param plugin
+     *            the Plugin
+     */
+    void store( CertificationIntent intent, Plugin plugin );
+
+    /**
+     * Update the next attempt time of a pending record, provided it has not changed since it was read
+     *
+     * @param nId
+     *            the id
+     * @param lExpectedNextAttemptTime
+     *            the next attempt time read
+     * @param lNextAttemptTime
+     *            the new next attempt time
+     * @param plugin
+     *            the Plugin
+     * @return the number of updated records, 0 if another node claimed or applied it
+     */
+    int storeNextAttemptTime( int nId, long lExpectedNextAttemptTime, long lNextAttemptTime, Plugin plugin );
+
+    /**
+     * Delete a record from the table
+     *
+     * @param nId
+     *            The identifier of the CertificationIntent to delete
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( int nId, Plugin plugin );
+
+    /**
+     * Load the pending records to apply at a given time, the oldest due first
+     *
+     * @param lTime
+     *            the time
+     * @param nMaxCount
+     *            the maximum number of records
+     * @param plugin
+     *            the Plugin
+     * @return the list of the intents
+     */
+    List<CertificationIntent> selectDueList( long lTime, int nMaxCount, Plugin plugin );
+
+    /**
+     * Count the records of a status
+     *
+     * @param nStatus
+     *            the status
+     * @param plugin
+     *            the Plugin
+     * @return the number of records
+     */
+    int countByStatus( int nStatus, Plugin plugin );
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * IInseeReferenceDAO Interface
+ */
+public interface IInseeReferenceDAO
+{
+    /**
+     * Load the data of all the INSEE communes
+     *
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of all the communes
+     */
+    List<InseeReference> selectCommunesList( Plugin plugin );
+
+    /**
+     * Load the data of all the INSEE countries
+     *
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of all the countries
+     */
+    List<InseeReference> selectCountriesList( Plugin plugin );
+
+    /**
+     * Insert INSEE communes
+     *
+     * @param listCommunes
+     *            the communes
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void insertCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin );
+
+    /**
+     * Update the last day of validity of INSEE communes
+     *
+     * @param listCommunes
+     *            the communes
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void updateCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin );
+
+    /**
+     * Delete all the rows of the code, label and first day of validity of INSEE communes
+     *
+     * @param listCommunes
+     *            the communes
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin );
+
+    /**
+     * Insert INSEE countries
+     *
+     * @param listCountries
+     *            the countries
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void insertCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin );
+
+    /**
+     * Update the last day of validity of INSEE countries
+     *
+     * @param listCountries
+     *            the countries
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void updateCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin );
+
+    /**
+     * Delete all the rows of the code, label and first day of validity of INSEE countries
+     *
+     * @param listCountries
+     *            the countries
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin );
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * IValidationInfosDAO Interface
+ */
+public interface IValidationInfosDAO
+{
+    /**
+     * Insert a new record in the table.
+     *
+     * @param strKey
+     *            the key
+     * @param infos
+     *            instance of the ValidationInfos object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( String strKey, ValidationInfos infos, Plugin plugin );
+
+    /**
+     * Load the data from the table
+     *
+     * @param strKey
+     *            The key
+     * @param plugin
+     *            the Plugin
+     * @return The instance of the ValidationInfos or null
+     */
+    ValidationInfos load( String strKey, Plugin plugin );
+
+    /**
+     * Delete a record from the table
+     *
+     * @param strKey
+     *            The key
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( String strKey, Plugin plugin );
+
+    /**
+     * Store the result of a record still in progress, provided it was not replaced since it was loaded
+     *
+     * @param strKey
+     *            The key
+     * @param lExpectedExpiresTime
+     *            The expiration time of the loaded record
+     * @param strResult
+     *            The validation result
+     * @param lExpiresTime
+     *            The new expiration time
+     * @param plugin
+     *            the Plugin
+     * @return The number of updated records, 0 if another request completed, deleted or replaced it
+     */
+    int storeResult( String strKey, long lExpectedExpiresTime, String strResult, long lExpiresTime, Plugin plugin );
+
+    /**
+     * Store the result of the strict suspicious identities check of a record still in progress
+     *
+     * @param strKey
+     *            The key
+     * @param strSub
+     *            The FranceConnect subject of the checked identity
+     * @param bStrictSuspicious
+     *            The result of the check
+     * @param plugin
+     *            the Plugin
+     */
+    void storeSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious, Plugin plugin );
+
+    /**
+     * Select the keys of the records expired before a given time, oldest first
+     *
+     * @param lTime
+     *            the time
+     * @param nMaxCount
+     *            the maximum number of keys
+     * @param plugin
+     *            the Plugin
+     * @return The list of keys
+     */
+    List<String> selectExpiredKeysList( long lTime, int nMaxCount, Plugin plugin );
+
+    /**
+     * Delete a list of records in one batch, provided they are still expired before a given time : a record refreshed since its key was selected is
+     * kept
+     *
+     * @param listKeys
+     *            The keys
+     * @param lTime
+     *            the time
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteExpiredList( List<String> listKeys, long lTime, Plugin plugin );
+
+    /**
+     * Count the records
+     *
+     * @param plugin
+     *            the Plugin
+     * @return The number of records
+     */
+    int count( Plugin plugin );
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.sql.Date;
+
+/**
+ * InseeReference : an INSEE code (commune or country) with its label and validity period
+ */
+public class InseeReference
+{
+    // Variables declarations
+    private String _strCode;
+    private String _strLabel;
+    private Date _dateValidityStart;
+    private Date _dateValidityEnd;
+
+    /**
+     * Returns the Code
+     *
+     * @return The Code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Sets the Code
+     *
+     * @param strCode
+     *            The Code
+     */
+    public void setCode( String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * Returns the Label
+     *
+     * @return The Label
+     */
+    public String getLabel( )
+    {
+        return _strLabel;
+    }
+
+    /**
+     * Sets the Label
+     *
+     * @param strLabel
+     *            The Label
+     */
+    public void setLabel( String strLabel )
+    {
+        _strLabel = strLabel;
+    }
+
+    /**
+     * Returns the first day of validity of the label, null if unknown
+     *
+     * @return The DateValidityStart
+     */
+    public Date getDateValidityStart( )
+    {
+        return _dateValidityStart;
+    }
+
+    /**
+     * Sets the DateValidityStart
+     *
+     * @param dateValidityStart
+     *            The DateValidityStart
+     */
+    public void setDateValidityStart( Date dateValidityStart )
+    {
+        _dateValidityStart = dateValidityStart;
+    }
+
+    /**
+     * Returns the first day the label is no longer valid, null if still valid
+     *
+     * @return The DateValidityEnd
+     */
+    public Date getDateValidityEnd( )
+    {
+        return _dateValidityEnd;
+    }
+
+    /**
+     * Sets the DateValidityEnd
+     *
+     * @param dateValidityEnd
+     *            The DateValidityEnd
+     */
+    public void setDateValidityEnd( Date dateValidityEnd )
+    {
+        _dateValidityEnd = dateValidityEnd;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Changes to apply to an INSEE reference table so that it holds the references of a source. A reference is identified by its code, its first day of
+ * validity and its label, a code having several labels for a same period (e.g. the territories of a country); the rows of a key found several times
+ * in the table are removed and the reference created again.
+ */
+public final class InseeReferenceChanges
+{
+    private static final String KEY_SEPARATOR = "|";
+
+    private final List<InseeReference> _listCreated = new ArrayList<>( );
+    private final List<InseeReference> _listModified = new ArrayList<>( );
+    private final List<InseeReference> _listRemoved = new ArrayList<>( );
+    private int _nUnchanged;
+
+    /**
+     * Private constructor
+     */
+    private InseeReferenceChanges( )
+    {
+    }
+
+    /**
+     * Compute the changes between the rows of a table and the references of a source
+     *
+     * @param listCurrent
+     *            the rows of the table
+     * @param listSource
+     *            the references of the source, the last one wins for a same key
+     * @return the changes
+     */
+    public static InseeReferenceChanges compute( List<InseeReference> listCurrent, List<InseeReference> listSource )
+    {
+        InseeReferenceChanges changes = new InseeReferenceChanges( );
+        Map<String, InseeReference> mapCurrent = new LinkedHashMap<>( );
+        Set<String> setDuplicates = new HashSet<>( );
+
+        for ( InseeReference reference : listCurrent )
+        {
+            String strKey = getKey( reference );
+
+            if ( mapCurrent.putIfAbsent( strKey, reference ) != null && setDuplicates.add( strKey ) )
+            {
+                changes._listRemoved.add( reference );
+            }
+        }
+
+        Map<String, InseeReference> mapSource = new LinkedHashMap<>( );
+
+        for ( InseeReference reference : listSource )
+        {
+            mapSource.put( getKey( reference ), reference );
+        }
+
+        for ( Map.Entry<String, InseeReference> entry : mapSource.entrySet( ) )
+        {
+            InseeReference reference = entry.getValue( );
+            InseeReference current = mapCurrent.remove( entry.getKey( ) );
+
+            if ( current == null || setDuplicates.contains( entry.getKey( ) ) )
+            {
+                changes._listCreated.add( reference );
+            }
+            else
+                if ( Objects.equals( current.getDateValidityEnd( ), reference.getDateValidityEnd( ) ) )
+                {
+                    changes._nUnchanged++;
+                }
+                else
+                {
+                    changes._listModified.add( reference );
+                }
+        }
+
+        // Keys no longer in the source, the duplicates being already removed
+        for ( Map.Entry<String, InseeReference> entry : mapCurrent.entrySet( ) )
+        {
+            if ( !setDuplicates.contains( entry.getKey( ) ) )
+            {
+                changes._listRemoved.add( entry.getValue( ) );
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Returns the references to create
+     *
+     * @return the references
+     */
+    public List<InseeReference> getCreatedList( )
+    {
+        return _listCreated;
+    }
+
+    /**
+     * Returns the references whose last day of validity changed
+     *
+     * @return the references
+     */
+    public List<InseeReference> getModifiedList( )
+    {
+        return _listModified;
+    }
+
+    /**
+     * Returns the references to remove, all the rows of their key being removed
+     *
+     * @return the references
+     */
+    public List<InseeReference> getRemovedList( )
+    {
+        return _listRemoved;
+    }
+
+    /**
+     * Returns the number of references already up to date
+     *
+     * @return the number of references
+     */
+    public int getUnchangedCount( )
+    {
+        return _nUnchanged;
+    }
+
+    /**
+     * Tells whether the table is already up to date
+     *
+     * @return true if there is nothing to apply
+     */
+    public boolean isEmpty( )
+    {
+        return _listCreated.isEmpty( ) && _listModified.isEmpty( ) && _listRemoved.isEmpty( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String toString( )
+    {
+        return "Created : " + _listCreated.size( ) + " - Modified : " + _listModified.size( ) + " - Removed : " + _listRemoved.size( ) + " - Unchanged : "
+                + _nUnchanged;
+    }
+
+    /**
+     * Returns the key of a reference
+     *
+     * @param reference
+     *            the reference
+     * @return the code, the first day of validity and the label
+     */
+    private static String getKey( InseeReference reference )
+    {
+        return reference.getCode( ) + KEY_SEPARATOR + Objects.toString( reference.getDateValidityStart( ), "" ) + KEY_SEPARATOR + reference.getLabel( );
+    }
+}
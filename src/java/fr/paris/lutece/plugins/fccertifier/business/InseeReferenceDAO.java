@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the INSEE reference tables
+ */
+public final class InseeReferenceDAO implements IInseeReferenceDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_COMMUNES = "SELECT code_commune, nom_commune, date_validity_start, date_validity_end FROM fccertifier_insee_communes ORDER BY code_commune, date_validity_start, nom_commune";
+    private static final String SQL_QUERY_SELECT_COUNTRIES = "SELECT code_pays, nom_pays, date_validity_start, date_validity_end FROM fccertifier_insee_pays ORDER BY code_pays, date_validity_start, nom_pays";
+    private static final String SQL_QUERY_INSERT_COMMUNE = "INSERT INTO fccertifier_insee_communes ( code_commune, nom_commune, date_validity_start, date_validity_end ) VALUES ( ?, ?, ?, ? )";
+    private static final String SQL_QUERY_INSERT_COUNTRY = "INSERT INTO fccertifier_insee_pays ( code_pays, nom_pays, date_validity_start, date_validity_end ) VALUES ( ?, ?, ?, ? )";
+    private static final String SQL_QUERY_UPDATE_COMMUNE = "UPDATE fccertifier_insee_communes SET date_validity_end = ? WHERE code_commune = ? AND nom_commune = ? AND date_validity_start = ?";
+    private static final String SQL_QUERY_UPDATE_COMMUNE_NO_START = "UPDATE fccertifier_insee_communes SET date_validity_end = ? WHERE code_commune = ? AND nom_commune = ? AND date_validity_start IS NULL";
+    private static final String SQL_QUERY_UPDATE_COUNTRY = "UPDATE fccertifier_insee_pays SET date_validity_end = ? WHERE code_pays = ? AND nom_pays = ? AND date_validity_start = ?";
+    private static final String SQL_QUERY_UPDATE_COUNTRY_NO_START = "UPDATE fccertifier_insee_pays SET date_validity_end = ? WHERE code_pays = ? AND nom_pays = ? AND date_validity_start IS NULL";
+    private static final String SQL_QUERY_DELETE_COMMUNE = "DELETE FROM fccertifier_insee_communes WHERE code_commune = ? AND nom_commune = ? AND date_validity_start = ?";
+    private static final String SQL_QUERY_DELETE_COMMUNE_NO_START = "DELETE FROM fccertifier_insee_communes WHERE code_commune = ? AND nom_commune = ? AND date_validity_start IS NULL";
+    private static final String SQL_QUERY_DELETE_COUNTRY = "DELETE FROM fccertifier_insee_pays WHERE code_pays = ? AND nom_pays = ? AND date_validity_start = ?";
+    private static final String SQL_QUERY_DELETE_COUNTRY_NO_START = "DELETE FROM fccertifier_insee_pays WHERE code_pays = ? AND nom_pays = ? AND date_validity_start IS NULL";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<InseeReference> selectCommunesList( Plugin plugin )
+    {
+        return selectList( SQL_QUERY_SELECT_COMMUNES, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<InseeReference> selectCountriesList( Plugin plugin )
+    {
+        return selectList( SQL_QUERY_SELECT_COUNTRIES, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin )
+    {
+        executeBatch( SQL_QUERY_INSERT_COMMUNE, listCommunes, nBatchSize, InseeReferenceDAO::setInsertParameters, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void updateCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin )
+    {
+        executeBatchByKey( SQL_QUERY_UPDATE_COMMUNE, SQL_QUERY_UPDATE_COMMUNE_NO_START, listCommunes, nBatchSize, InseeReferenceDAO::setUpdateParameters,
+                plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteCommunesList( List<InseeReference> listCommunes, int nBatchSize, Plugin plugin )
+    {
+        executeBatchByKey( SQL_QUERY_DELETE_COMMUNE, SQL_QUERY_DELETE_COMMUNE_NO_START, listCommunes, nBatchSize, InseeReferenceDAO::setDeleteParameters,
+                plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin )
+    {
+        executeBatch( SQL_QUERY_INSERT_COUNTRY, listCountries, nBatchSize, InseeReferenceDAO::setInsertParameters, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void updateCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin )
+    {
+        executeBatchByKey( SQL_QUERY_UPDATE_COUNTRY, SQL_QUERY_UPDATE_COUNTRY_NO_START, listCountries, nBatchSize, InseeReferenceDAO::setUpdateParameters,
+                plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteCountriesList( List<InseeReference> listCountries, int nBatchSize, Plugin plugin )
+    {
+        executeBatchByKey( SQL_QUERY_DELETE_COUNTRY, SQL_QUERY_DELETE_COUNTRY_NO_START, listCountries, nBatchSize, InseeReferenceDAO::setDeleteParameters,
+                plugin );
+    }
+
+    /**
+     * Load a list of references
+     *
+     * @param strQuery
+     *            The select query
+     * @param plugin
+     *            the Plugin
+     * @return The list of references
+     */
+    private static List<InseeReference> selectList( String strQuery, Plugin plugin )
+    {
+        List<InseeReference> listReferences = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                InseeReference reference = new InseeReference( );
+                int nIndex = 1;
+                reference.setCode( daoUtil.getString( nIndex++ ) );
+                reference.setLabel( daoUtil.getString( nIndex++ ) );
+                reference.setDateValidityStart( daoUtil.getDate( nIndex++ ) );
+                reference.setDateValidityEnd( daoUtil.getDate( nIndex ) );
+
+                listReferences.add( reference );
+            }
+        }
+
+        return listReferences;
+    }
+
+    /**
+     * Run a query keyed by the code, the label and the first day of validity for a list of references, with the IS NULL variant of the query for the references
+     * without first day of validity
+     *
+     * @param strQuery
+     *            the query for the references with a first day of validity
+     * @param strQueryNoStart
+     *            the query for the references without first day of validity
+     * @param listReferences
+     *            the references
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param binder
+     *            sets the parameters of the query, the first day of validity being set last when there is one
+     * @param plugin
+     *            the Plugin
+     */
+    private static void executeBatchByKey( String strQuery, String strQueryNoStart, List<InseeReference> listReferences, int nBatchSize,
+            BiConsumer<DAOUtil, InseeReference> binder, Plugin plugin )
+    {
+        List<InseeReference> listWithStart = new ArrayList<>( );
+        List<InseeReference> listNoStart = new ArrayList<>( );
+
+        for ( InseeReference reference : listReferences )
+        {
+            ( reference.getDateValidityStart( ) != null ? listWithStart : listNoStart ).add( reference );
+        }
+
+        executeBatch( strQuery, listWithStart, nBatchSize, binder, plugin );
+        executeBatch( strQueryNoStart, listNoStart, nBatchSize, binder, plugin );
+    }
+
+    /**
+     * Run a query for a list of references, sending the rows to the database by batches
+     *
+     * @param strQuery
+     *            the query
+     * @param listReferences
+     *            the references
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @param binder
+     *            sets the parameters of the query
+     * @param plugin
+     *            the Plugin
+     */
+    private static void executeBatch( String strQuery, List<InseeReference> listReferences, int nBatchSize, BiConsumer<DAOUtil, InseeReference> binder,
+            Plugin plugin )
+    {
+        if ( listReferences.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nPending = 0;
+
+            for ( InseeReference reference : listReferences )
+            {
+                binder.accept( daoUtil, reference );
+                daoUtil.addBatch( );
+
+                if ( ++nPending >= nBatchSize )
+                {
+                    daoUtil.executeBatch( );
+                    nPending = 0;
+                }
+            }
+
+            if ( nPending > 0 )
+            {
+                daoUtil.executeBatch( );
+            }
+        }
+    }
+
+    /**
+     * Set the parameters of an insert query
+     *
+     * @param daoUtil
+     *            the DAOUtil
+     * @param reference
+     *            the reference
+     */
+    private static void setInsertParameters( DAOUtil daoUtil, InseeReference reference )
+    {
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, reference.getCode( ) );
+        daoUtil.setString( nIndex++, reference.getLabel( ) );
+        setDate( daoUtil, nIndex++, reference.getDateValidityStart( ) );
+        setDate( daoUtil, nIndex, reference.getDateValidityEnd( ) );
+    }
+
+    /**
+     * Set the parameters of an update query
+     *
+     * @param daoUtil
+     *            the DAOUtil
+     * @param reference
+     *            the reference
+     */
+    private static void setUpdateParameters( DAOUtil daoUtil, InseeReference reference )
+    {
+        int nIndex = 1;
+        setDate( daoUtil, nIndex++, reference.getDateValidityEnd( ) );
+        daoUtil.setString( nIndex++, reference.getCode( ) );
+        daoUtil.setString( nIndex++, reference.getLabel( ) );
+
+        if ( reference.getDateValidityStart( ) != null )
+        {
+            daoUtil.setDate( nIndex, reference.getDateValidityStart( ) );
+        }
+    }
+
+    /**
+     * Set the parameters of a delete query
+     *
+     * @param daoUtil
+     *            the DAOUtil
+     * @param reference
+     *            the reference
+     */
+    private static void setDeleteParameters( DAOUtil daoUtil, InseeReference reference )
+    {
+        daoUtil.setString( 1, reference.getCode( ) );
+        daoUtil.setString( 2, reference.getLabel( ) );
+
+        if ( reference.getDateValidityStart( ) != null )
+        {
+            daoUtil.setDate( 3, reference.getDateValidityStart( ) );
+        }
+    }
+
+    /**
+     * Set a date parameter that may be null
+     *
+     * @param daoUtil
+     *            the DAOUtil
+     * @param nIndex
+     *            the parameter index
+     * @param date
+     *            the date or null
+     */
+    private static void setDate( DAOUtil daoUtil, int nIndex, Date date )
+    {
+        if ( date != null )
+        {
+            daoUtil.setDate( nIndex, date );
+        }
+        else
+        {
+            daoUtil.setNull( nIndex, Types.DATE );
+        }
+    }
+}
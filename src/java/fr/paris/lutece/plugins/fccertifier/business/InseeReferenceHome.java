@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * This class provides instances management methods for the INSEE reference tables
+ */
+public final class InseeReferenceHome
+{
+    // Static variable pointed at the DAO instance
+    private static IInseeReferenceDAO _dao = SpringContextService.getBean( "fccertifier.inseeReferenceDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "fccertifier" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private InseeReferenceHome( )
+    {
+    }
+
+    /**
+     * Load the data of all the INSEE communes
+     *
+     * @return the list which contains the data of all the communes
+     */
+    public static List<InseeReference> getCommunesList( )
+    {
+        return _dao.selectCommunesList( _plugin );
+    }
+
+    /**
+     * Load the data of all the INSEE countries
+     *
+     * @return the list which contains the data of all the countries
+     */
+    public static List<InseeReference> getCountriesList( )
+    {
+        return _dao.selectCountriesList( _plugin );
+    }
+
+    /**
+     * Make the communes table hold the communes of a source, in one transaction : the rows missing from the source are removed, the modified ones are
+     * updated and the new ones created, by JDBC batches
+     *
+     * @param listCommunes
+     *            the communes of the source
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @return the changes applied
+     */
+    public static InseeReferenceChanges synchronizeCommunes( List<InseeReference> listCommunes, int nBatchSize )
+    {
+        TransactionManager.beginTransaction( _plugin );
+
+        try
+        {
+            InseeReferenceChanges changes = InseeReferenceChanges.compute( _dao.selectCommunesList( _plugin ), listCommunes );
+            _dao.deleteCommunesList( changes.getRemovedList( ), nBatchSize, _plugin );
+            _dao.updateCommunesList( changes.getModifiedList( ), nBatchSize, _plugin );
+            _dao.insertCommunesList( changes.getCreatedList( ), nBatchSize, _plugin );
+            TransactionManager.commitTransaction( _plugin );
+
+            return changes;
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( _plugin );
+            throw e;
+        }
+    }
+
+    /**
+     * Make the countries table hold the countries of a source, in one transaction : the rows missing from the source are removed, the modified ones
+     * are updated and the new ones created, by JDBC batches
+     *
+     * @param listCountries
+     *            the countries of the source
+     * @param nBatchSize
+     *            the number of rows sent to the database per batch
+     * @return the changes applied
+     */
+    public static InseeReferenceChanges synchronizeCountries( List<InseeReference> listCountries, int nBatchSize )
+    {
+        TransactionManager.beginTransaction( _plugin );
+
+        try
+        {
+            InseeReferenceChanges changes = InseeReferenceChanges.compute( _dao.selectCountriesList( _plugin ), listCountries );
+            _dao.deleteCountriesList( changes.getRemovedList( ), nBatchSize, _plugin );
+            _dao.updateCountriesList( changes.getModifiedList( ), nBatchSize, _plugin );
+            _dao.insertCountriesList( changes.getCreatedList( ), nBatchSize, _plugin );
+            TransactionManager.commitTransaction( _plugin );
+
+            return changes;
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( _plugin );
+            throw e;
+        }
+    }
+}
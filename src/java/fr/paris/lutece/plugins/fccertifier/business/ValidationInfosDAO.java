@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for ValidationInfos objects
+ */
+public final class ValidationInfosDAO implements IValidationInfosDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO fccertifier_validation_infos ( validation_key, user_connection_id, user_email, expires_time, invalid_attempts, validation_result, suspicious_check_sub, strict_suspicious ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT user_connection_id, user_email, expires_time, invalid_attempts, validation_result, suspicious_check_sub, strict_suspicious FROM fccertifier_validation_infos WHERE validation_key = ?";
+    private static final String SQL_QUERY_UPDATE_RESULT = "UPDATE fccertifier_validation_infos SET validation_result = ?, expires_time = ? WHERE validation_key = ? AND expires_time = ? AND validation_result IS NULL ";
+    private static final String SQL_QUERY_UPDATE_SUSPICIOUS_CHECK = "UPDATE fccertifier_validation_infos SET suspicious_check_sub = ?, strict_suspicious = ? WHERE validation_key = ? AND validation_result IS NULL ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM fccertifier_validation_infos WHERE validation_key = ? ";
+    private static final String SQL_QUERY_DELETE_EXPIRED = "DELETE FROM fccertifier_validation_infos WHERE validation_key = ? AND expires_time < ? ";
+    private static final String SQL_QUERY_SELECT_EXPIRED_KEYS = "SELECT validation_key FROM fccertifier_validation_infos WHERE expires_time < ? ORDER BY expires_time LIMIT ?";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM fccertifier_validation_infos";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( String strKey, ValidationInfos infos, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strKey );
+            daoUtil.setString( nIndex++, infos.getUserConnectionId( ) );
+            daoUtil.setString( nIndex++, infos.getUserEmail( ) );
+            daoUtil.setLong( nIndex++, infos.getExpiresTime( ) );
+            daoUtil.setInt( nIndex++, infos.getInvalidAttempts( ) );
+            daoUtil.setString( nIndex++, infos.getValidationResult( ) );
+            daoUtil.setString( nIndex++, infos.getSuspiciousCheckSub( ) );
+            daoUtil.setBoolean( nIndex, infos.isStrictSuspicious( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ValidationInfos load( String strKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strKey );
+            daoUtil.executeQuery( );
+
+            ValidationInfos infos = null;
+
+            if ( daoUtil.next( ) )
+            {
+                infos = new ValidationInfos( );
+                int nIndex = 1;
+                infos.setUserConnectionId( daoUtil.getString( nIndex++ ) );
+                infos.setUserEmail( daoUtil.getString( nIndex++ ) );
+                infos.setExpiresTime( daoUtil.getLong( nIndex++ ) );
+                infos.setInvalidAttempts( daoUtil.getInt( nIndex++ ) );
+                infos.setValidationResult( daoUtil.getString( nIndex++ ) );
+                infos.setSuspiciousCheckSub( daoUtil.getString( nIndex++ ) );
+                infos.setStrictSuspicious( daoUtil.getBoolean( nIndex ) );
+            }
+
+            return infos;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( String strKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setString( 1, strKey );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int storeResult( String strKey, long lExpectedExpiresTime, String strResult, long lExpiresTime, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_RESULT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strResult );
+            daoUtil.setLong( nIndex++, lExpiresTime );
+            daoUtil.setString( nIndex++, strKey );
+            daoUtil.setLong( nIndex, lExpectedExpiresTime );
+
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void storeSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_SUSPICIOUS_CHECK, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strSub );
+            daoUtil.setBoolean( nIndex++, bStrictSuspicious );
+            daoUtil.setString( nIndex, strKey );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<String> selectExpiredKeysList( long lTime, int nMaxCount, Plugin plugin )
+    {
+        List<String> listKeys = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_EXPIRED_KEYS, plugin ) )
+        {
+            daoUtil.setLong( 1, lTime );
+            daoUtil.setInt( 2, nMaxCount );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listKeys.add( daoUtil.getString( 1 ) );
+            }
+        }
+
+        return listKeys;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteExpiredList( List<String> listKeys, long lTime, Plugin plugin )
+    {
+        if ( listKeys.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_EXPIRED, plugin ) )
+        {
+            for ( String strKey : listKeys )
+            {
+                daoUtil.setString( 1, strKey );
+                daoUtil.setLong( 2, lTime );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int count( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+}
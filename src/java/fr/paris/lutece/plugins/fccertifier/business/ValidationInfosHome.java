@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * This class provides instances management methods (create, find, ...) for ValidationInfos objects
+ */
+public final class ValidationInfosHome
+{
+    // Static variable pointed at the DAO instance
+    private static IValidationInfosDAO _dao = SpringContextService.getBean( "fccertifier.validationInfosDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "fccertifier" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private ValidationInfosHome( )
+    {
+    }
+
+    /**
+     * Create or replace the validation infos of a key
+     *
+     * @param strKey
+     *            The key
+     * @param infos
+     *            The validation infos
+     */
+    public static void replace( String strKey, ValidationInfos infos )
+    {
+        TransactionManager.beginTransaction( _plugin );
+
+        try
+        {
+            _dao.delete( strKey, _plugin );
+            _dao.insert( strKey, infos, _plugin );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( _plugin );
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the validation infos of a key
+     *
+     * @param strKey
+     *            The key
+     * @return the validation infos or null
+     */
+    public static ValidationInfos findByKey( String strKey )
+    {
+        return _dao.load( strKey, _plugin );
+    }
+
+    /**
+     * Record the result of a validation in progress. The update is conditional, so that when several nodes validate the same key only one of them
+     * records its result.
+     *
+     * @param strKey
+     *            The key
+     * @param lExpectedExpiresTime
+     *            The expiration time of the validation in progress, as read
+     * @param strResult
+     *            The validation result
+     * @param lExpiresTime
+     *            The time until which the result is kept
+     * @return true if the result has been recorded
+     */
+    public static boolean complete( String strKey, long lExpectedExpiresTime, String strResult, long lExpiresTime )
+    {
+        return _dao.storeResult( strKey, lExpectedExpiresTime, strResult, lExpiresTime, _plugin ) == 1;
+    }
+
+    /**
+     * Record the result of the strict suspicious identities check of a validation in progress
+     *
+     * @param strKey
+     *            The key
+     * @param strSub
+     *            The FranceConnect subject of the checked identity
+     * @param bStrictSuspicious
+     *            The result of the check
+     */
+    public static void recordSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious )
+    {
+        _dao.storeSuspiciousCheck( strKey, strSub, bStrictSuspicious, _plugin );
+    }
+
+    /**
+     * Remove a batch of entries expired before a given time. The entries refreshed meanwhile are kept.
+     *
+     * @param lTime
+     *            The time
+     * @param nBatchSize
+     *            The maximum number of entries removed
+     * @return The number of entries removed
+     */
+    public static int removeExpired( long lTime, int nBatchSize )
+    {
+        List<String> listKeys = _dao.selectExpiredKeysList( lTime, nBatchSize, _plugin );
+        _dao.deleteExpiredList( listKeys, lTime, _plugin );
+
+        return listKeys.size( );
+    }
+
+    /**
+     * Count the entries
+     *
+     * @return The number of entries
+     */
+    public static int count( )
+    {
+        return _dao.count( _plugin );
+    }
+}
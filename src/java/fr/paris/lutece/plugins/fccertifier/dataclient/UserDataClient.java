@@ -37,12 +37,19 @@ import java.io.IOException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
+import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+import fr.paris.lutece.plugins.fccertifier.service.SuspiciousIdentityService;
+import fr.paris.lutece.plugins.fccertifier.service.metrics.MetricsService;
+import fr.paris.lutece.plugins.fccertifier.util.SerializationUtils;
 import fr.paris.lutece.plugins.fccertifier.web.FranceConnectCertifierApp;
 import fr.paris.lutece.plugins.oauth2.business.Token;
 import fr.paris.lutece.plugins.oauth2.dataclient.AbstractDataClient;
 import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
 import fr.paris.lutece.plugins.oauth2.service.MapperService;
+import fr.paris.lutece.portal.service.security.LuteceUser;
+import fr.paris.lutece.portal.service.security.SecurityService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.util.mvc.utils.MVCUtils;
@@ -64,8 +71,29 @@ public class UserDataClient extends AbstractDataClient
     {
         try
         {
-            UserInfo userInfo = MapperService.parse( getData( token ), UserInfo.class );
-            request.getSession( true ).setAttribute( ATTRIBUTE_USERINFO, userInfo );
+            long lStart = System.nanoTime( );
+            String strData = getData( token );
+            MetricsService.record( MetricsService.STAGE_USERINFO_FETCH, lStart, strData != null );
+
+            UserInfo userInfo = MapperService.parse( strData, UserInfo.class );
+            lStart = System.nanoTime( );
+            FcIdentity fcIdentity = new FcIdentity( userInfo );
+            MetricsService.record( MetricsService.STAGE_ENRICHMENT, lStart, true );
+            HttpSession session = request.getSession( true );
+            session.setAttribute( ATTRIBUTE_USERINFO, fcIdentity );
+
+            if ( AppLogService.isDebugEnabled( ) )
+            {
+                AppLogService.debug( "FCCertifier : FranceConnect identity {} bytes, session {} bytes", SerializationUtils.getSerializedSize( fcIdentity ),
+                        SerializationUtils.getSerializedSize( session ) );
+            }
+
+            // The duplicates search runs while the user compares the data
+            LuteceUser user = SecurityService.isAuthenticationEnable( ) ? SecurityService.getInstance( ).getRegisteredUser( request ) : null;
+            if ( user != null )
+            {
+                SuspiciousIdentityService.startCheck( user.getName( ), fcIdentity );
+            }
 
             String strRedirectUrl = getViewUrl( request, FranceConnectCertifierApp.VIEW_VALIDATE_FC_DATA );
             response.sendRedirect( strRedirectUrl );
@@ -76,6 +104,30 @@ public class UserDataClient extends AbstractDataClient
         }
     }
 
+    /**
+     * Returns the FranceConnect identity retrieved by the last callback
+     * @param request The HTTP request
+     * @return The identity or null if none
+     */
+    public static FcIdentity getFcIdentity( HttpServletRequest request )
+    {
+        HttpSession session = request.getSession( false );
+        Object userInfo = ( session != null ) ? session.getAttribute( ATTRIBUTE_USERINFO ) : null;
+
+        if ( userInfo instanceof FcIdentity )
+        {
+            return (FcIdentity) userInfo;
+        }
+        if ( userInfo instanceof UserInfo )
+        {
+            // Session created before the identity was stored enriched
+            FcIdentity fcIdentity = new FcIdentity( (UserInfo) userInfo );
+            session.setAttribute( ATTRIBUTE_USERINFO, fcIdentity );
+            return fcIdentity;
+        }
+        return null;
+    }
+
     /**
      * Build the view URL
      * @param request The HTTP request
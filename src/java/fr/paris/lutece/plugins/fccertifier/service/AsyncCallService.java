@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Runs the remote calls of the plugin in parallel, on a bounded pool. When the pool is saturated, the call is made by the calling thread.
+ */
+public final class AsyncCallService
+{
+    private static final String PROPERTY_THREADS = "fccertifier.async.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "fccertifier.async.queueSize";
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_QUEUE_SIZE = 200;
+    private static final String THREAD_NAME_PREFIX = "fccertifier-async-";
+
+    private static final ThreadPoolExecutor _executor = new ThreadPoolExecutor( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ),
+            AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ), 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) ),
+            new NamedThreadFactory( THREAD_NAME_PREFIX ), new ThreadPoolExecutor.CallerRunsPolicy( ) );
+
+    static
+    {
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Private constructor
+     */
+    private AsyncCallService( )
+    {
+    }
+
+    /**
+     * Submit a call
+     *
+     * @param <T>
+     *            the result type
+     * @param call
+     *            the call
+     * @return the future result
+     */
+    public static <T> Future<T> submit( Callable<T> call )
+    {
+        return _executor.submit( call );
+    }
+
+    /**
+     * Wait for the result of a call
+     *
+     * @param <T>
+     *            the result type
+     * @param future
+     *            the future result
+     * @param lTimeout
+     *            the maximum time to wait in milliseconds
+     * @param defaultValue
+     *            the value returned on timeout or error
+     * @param strCallName
+     *            the call name, for the logs
+     * @return the result, or the default value
+     */
+    public static <T> T get( Future<T> future, long lTimeout, T defaultValue, String strCallName )
+    {
+        try
+        {
+            return future.get( lTimeout, TimeUnit.MILLISECONDS );
+        }
+        catch( TimeoutException e )
+        {
+            future.cancel( true );
+            AppLogService.error( "FCCertifier : {} timed out after {} ms", strCallName, lTimeout );
+        }
+        catch( ExecutionException e )
+        {
+            AppLogService.error( "FCCertifier : {} failed", strCallName, e.getCause( ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Returns the number of calls running or waiting
+     *
+     * @return the number of calls
+     */
+    public static int getPendingCount( )
+    {
+        return _executor.getActiveCount( ) + _executor.getQueue( ).size( );
+    }
+
+    /**
+     * Stop the pool
+     */
+    public static void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+}
@@ -39,13 +39,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -55,6 +56,13 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+import fr.paris.lutece.plugins.fccertifier.service.cache.ExpiringCache;
+import fr.paris.lutece.plugins.fccertifier.service.cache.SingleFlight;
+import fr.paris.lutece.plugins.fccertifier.service.listener.CertifierListenerDispatcher;
+import fr.paris.lutece.plugins.fccertifier.service.metrics.MetricsService;
+import fr.paris.lutece.plugins.fccertifier.service.outbox.CertificationOutbox;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.ResilienceService;
+import fr.paris.lutece.plugins.fccertifier.util.FingerprintUtils;
 import fr.paris.lutece.plugins.identityquality.v3.web.service.IdentityQualityService;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AuthorType;
@@ -68,7 +76,6 @@ import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearc
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.IdentitySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.service.IdentityService;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
-import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
 import fr.paris.lutece.portal.service.security.LuteceUser;
 import fr.paris.lutece.portal.service.security.SecurityService;
 import fr.paris.lutece.portal.service.security.UserNotSignedException;
@@ -93,6 +100,22 @@ public class CertifierService implements Serializable
     private static final String DEFAULT_CONNECTION_ID = "1";
     private static final String DEFAULT_EMAIL = "test@test.fr";
     private static final int DEFAULT_EXPIRES_DELAY = 5;
+    private static final String BEAN_VALIDATION_INFOS_STORE = "fccertifier.validationInfosStore";
+    private static final String PROPERTY_IDENTITY_CACHE_MAX_SIZE = "fccertifier.identity.cache.maxSize";
+    private static final String PROPERTY_IDENTITY_CACHE_TTL = "fccertifier.identity.cache.timeToLive";
+    private static final int DEFAULT_IDENTITY_CACHE_MAX_SIZE = 10000;
+    private static final int DEFAULT_IDENTITY_CACHE_TTL = 60;
+    private static final String PROPERTY_DUPLICATES_CACHE_MAX_SIZE = "fccertifier.duplicates.cache.maxSize";
+    private static final String PROPERTY_DUPLICATES_CACHE_TTL = "fccertifier.duplicates.cache.timeToLive";
+    private static final String PROPERTY_DUPLICATES_CACHE_NEGATIVE_TTL = "fccertifier.duplicates.cache.negativeTimeToLive";
+    private static final int DEFAULT_DUPLICATES_CACHE_MAX_SIZE = 5000;
+    private static final int DEFAULT_DUPLICATES_CACHE_TTL = 120;
+    private static final int DEFAULT_DUPLICATES_CACHE_NEGATIVE_TTL = 5;
+    private static final String PROPERTY_IDEMPOTENCY_WINDOW = "fccertifier.validation.idempotency.window";
+    private static final int DEFAULT_IDEMPOTENCY_WINDOW = 30;
+    private static final long IDEMPOTENCY_WINDOW = AppPropertiesService.getPropertyInt( PROPERTY_IDEMPOTENCY_WINDOW, DEFAULT_IDEMPOTENCY_WINDOW ) * 1000L;
+    private static final List<String> PIVOT_ATTRIBUTE_KEYS = Arrays.asList( "birthdate", "birthplace_code", "birthcountry_code", "gender", "first_name",
+            "family_name", "preferred_username", "birthplace", "birthcountry" );
     private static final String MOCKED_USER_CONNECTION_ID = AppPropertiesService.getProperty( PROPERTY_MOCKED_CONNECTION_ID, DEFAULT_CONNECTION_ID );
     private static final String MOCKED_USER_EMAIL = AppPropertiesService.getProperty( PROPERTY_MOCKED_EMAIL, DEFAULT_EMAIL );
     private static final int EXPIRES_DELAY = AppPropertiesService.getPropertyInt( PROPERTY_EXPIRES_DELAY, DEFAULT_EXPIRES_DELAY );
@@ -106,13 +129,37 @@ public class CertifierService implements Serializable
     private static final String PROPERTY_SUSPICIOUS_LIST_RULE_NOT_STRIC = AppPropertiesService.getProperty( "mydashboard.identity.suspicious.identity.list_code_rule.not_strict",
             "RG_GEN_SuspectDoublon_09" );   
     private static final String CLIENT_CODE = AppPropertiesService.getProperty( PROPERTY_IDENTITY_SERVICE_CLIENT_CODE );
+    private static final String PROPERTY_MAX_CERTIFICATE_AGE = "fccertifier.certify.maxCertificateAge";
+    private static final int DEFAULT_MAX_CERTIFICATE_AGE = 30;
+    private static final long MAX_CERTIFICATE_AGE = AppPropertiesService.getPropertyInt( PROPERTY_MAX_CERTIFICATE_AGE, DEFAULT_MAX_CERTIFICATE_AGE ) * 86400000L;
 
-    private static Map<String, ValidationInfos> _mapValidationInfos = new ConcurrentHashMap<String, ValidationInfos>( );
+    private static IValidationInfosStore _storeValidationInfos;
+    private static IdentityService _identityService;
+    private static IdentityQualityService _identityQualityService;
+    private static final ExpiringCache<String, IdentityDto> _cacheIdentities = new ExpiringCache<>( "fccertifier.identities",
+            AppPropertiesService.getPropertyInt( PROPERTY_IDENTITY_CACHE_MAX_SIZE, DEFAULT_IDENTITY_CACHE_MAX_SIZE ),
+            AppPropertiesService.getPropertyInt( PROPERTY_IDENTITY_CACHE_TTL, DEFAULT_IDENTITY_CACHE_TTL ) * 1000L, 0 );
+    private static final ExpiringCache<String, DuplicateSearchResponse> _cacheDuplicateSearches = new ExpiringCache<>( "fccertifier.duplicateSearches",
+            AppPropertiesService.getPropertyInt( PROPERTY_DUPLICATES_CACHE_MAX_SIZE, DEFAULT_DUPLICATES_CACHE_MAX_SIZE ),
+            AppPropertiesService.getPropertyInt( PROPERTY_DUPLICATES_CACHE_TTL, DEFAULT_DUPLICATES_CACHE_TTL ) * 1000L,
+            AppPropertiesService.getPropertyInt( PROPERTY_DUPLICATES_CACHE_NEGATIVE_TTL, DEFAULT_DUPLICATES_CACHE_NEGATIVE_TTL ) * 1000L );
+    private static final SingleFlight<String, IdentityDto> _flightIdentities = new SingleFlight<>( "fccertifier.identities" );
+    // Degraded value of the identity lookups, to tell an unavailable identitystore from an unknown identity. Never cached nor returned to the callers.
+    private static final IdentityDto IDENTITY_UNAVAILABLE = new IdentityDto( );
+    private static final IdentitySearchResponse SEARCH_UNAVAILABLE = new IdentitySearchResponse( );
+    private static final SingleFlight<String, ValidationResult> _flightValidations = new SingleFlight<>( "fccertifier.validations" );
+    private static final LongAdder _lDuplicateValidations = new LongAdder( );
+    private static final Map<CertificationStatus, LongAdder> _mapCertificationCounts = new EnumMap<>( CertificationStatus.class );
     private static ObjectMapper _mapper;
     static
     {
         _mapper = new ObjectMapper( );
         _mapper.disable( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES );
+
+        for ( CertificationStatus status : CertificationStatus.values( ) )
+        {
+            _mapCertificationCounts.put( status, new LongAdder( ) );
+        }
     }
 
     /**
@@ -126,159 +173,531 @@ public class CertifierService implements Serializable
     public void startValidation( HttpServletRequest request ) throws UserNotSignedException
     {
 
-        HttpSession session = request.getSession( true );
         ValidationInfos infos = new ValidationInfos( );
         infos.setExpiresTime( getExpiresTime( ) );
         infos.setUserConnectionId( getUserConnectionId( request ) );
         infos.setUserEmail( getUserEmail( request ) );
 
-        _mapValidationInfos.put( session.getId( ), infos );
+        getValidationInfosStore( ).put( infos.getUserConnectionId( ), infos );
     }
 
     /**
-     * Validate a validation code
+     * Validate a validation code. The submissions of a same user are idempotent : the result of the validation is recorded in the validation infos
+     * and kept fccertifier.validation.idempotency.window seconds, so that the concurrent or later submissions, on any node, get it without
+     * certifying again.
      *
      * @param request
      *            The request
-     * @param userInfo
-     *            UserInfo from FranceConnect
+     * @param fcIdentity
+     *            The identity from FranceConnect
      * @return A validation result
      */
-    public ValidationResult validate( HttpServletRequest request, UserInfo userInfo )
+    public ValidationResult validate( HttpServletRequest request, FcIdentity fcIdentity )
     {
-        HttpSession session = request.getSession( );
+        String strConnectionId;
 
-        if ( session == null )
+        try
+        {
+            strConnectionId = getUserConnectionId( request );
+        }
+        catch( UserNotSignedException e )
         {
             return ValidationResult.SESSION_EXPIRED;
         }
 
-        String strKey = session.getId( );
-        ValidationInfos infos = _mapValidationInfos.get( strKey );
+        // Single flight : a concurrent submission on this node waits for the validation in progress instead of reading the store
+        return _flightValidations.get( strConnectionId, strId -> doValidate( strId, fcIdentity ) );
+    }
+
+    /**
+     * Validate the validation in progress of a user and certify its identity
+     *
+     * @param strConnectionId
+     *            The connection ID
+     * @param fcIdentity
+     *            The identity from FranceConnect
+     * @return A validation result
+     */
+    private ValidationResult doValidate( String strConnectionId, FcIdentity fcIdentity )
+    {
+        IValidationInfosStore store = getValidationInfosStore( );
+        ValidationInfos infos = store.get( strConnectionId );
 
         if ( infos == null )
         {
             return ValidationResult.SESSION_EXPIRED;
         }
 
-        _mapValidationInfos.remove( strKey );
+        if ( infos.getValidationResult( ) != null )
+        {
+            return getRecordedResult( infos );
+        }
+
+        ValidationResult result = ( infos.getExpiresTime( ) < now( ) ) ? ValidationResult.CODE_EXPIRED : ValidationResult.OK;
+        BooleanSupplier completion = ( ) -> store.complete( strConnectionId, infos, result.name( ), now( ) + IDEMPOTENCY_WINDOW );
+        boolean bCompleted;
+
+        if ( result == ValidationResult.OK )
+        {
+            infos.setFCUserInfo( fcIdentity );
+
+            // The user gets the answer once the certification is stored, the identitystore is updated asynchronously
+            bCompleted = submitCertification( store, strConnectionId, infos, completion );
+        }
+        else
+        {
+            bCompleted = completion.getAsBoolean( );
+        }
+
+        // Only the request recording the result goes on, the others get the recorded result
+        if ( !bCompleted )
+        {
+            ValidationInfos completed = store.get( strConnectionId );
+
+            return ( completed != null && completed.getValidationResult( ) != null ) ? getRecordedResult( completed ) : ValidationResult.SESSION_EXPIRED;
+        }
+
+        return result;
+    }
+
+    /**
+     * Store the certification of a validation and complete the validation in one transaction, so that a validation recorded as OK always has its
+     * certification stored
+     *
+     * @param store
+     *            The store of the validations
+     * @param strConnectionId
+     *            The connection ID
+     * @param infos
+     *            The validation infos
+     * @param completion
+     *            The completion of the validation
+     * @return false if another request has completed the validation first
+     */
+    private boolean submitCertification( IValidationInfosStore store, String strConnectionId, ValidationInfos infos, BooleanSupplier completion )
+    {
+        try
+        {
+            return CertificationOutbox.getInstance( ).submit( infos, completion );
+        }
+        catch( RuntimeException e )
+        {
+            // The database rolled the completion back, but a store outside of the database keeps it : the validation is put back in progress
+            try
+            {
+                ValidationInfos completed = store.get( strConnectionId );
+
+                if ( completed != null && completed.getValidationResult( ) != null )
+                {
+                    store.put( strConnectionId, infos );
+                }
+            }
+            catch( RuntimeException eRestore )
+            {
+                e.addSuppressed( eRestore );
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the result recorded by a previous submission, unless it is no longer kept
+     *
+     * @param infos
+     *            The completed validation infos
+     * @return The validation result
+     */
+    private static ValidationResult getRecordedResult( ValidationInfos infos )
+    {
+        if ( infos.getExpiresTime( ) < now( ) )
+        {
+            return ValidationResult.SESSION_EXPIRED;
+        }
+
+        _lDuplicateValidations.increment( );
+
+        return ValidationResult.valueOf( infos.getValidationResult( ) );
+    }
+
+    /**
+     * Returns the number of submissions answered with the result of a concurrent or recent validation of the same user
+     *
+     * @return the count
+     */
+    public static long getDuplicateValidationCount( )
+    {
+        return _lDuplicateValidations.sum( ) + _flightValidations.getCoalescedCount( );
+    }
+
+    /**
+     * Returns the store of the validations in progress
+     *
+     * @return the store
+     */
+    public static IValidationInfosStore getValidationInfosStore( )
+    {
+        if ( _storeValidationInfos == null )
+        {
+            _storeValidationInfos = SpringContextService.getBean( BEAN_VALIDATION_INFOS_STORE );
+        }
+
+        return _storeValidationInfos;
+    }
 
-        infos.setFCUserInfo( new FcIdentity( userInfo ) );
+    /**
+     * Returns the identitystore service
+     *
+     * @return the service
+     */
+    public static IdentityService getIdentityService( )
+    {
+        if ( _identityService == null )
+        {
+            _identityService = SpringContextService.getBean( BEAN_IDENTITYSTORE_SERVICE );
+        }
 
-        certify( infos );
+        return _identityService;
+    }
 
-        return ValidationResult.OK;
+    /**
+     * Returns the identityquality service
+     *
+     * @return the service
+     */
+    public static IdentityQualityService getIdentityQualityService( )
+    {
+        if ( _identityQualityService == null )
+        {
+            _identityQualityService = SpringContextService.getBean( BEAN_IDENTITY_QUALITY_SERVICE );
+        }
+
+        return _identityQualityService;
     }
 
     /**
-     * Certify attributes
+     * Certify attributes. The listeners are notified when the identity is certified, whether attributes have been sent or were already certified.
      * @param infos Validation infos
+     * @return the certification status
      */
-    public void certify( ValidationInfos infos )
+    public CertificationStatus certify( ValidationInfos infos )
     {
-        IdentityService identityService = SpringContextService.getBean( BEAN_IDENTITYSTORE_SERVICE );
+        CertificationStatus status;
 
-        IdentityDto identityStore  =getIdentity(infos.getUserConnectionId());
+        IdentityService identityService = getIdentityService( );
+
+        IdentityDto identityStore  =lookupPivotIdentity(infos.getUserConnectionId());
         
+        if ( identityStore == IDENTITY_UNAVAILABLE )
+        {
+            AppLogService.error( "FCCertifier : identitystore unavailable, identity of {} not certified", infos.getUserConnectionId( ) );
+            status = CertificationStatus.UNAVAILABLE;
+        }
+        else
         if(identityStore!=null)
             
         {
         
-        
-            IdentityChangeRequest identityChangeRequest = new IdentityChangeRequest( );
-    
-            IdentityDto identity = new IdentityDto( );
-            identity.setConnectionId(identityStore.getConnectionId());
-            identity.setLastUpdateDate(identityStore.getLastUpdateDate());
-    
             List<AttributeDto> listCertifiedAttribute = new ArrayList<>();
                     
             FcIdentity user = infos.getFCUserInfo( );
             
             Date date = new Date( );
             
-          
-            addCertificateAttribute("birthdate",user.getIdsBirthDate( ),date,listCertifiedAttribute );
-            addCertificateAttribute("birthplace_code", user.getBirthPlace( ),date ,listCertifiedAttribute );
-            addCertificateAttribute("birthcountry_code",  user.getBirthCountry(),date,listCertifiedAttribute );
-            addCertificateAttribute("gender",  user.getIdsGender( ),date ,listCertifiedAttribute );
-            addCertificateAttribute("first_name", user.getGivenName( ),date ,listCertifiedAttribute );
-            addCertificateAttribute("family_name", user.getFamilyName( ) ,date ,listCertifiedAttribute );
-            addCertificateAttribute("preferred_username", user.getPreferredUsername() ,date ,listCertifiedAttribute );
-          
-            identity.setAttributes( listCertifiedAttribute );
-    
-            
-            RequestAuthor author = new RequestAuthor( );
-            author.setName( CLIENT_CODE );
-            author.setType( AuthorType.application );
-           
-            identityChangeRequest.setIdentity( identity );
-           
-            
-            try
-            {   
-                
-                final IdentityChangeResponse response= identityService.updateIdentity( identityStore.getCustomerId(), identityChangeRequest, CLIENT_CODE,author);
-                if (response == null || (!ResponseStatusType.SUCCESS.equals(response.getStatus().getType()) && !ResponseStatusType.INCOMPLETE_SUCCESS.equals(response.getStatus().getType()))   )
-                  {
-                      AppLogService.error( "Error when  updating the identity for connectionId {} the idantity change status is {}, the identity response is {} ", identity.getConnectionId( ), response!=null? response.getStatus().getMessage():"",printJsonObjectAsString(response));
-                      
-                      throw new IdentityStoreException(response!=null ? response.getStatus().getType().name():"");
-                  }
-                
-            } catch ( AppException | IdentityStoreException e )
+            // Only the attributes whose value, certifier or certificate age differ from the identitystore copy are sent
+            Map<String, AttributeDto> mapCurrentAttributes = getAttributesByKey( identityStore );
+            addChangedAttribute( "birthdate", user.getIdsBirthDate( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "birthplace_code", user.getBirthPlace( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "birthcountry_code", user.getBirthCountry( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "gender", user.getIdsGender( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "first_name", user.getGivenName( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "family_name", user.getFamilyName( ), date, mapCurrentAttributes, listCertifiedAttribute );
+            addChangedAttribute( "preferred_username", user.getPreferredUsername( ), date, mapCurrentAttributes, listCertifiedAttribute );
+
+            if ( listCertifiedAttribute.isEmpty( ) )
             {
-                AppLogService.error( "Error updating identity for {}", infos.getUserConnectionId( ) ,e.getMessage( ));
+                AppLogService.debug( "FCCertifier : identity of {} already certified, no update sent", infos.getUserConnectionId( ) );
+                status = CertificationStatus.UNCHANGED;
             }
-            //get Certifier Listener
-            List<ICertifierListener> listCertifyListener=SpringContextService.getBeansOfType(ICertifierListener.class);
-            if(listCertifyListener!=null)
+            else
             {
-                //Notify listener for new certify user
-                listCertifyListener.forEach(x->x.addCertifiedUser(infos));
-                
+                status = updateIdentity( identityService, identityStore, listCertifiedAttribute, infos.getUserConnectionId( ) );
+            }
+
+            //Notify listeners for new certify user, once the identitystore holds the certified attributes. A recertification whose attributes
+            //are unchanged is notified too, only the identitystore update is skipped.
+            if ( status == CertificationStatus.CERTIFIED || status == CertificationStatus.UNCHANGED )
+            {
+                CertifierListenerDispatcher.getInstance( ).notifyCertifiedUser( infos );
             }
            }
         else
         {
             AppLogService.error( "error when upadating identity information for connetion Id {}, no Identity found", infos.getUserConnectionId( ) );
-            
+            status = CertificationStatus.NOT_FOUND;
         }
         
+        _mapCertificationCounts.get( status ).increment( );
+
+        return status;
     }
 
+    /**
+     * Send the certified attributes to the identitystore
+     * @param identityService The identitystore service
+     * @param identityStore The current identity
+     * @param listCertifiedAttribute The attributes to certify
+     * @param strConnectionId The connection ID
+     * @return CERTIFIED or FAILED
+     */
+    private CertificationStatus updateIdentity( IdentityService identityService, IdentityDto identityStore, List<AttributeDto> listCertifiedAttribute,
+            String strConnectionId )
+    {
+        CertificationStatus status = CertificationStatus.CERTIFIED;
+
+        IdentityChangeRequest identityChangeRequest = new IdentityChangeRequest( );
+
+        IdentityDto identity = new IdentityDto( );
+        identity.setConnectionId( identityStore.getConnectionId( ) );
+        identity.setLastUpdateDate( identityStore.getLastUpdateDate( ) );
+        identity.setAttributes( listCertifiedAttribute );
+
+        RequestAuthor author = new RequestAuthor( );
+        author.setName( CLIENT_CODE );
+        author.setType( AuthorType.application );
+
+        identityChangeRequest.setIdentity( identity );
+
+        try
+        {
+            // A degraded (null) response is reported as a failed update
+            final IdentityChangeResponse response = ResilienceService.identityStore( ).call(
+                    ( ) -> identityService.updateIdentity( identityStore.getCustomerId( ), identityChangeRequest, CLIENT_CODE, author ), null, MetricsService.STAGE_UPDATE_IDENTITY );
+            if (response == null || (!ResponseStatusType.SUCCESS.equals(response.getStatus().getType()) && !ResponseStatusType.INCOMPLETE_SUCCESS.equals(response.getStatus().getType()))   )
+              {
+                  AppLogService.error( "Error when  updating the identity for connectionId {} the idantity change status is {}, the identity response is {} ", identity.getConnectionId( ), response!=null? response.getStatus().getMessage():"",printJsonObjectAsString(response));
+                  
+                  throw new IdentityStoreException(response!=null ? response.getStatus().getType().name():"");
+              }
+            
+        } catch ( AppException | IdentityStoreException e )
+        {
+            AppLogService.error( "Error updating identity for {}", strConnectionId ,e.getMessage( ));
+            status = CertificationStatus.FAILED;
+        }
+        finally
+        {
+            // The lastUpdateDate has changed, or the cached one may be stale
+            invalidateIdentity( strConnectionId );
+        }
+
+        return status;
+    }
 
     /**
-     * Get the Identity DTO from a connection ID
+     * Index the attributes of an identity by key
+     * @param identity The identity
+     * @return The attributes by key
+     */
+    private static Map<String, AttributeDto> getAttributesByKey( IdentityDto identity )
+    {
+        Map<String, AttributeDto> mapAttributes = new HashMap<>( );
+
+        if ( identity.getAttributes( ) != null )
+        {
+            for ( AttributeDto attribute : identity.getAttributes( ) )
+            {
+                mapAttributes.put( attribute.getKey( ), attribute );
+            }
+        }
+
+        return mapAttributes;
+    }
+
+    /**
+     * Add a certified attribute unless the identity already holds the same value certified by FranceConnect less than
+     * fccertifier.certify.maxCertificateAge days ago
+     * @param strKey The attribute key
+     * @param strValue The certified value
+     * @param certDate The certification date
+     * @param mapCurrentAttributes The attributes of the identity
+     * @param listCertifiedAttribute The attributes to send
+     */
+    private void addChangedAttribute( String strKey, String strValue, Date certDate, Map<String, AttributeDto> mapCurrentAttributes,
+            List<AttributeDto> listCertifiedAttribute )
+    {
+        AttributeDto current = mapCurrentAttributes.get( strKey );
+
+        if ( current == null || !StringUtils.equals( current.getValue( ), strValue ) || !CERTIFIER_CODE.equals( current.getCertifier( ) )
+                || current.getCertificationDate( ) == null || certDate.getTime( ) - current.getCertificationDate( ).getTime( ) > MAX_CERTIFICATE_AGE )
+        {
+            addCertificateAttribute( strKey, strValue, certDate, listCertifiedAttribute );
+        }
+    }
+
+    /**
+     * Returns the number of certifications ended with a given status
+     * @param status The status
+     * @return The count
+     */
+    public static long getCertificationCount( CertificationStatus status )
+    {
+        return _mapCertificationCounts.get( status ).sum( );
+    }
+
+
+    /**
+     * Get the Identity DTO from a connection ID. Concurrent calls for the same connection ID share a single identitystore request, so the returned
+     * identity must not be modified.
      * @param strConnectionId The connection ID
      * @return The identity
      */
     public static IdentityDto getIdentity( String strConnectionId )
     {
-        IdentityService identityService = SpringContextService.getBean( BEAN_IDENTITYSTORE_SERVICE );
+        IdentityDto identity = _flightIdentities.get( strConnectionId, CertifierService::fetchIdentity );
+
+        return ( identity != IDENTITY_UNAVAILABLE ) ? identity : null;
+    }
+
+    /**
+     * Fetch the Identity DTO of a connection ID from the identitystore
+     * @param strConnectionId The connection ID
+     * @return The identity, null if unknown, or IDENTITY_UNAVAILABLE if the identitystore did not answer
+     */
+    private static IdentityDto fetchIdentity( String strConnectionId )
+    {
+        IdentityService identityService = getIdentityService( );
 
         IdentitySearchResponse identitySearchResponse;
         RequestAuthor  requestAuthor = new RequestAuthor(  );
          requestAuthor.setName( CLIENT_CODE );
         requestAuthor.setType( AuthorType.owner );
         
-        try
+        // Degraded behaviour : no identity, the user is shown an empty profile and the certification is retried later
+        identitySearchResponse = ResilienceService.identityStore( ).call(
+                ( ) -> identityService.getIdentityByConnectionId( strConnectionId, CLIENT_CODE, requestAuthor ), SEARCH_UNAVAILABLE, MetricsService.STAGE_GET_IDENTITY );
+
+        if ( identitySearchResponse == SEARCH_UNAVAILABLE )
         {
-            identitySearchResponse = identityService.getIdentityByConnectionId( strConnectionId, CLIENT_CODE , requestAuthor );
-                        
-            if(  identitySearchResponse != null && !CollectionUtils.isEmpty( identitySearchResponse.getIdentities( ) ) )
-            {
-               return identitySearchResponse.getIdentities( ).get( 0 );
-            }
-        } catch ( AppException | IdentityStoreException e )
+            return IDENTITY_UNAVAILABLE;
+        }
+
+        if(  identitySearchResponse != null && !CollectionUtils.isEmpty( identitySearchResponse.getIdentities( ) ) )
         {
-            AppLogService.error( "Error to get identity by connection id {}", e.getMessage( ), strConnectionId );
+           return identitySearchResponse.getIdentities( ).get( 0 );
         }
         
         return null;
     }
 
+    /**
+     * Get the pivot attributes of an identity from a connection ID. The result is cached for a short time and must not be modified.
+     * @param strConnectionId The connection ID
+     * @return The identity restricted to its connection ID, customer ID, last update date and pivot attributes
+     */
+    public static IdentityDto getPivotIdentity( String strConnectionId )
+    {
+        IdentityDto identity = lookupPivotIdentity( strConnectionId );
+
+        return ( identity != IDENTITY_UNAVAILABLE ) ? identity : null;
+    }
+
+    /**
+     * Get the pivot attributes of an identity from a connection ID, telling an unavailable identitystore from an unknown identity
+     * @param strConnectionId The connection ID
+     * @return The pivot identity, null if unknown, or IDENTITY_UNAVAILABLE if the identitystore did not answer
+     */
+    private static IdentityDto lookupPivotIdentity( String strConnectionId )
+    {
+        IdentityDto identity = _cacheIdentities.get( strConnectionId );
+
+        if ( identity == null )
+        {
+            identity = _flightIdentities.get( strConnectionId, CertifierService::fetchIdentity );
+
+            if ( identity == IDENTITY_UNAVAILABLE )
+            {
+                return identity;
+            }
+            identity = toPivotIdentity( identity );
+            _cacheIdentities.put( strConnectionId, identity );
+        }
+
+        return identity;
+    }
+
+    /**
+     * Remove the cached identity of a connection ID
+     * @param strConnectionId The connection ID
+     */
+    public static void invalidateIdentity( String strConnectionId )
+    {
+        if ( strConnectionId != null )
+        {
+            _cacheIdentities.remove( strConnectionId );
+        }
+    }
+
+    /**
+     * Returns the cache of the pivot identities
+     * @return The cache
+     */
+    public static ExpiringCache<String, IdentityDto> getIdentitiesCache( )
+    {
+        return _cacheIdentities;
+    }
+
+    /**
+     * Returns the coalescing of the identity lookups
+     * @return The single flight
+     */
+    public static SingleFlight<String, IdentityDto> getIdentitiesSingleFlight( )
+    {
+        return _flightIdentities;
+    }
+
+    /**
+     * Returns the cache of the duplicate searches
+     * @return The cache
+     */
+    public static ExpiringCache<String, DuplicateSearchResponse> getDuplicateSearchesCache( )
+    {
+        return _cacheDuplicateSearches;
+    }
+
+    /**
+     * Project an identity on its pivot attributes
+     * @param identity The identity
+     * @return The projected identity or null
+     */
+    private static IdentityDto toPivotIdentity( IdentityDto identity )
+    {
+        if ( identity == null )
+        {
+            return null;
+        }
+
+        IdentityDto pivotIdentity = new IdentityDto( );
+        pivotIdentity.setConnectionId( identity.getConnectionId( ) );
+        pivotIdentity.setCustomerId( identity.getCustomerId( ) );
+        pivotIdentity.setLastUpdateDate( identity.getLastUpdateDate( ) );
+
+        List<AttributeDto> listAttributes = new ArrayList<>( PIVOT_ATTRIBUTE_KEYS.size( ) );
+
+        if ( identity.getAttributes( ) != null )
+        {
+            for ( AttributeDto attribute : identity.getAttributes( ) )
+            {
+                if ( PIVOT_ATTRIBUTE_KEYS.contains( attribute.getKey( ) ) )
+                {
+                    listAttributes.add( attribute );
+                }
+            }
+        }
+        pivotIdentity.setAttributes( listAttributes );
+
+        return pivotIdentity;
+    }
+
     /**
      * returns the user connection ID
      *
@@ -388,6 +807,15 @@ public class CertifierService implements Serializable
         }
 
     }
+
+    /**
+     * Enumeration of all certification statuses : NOT_FOUND when the identitystore has no identity for the user, UNAVAILABLE when it did not
+     * answer (timeout, error or open circuit)
+     */
+    public enum CertificationStatus
+    {
+        CERTIFIED, UNCHANGED, NOT_FOUND, UNAVAILABLE, FAILED
+    }
     
     
     private  void  addCertificateAttribute( String strKey,String strValue,Date certDate,List<AttributeDto> listCertifiedAttribute)
@@ -427,35 +855,77 @@ public class CertifierService implements Serializable
     {     
         if( PROPERTY_SUSPICIOUS_IDENTITY_ACTIVATION_INDICATEUR )
         {
-            IdentityQualityService identityQualityService = SpringContextService.getBean( BEAN_IDENTITY_QUALITY_SERVICE );
-            
-            RequestAuthor author = new RequestAuthor( );
-            author.setName( CLIENT_CODE );
-            author.setType( AuthorType.application );
-            
             DuplicateSearchRequest duplicateSearchRequest = new DuplicateSearchRequest( );
             duplicateSearchRequest.setRuleCodes( listRules );
                     
             initAttributeSuspiciousSearchRequest( duplicateSearchRequest, fcIdentity );
                    
-            try
-            {
-                return identityQualityService.searchDuplicates( duplicateSearchRequest, CLIENT_CODE, author );           
-            }
-            catch ( IdentityStoreException | AppException ex )
-            {
-                AppLogService.info( "Error getting Search duplicate identities ", ex );
-            }
+            // Reloads, recertifications and retries send the same request again
+            String strFingerprint = FingerprintUtils.fingerprint( duplicateSearchRequest.getAttributes( ), listRules );
+
+            // Degraded behaviour : no duplicate found, as on any other search error
+            return _cacheDuplicateSearches.get( strFingerprint, k -> searchDuplicates( duplicateSearchRequest ) );
         }
         return null;
     }
+
+    /**
+     * Search the duplicates of an identity, without cache and whatever the activation indicator. Used by the bulk screening.
+     * @param fcIdentity the identity
+     * @param listRules the rules codes
+     * @return the response, or null on error
+     */
+    public static DuplicateSearchResponse searchDuplicates( FcIdentity fcIdentity, List<String> listRules )
+    {
+        DuplicateSearchRequest duplicateSearchRequest = new DuplicateSearchRequest( );
+        duplicateSearchRequest.setRuleCodes( listRules );
+
+        initAttributeSuspiciousSearchRequest( duplicateSearchRequest, fcIdentity );
+
+        return searchDuplicates( duplicateSearchRequest );
+    }
+
+    /**
+     * Call identityquality to search duplicates
+     * @param duplicateSearchRequest the request
+     * @return the response, or null on error
+     */
+    private static DuplicateSearchResponse searchDuplicates( DuplicateSearchRequest duplicateSearchRequest )
+    {
+        IdentityQualityService identityQualityService = getIdentityQualityService( );
+
+        RequestAuthor author = new RequestAuthor( );
+        author.setName( CLIENT_CODE );
+        author.setType( AuthorType.application );
+
+        return ResilienceService.identityQuality( ).call( ( ) -> identityQualityService.searchDuplicates( duplicateSearchRequest, CLIENT_CODE, author ), null,
+                MetricsService.STAGE_SEARCH_DUPLICATES );
+    }
+
+    /**
+     * Returns the codes of the strict duplicates rules
+     * @return the rules codes
+     */
+    public static List<String> getStrictRules( )
+    {
+        return Arrays.asList( PROPERTY_SUSPICIOUS_LIST_RULE_STRIC.split( ";" ) );
+    }
+
+    /**
+     * Returns the codes of the not strict duplicates rules
+     * @return the rules codes
+     */
+    public static List<String> getNotStrictRules( )
+    {
+        return Arrays.asList( PROPERTY_SUSPICIOUS_LIST_RULE_NOT_STRIC.split( ";" ) );
+    }
     
     /**
      * Init attribute for suspicious search request
      * @param duplicateSearchRequest
      * @param fcIdentity
      */
-    private static void initAttributeSuspiciousSearchRequest ( DuplicateSearchRequest duplicateSearchRequest, FcIdentity fcIdentity )
+    static void initAttributeSuspiciousSearchRequest ( DuplicateSearchRequest duplicateSearchRequest, FcIdentity fcIdentity )
     {
         Map<String, String> mapAttributes = new HashMap<>( );
         
@@ -505,9 +975,30 @@ public class CertifierService implements Serializable
      */
     public static boolean existStrictSuspiciousIdentities( FcIdentity fcIdentity, String strConnectionId )
     {
-        DuplicateSearchResponse suspiciousSearchResponse = getSuspiciousIdentitiesAPI( fcIdentity, Arrays.asList( PROPERTY_SUSPICIOUS_LIST_RULE_NOT_STRIC.split( ";" ) ) ) ;
+        return Boolean.TRUE.equals( findStrictSuspiciousIdentities( fcIdentity, strConnectionId ) );
+    }
+
+    /**
+     * Tell whether strict suspicious identities exist, or that identityquality did not answer
+     * @param fcIdentity the identity
+     * @param strConnectionId the connection ID
+     * @return true or false, or null if identityquality did not answer (timeout, error or open circuit)
+     */
+    public static Boolean findStrictSuspiciousIdentities( FcIdentity fcIdentity, String strConnectionId )
+    {
+        if ( !PROPERTY_SUSPICIOUS_IDENTITY_ACTIVATION_INDICATEUR )
+        {
+            return Boolean.FALSE;
+        }
+
+        DuplicateSearchResponse suspiciousSearchResponse = getSuspiciousIdentitiesAPI( fcIdentity, getNotStrictRules( ) ) ;
         
-        if( suspiciousSearchResponse != null && suspiciousSearchResponse.getStatus( ) != null && suspiciousSearchResponse.getStatus( ).getType( ).equals( ResponseStatusType.OK ) &&
+        if ( suspiciousSearchResponse == null )
+        {
+            return null;
+        }
+
+        if( suspiciousSearchResponse.getStatus( ) != null && suspiciousSearchResponse.getStatus( ).getType( ).equals( ResponseStatusType.OK ) &&
                 CollectionUtils.isNotEmpty( suspiciousSearchResponse.getIdentities( ) ) && StringUtils.isNotEmpty( strConnectionId ) )
         {
             for( IdentityDto identity : suspiciousSearchResponse.getIdentities( ) )
@@ -515,11 +1006,11 @@ public class CertifierService implements Serializable
                 if( StringUtils.isEmpty( identity.getConnectionId( ) ) 
                         || ( StringUtils.isNotEmpty( identity.getConnectionId( ) ) && !identity.getConnectionId( ).equalsIgnoreCase( strConnectionId ) ) )
                 {
-                    return true;
+                    return Boolean.TRUE;
                 }
             }              
         }
-        return false;
+        return Boolean.FALSE;
     }
     
     /**
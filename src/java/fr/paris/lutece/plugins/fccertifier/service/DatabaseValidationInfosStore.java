@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.fccertifier.business.ValidationInfosHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Store of the validation infos in the plugin database, shared by all the nodes of a cluster. The capacity is not bounded : expired entries are purged
+ * in batches by the sweep.
+ */
+public class DatabaseValidationInfosStore implements IValidationInfosStore
+{
+    private static final String PROPERTY_GRACE_PERIOD = "fccertifier.validationInfos.gracePeriod";
+    private static final String PROPERTY_PURGE_BATCH_SIZE = "fccertifier.validationInfos.purgeBatchSize";
+    private static final int DEFAULT_GRACE_PERIOD = 300;
+    private static final int DEFAULT_PURGE_BATCH_SIZE = 500;
+
+    private final long _lGracePeriod;
+    private final int _nPurgeBatchSize;
+    private final AtomicLong _lExpirations = new AtomicLong( );
+
+    /**
+     * Constructor using the plugin properties
+     */
+    public DatabaseValidationInfosStore( )
+    {
+        _lGracePeriod = AppPropertiesService.getPropertyInt( PROPERTY_GRACE_PERIOD, DEFAULT_GRACE_PERIOD ) * 1000L;
+        _nPurgeBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_PURGE_BATCH_SIZE, DEFAULT_PURGE_BATCH_SIZE );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void put( String strKey, ValidationInfos infos )
+    {
+        ValidationInfosHome.replace( strKey, infos );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ValidationInfos get( String strKey )
+    {
+        return ValidationInfosHome.findByKey( strKey );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean complete( String strKey, ValidationInfos infos, String strResult, long lExpiresTime )
+    {
+        return infos.getValidationResult( ) == null && ValidationInfosHome.complete( strKey, infos.getExpiresTime( ), strResult, lExpiresTime );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void recordSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious )
+    {
+        ValidationInfosHome.recordSuspiciousCheck( strKey, strSub, bStrictSuspicious );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int sweep( )
+    {
+        long lTime = System.currentTimeMillis( ) - _lGracePeriod;
+        int nPurged = 0;
+        int nBatch;
+
+        do
+        {
+            nBatch = ValidationInfosHome.removeExpired( lTime, _nPurgeBatchSize );
+            nPurged += nBatch;
+        }
+        while ( nBatch == _nPurgeBatchSize );
+
+        _lExpirations.addAndGet( nPurged );
+
+        return nPurged;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int size( )
+    {
+        return ValidationInfosHome.count( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCapacity( )
+    {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getEvictionCount( )
+    {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getExpirationCount( )
+    {
+        return _lExpirations.get( );
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.fccertifier.service.listener.CertifierListenerDispatcher;
+import fr.paris.lutece.plugins.fccertifier.service.outbox.CertificationOutbox;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.CircuitBreaker;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.ResilienceService;
+import fr.paris.lutece.plugins.fccertifier.util.InseeUtils;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
+import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * FranceConnect certifier plugin. At startup, the reference data, services and bean handles are loaded in a background thread, so that the first
+ * users don't pay for them; the plugin is ready once this warm-up is over, and degraded while the identitystore circuit is open. At shutdown, the
+ * pending work is completed and the plugin threads are stopped.
+ */
+public class FcCertifierPlugin extends PluginDefaultImplementation
+{
+    public static final String PLUGIN_NAME = "fccertifier";
+    private static final String PROPERTY_WARMUP_ENABLED = "fccertifier.warmup.enabled";
+    private static final String PROPERTY_SHUTDOWN_TIMEOUT = "fccertifier.shutdown.timeout";
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 10000;
+    private static final String THREAD_NAME_PREFIX = "fccertifier-warmup-";
+    private static final String CHECK_OK = "OK";
+    private static final String CHECK_FAILED = "FAILED";
+    private static final String CHECK_BEANS = "beans";
+    private static final String CHECK_SERVICES = "services";
+    private static final String CHECK_INSEE_INDEX = "inseeIndex";
+    private static final String CHECK_IDENTITYSTORE = "identitystore";
+
+    private static final Map<String, String> _mapChecks = Collections.synchronizedMap( new LinkedHashMap<>( ) );
+    private static volatile Readiness _readiness = Readiness.STARTING;
+
+    /**
+     * Readiness of the plugin
+     */
+    public enum Readiness
+    {
+        /** The warm-up is in progress */
+        STARTING,
+        /** The warm-up is over */
+        READY,
+        /** The warm-up is over but some checks failed : the plugin works with its fallbacks */
+        DEGRADED,
+        /** The plugin is stopping */
+        STOPPING;
+
+        /**
+         * Tells whether the plugin can serve requests
+         *
+         * @return true if ready or degraded
+         */
+        public boolean isServing( )
+        {
+            return this == READY || this == DEGRADED;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void init( )
+    {
+        ShutdownServiceManager.registerShutdownService( new FcCertifierShutdownService( ) );
+
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_WARMUP_ENABLED, true ) )
+        {
+            new NamedThreadFactory( THREAD_NAME_PREFIX ).newThread( FcCertifierPlugin::warmUp ).start( );
+        }
+        else
+        {
+            _readiness = Readiness.READY;
+        }
+    }
+
+    /**
+     * Returns the readiness of the plugin
+     *
+     * @return the readiness
+     */
+    public static Readiness getReadiness( )
+    {
+        Readiness readiness = _readiness;
+
+        if ( readiness == Readiness.READY && !isIdentityStoreAvailable( ) )
+        {
+            return Readiness.DEGRADED;
+        }
+
+        return readiness;
+    }
+
+    /**
+     * Returns the result of the warm-up checks, in their order of execution, then the current state of the identitystore
+     *
+     * @return the status of each check
+     */
+    public static Map<String, String> getChecks( )
+    {
+        Map<String, String> mapChecks;
+
+        synchronized( _mapChecks )
+        {
+            mapChecks = new LinkedHashMap<>( _mapChecks );
+        }
+        mapChecks.put( CHECK_IDENTITYSTORE, isIdentityStoreAvailable( ) ? CHECK_OK : CHECK_FAILED );
+
+        return mapChecks;
+    }
+
+    /**
+     * Tells whether the identitystore answers, from the circuit breaker fed by the real calls : no call is sent for the check
+     *
+     * @return false while the identitystore circuit is open
+     */
+    private static boolean isIdentityStoreAvailable( )
+    {
+        return ResilienceService.identityStore( ).getState( ) != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Warm the plugin up
+     */
+    private static void warmUp( )
+    {
+        long lStart = System.currentTimeMillis( );
+
+        // Bean handles : a missing bean is reported here instead of failing the first request
+        boolean bOk = check( CHECK_BEANS, ( ) -> {
+            CertifierService.getValidationInfosStore( );
+            CertifierService.getIdentityService( );
+            CertifierService.getIdentityQualityService( );
+            InseeUtils.getGeoCodeService( );
+        } );
+
+        // Services started at first use : properties, caches, pools and circuit breakers
+        bOk &= check( CHECK_SERVICES, ( ) -> {
+            ResilienceService.getGuards( );
+            AsyncCallService.getPendingCount( );
+            CertifierListenerDispatcher.getInstance( );
+            CertificationOutbox.getInstance( );
+        } );
+
+        // The reference tables are loaded from the INSEE files first if needed
+        bOk &= check( CHECK_INSEE_INDEX, ( ) -> {
+            InseeReferenceLoader.loadOnStartup( );
+
+            if ( InseeReferenceService.getIndex( ).getCommunesCount( ) == 0 )
+            {
+                throw new IllegalStateException( "Empty INSEE reference index" );
+            }
+        } );
+
+        if ( _readiness == Readiness.STARTING )
+        {
+            _readiness = bOk ? Readiness.READY : Readiness.DEGRADED;
+        }
+        AppLogService.info( "FCCertifier : warm-up done in {} ms, plugin {} {}", System.currentTimeMillis( ) - lStart, getReadiness( ), getChecks( ) );
+    }
+
+    /**
+     * Run a warm-up step
+     *
+     * @param strName
+     *            the check name
+     * @param step
+     *            the step
+     * @return true if the step succeeded
+     */
+    private static boolean check( String strName, Runnable step )
+    {
+        try
+        {
+            step.run( );
+            _mapChecks.put( strName, CHECK_OK );
+
+            return true;
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "FCCertifier : warm-up step {} failed", strName, e );
+            _mapChecks.put( strName, CHECK_FAILED );
+
+            return false;
+        }
+    }
+
+    /**
+     * Stop the plugin threads, once the work in progress is done
+     */
+    private static final class FcCertifierShutdownService implements ShutdownService
+    {
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public String getName( )
+        {
+            return PLUGIN_NAME;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void process( )
+        {
+            _readiness = Readiness.STOPPING;
+
+            long lTimeout = AppPropertiesService.getPropertyInt( PROPERTY_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT );
+
+            // The outbox first : its workers certify and notify the listeners. The intents not applied stay in the database.
+            CertificationOutbox.getInstance( ).shutdown( lTimeout );
+            CertifierListenerDispatcher.getInstance( ).shutdown( lTimeout );
+            AsyncCallService.shutdown( );
+            ResilienceService.shutdown( );
+            AppLogService.info( "FCCertifier : plugin stopped" );
+        }
+    }
+}
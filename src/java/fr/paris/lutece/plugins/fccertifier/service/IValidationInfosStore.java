@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+/**
+ * Storage of the validation infos of the users in progress, between the start of the validation and the certification
+ */
+public interface IValidationInfosStore
+{
+    /**
+     * Store the validation infos of a key, replacing any previous one
+     *
+     * @param strKey
+     *            the key
+     * @param infos
+     *            the validation infos
+     */
+    void put( String strKey, ValidationInfos infos );
+
+    /**
+     * Returns the validation infos of a key
+     *
+     * @param strKey
+     *            the key
+     * @return the validation infos or null if not found
+     */
+    ValidationInfos get( String strKey );
+
+    /**
+     * Record the result of the validation of an entry, unless the entry has been completed by another request or replaced since it was read. The
+     * completed entry is kept until its new expiration time, so that the later submissions of the user, on any node, get the same result.
+     *
+     * @param strKey
+     *            the key
+     * @param infos
+     *            the entry read from the store
+     * @param strResult
+     *            the validation result
+     * @param lExpiresTime
+     *            the time until which the result is kept
+     * @return true if the result has been recorded by this call
+     */
+    boolean complete( String strKey, ValidationInfos infos, String strResult, long lExpiresTime );
+
+    /**
+     * Record the result of the strict suspicious identities check of an entry in progress, so that the request asking for the certification gets it
+     * on any node. Nothing is recorded if the key has no entry in progress.
+     *
+     * @param strKey
+     *            the key
+     * @param strSub
+     *            the FranceConnect subject of the checked identity
+     * @param bStrictSuspicious
+     *            the result of the check
+     */
+    void recordSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious );
+
+    /**
+     * Purge the expired entries
+     *
+     * @return the number of purged entries
+     */
+    int sweep( );
+
+    /**
+     * Returns the number of entries
+     *
+     * @return the size
+     */
+    int size( );
+
+    /**
+     * Returns the maximum number of entries
+     *
+     * @return the capacity, or -1 if unbounded
+     */
+    int getCapacity( );
+
+    /**
+     * Returns the number of entries evicted because the store was full
+     *
+     * @return the evictions count
+     */
+    long getEvictionCount( );
+
+    /**
+     * Returns the number of expired entries purged
+     *
+     * @return the expirations count
+     */
+    long getExpirationCount( );
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.fccertifier.business.InseeReference;
+
+/**
+ * Immutable in-memory index of the INSEE reference tables. A code may have several labels over time (merged or renamed communes), each one with its own
+ * validity period.
+ */
+public final class InseeReferenceIndex
+{
+    private static final String PERIOD_CURRENT = "current";
+    private static final String PERIOD_SEPARATOR = "..";
+    private static final InseeReferenceIndex EMPTY = new InseeReferenceIndex( Collections.<String, Period [ ]> emptyMap( ),
+            Collections.<String, Period [ ]> emptyMap( ) );
+
+    private final Map<String, Period [ ]> _mapCommunes;
+    private final Map<String, Period [ ]> _mapCountries;
+
+    /**
+     * Constructor
+     *
+     * @param mapCommunes
+     *            the communes periods by code
+     * @param mapCountries
+     *            the countries periods by code
+     */
+    private InseeReferenceIndex( Map<String, Period [ ]> mapCommunes, Map<String, Period [ ]> mapCountries )
+    {
+        _mapCommunes = mapCommunes;
+        _mapCountries = mapCountries;
+    }
+
+    /**
+     * Returns an index containing no data
+     *
+     * @return the empty index
+     */
+    public static InseeReferenceIndex empty( )
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Build an index from the reference lists
+     *
+     * @param listCommunes
+     *            the communes
+     * @param listCountries
+     *            the countries
+     * @return the index
+     */
+    public static InseeReferenceIndex build( List<InseeReference> listCommunes, List<InseeReference> listCountries )
+    {
+        return new InseeReferenceIndex( buildMap( listCommunes ), buildMap( listCountries ) );
+    }
+
+    /**
+     * Give the name of the place for a given INSEE code at a given date
+     *
+     * @param strCode
+     *            The INSEE code
+     * @param date
+     *            The date (birthdate), null for the current label
+     * @return The name or null if not found
+     */
+    public String getPlaceName( String strCode, LocalDate date )
+    {
+        return find( _mapCommunes, strCode, date );
+    }
+
+    /**
+     * Give the name of the country for a given INSEE code at a given date
+     *
+     * @param strCode
+     *            The INSEE code
+     * @param date
+     *            The date (birthdate), null for the current label
+     * @return The name or null if not found
+     */
+    public String getCountryName( String strCode, LocalDate date )
+    {
+        return find( _mapCountries, strCode, date );
+    }
+
+    /**
+     * Returns a key identifying the period, between two known label changes of the commune, that contains a given date. Two dates with the same key
+     * resolve to the same label.
+     *
+     * @param strCode
+     *            The INSEE code
+     * @param date
+     *            The date
+     * @return The period key
+     */
+    public String getPlacePeriodKey( String strCode, LocalDate date )
+    {
+        return getPeriodKey( _mapCommunes, strCode, date );
+    }
+
+    /**
+     * Returns a key identifying the period, between two known label changes of the country, that contains a given date. Two dates with the same key
+     * resolve to the same label.
+     *
+     * @param strCode
+     *            The INSEE code
+     * @param date
+     *            The date
+     * @return The period key
+     */
+    public String getCountryPeriodKey( String strCode, LocalDate date )
+    {
+        return getPeriodKey( _mapCountries, strCode, date );
+    }
+
+    /**
+     * Returns the number of communes codes
+     *
+     * @return the number of communes codes
+     */
+    public int getCommunesCount( )
+    {
+        return _mapCommunes.size( );
+    }
+
+    /**
+     * Returns the number of countries codes
+     *
+     * @return the number of countries codes
+     */
+    public int getCountriesCount( )
+    {
+        return _mapCountries.size( );
+    }
+
+    /**
+     * Find the label valid at a given date. A code having several labels valid at this date is ambiguous and has no label.
+     *
+     * @param map
+     *            the periods by code
+     * @param strCode
+     *            the code
+     * @param date
+     *            the date
+     * @return the label or null
+     */
+    private static String find( Map<String, Period [ ]> map, String strCode, LocalDate date )
+    {
+        if ( strCode == null )
+        {
+            return null;
+        }
+
+        Period [ ] periods = map.get( strCode );
+
+        if ( periods == null )
+        {
+            return null;
+        }
+
+        String strLabel = null;
+
+        for ( Period period : periods )
+        {
+            if ( period.contains( date ) )
+            {
+                if ( strLabel != null && !strLabel.equals( period._strLabel ) )
+                {
+                    // Several labels valid at the same date (e.g. a country and its territories) : the geocodes service decides
+                    return null;
+                }
+
+                strLabel = period._strLabel;
+            }
+        }
+
+        return strLabel;
+    }
+
+    /**
+     * Compute the period key of a date for a code. Without known periods for the code, the date itself is the key.
+     *
+     * @param map
+     *            the periods by code
+     * @param strCode
+     *            the code
+     * @param date
+     *            the date
+     * @return the period key
+     */
+    private static String getPeriodKey( Map<String, Period [ ]> map, String strCode, LocalDate date )
+    {
+        if ( date == null )
+        {
+            return PERIOD_CURRENT;
+        }
+
+        Period [ ] periods = ( strCode != null ) ? map.get( strCode ) : null;
+
+        if ( periods == null )
+        {
+            return date.toString( );
+        }
+
+        LocalDate dateLower = null;
+        LocalDate dateUpper = null;
+
+        for ( Period period : periods )
+        {
+            for ( LocalDate bound : new LocalDate [ ] {
+                    period._dateStart, period._dateEnd
+            } )
+            {
+                if ( bound == null )
+                {
+                    continue;
+                }
+
+                if ( !date.isBefore( bound ) )
+                {
+                    dateLower = ( dateLower == null || bound.isAfter( dateLower ) ) ? bound : dateLower;
+                }
+                else
+                {
+                    dateUpper = ( dateUpper == null || bound.isBefore( dateUpper ) ) ? bound : dateUpper;
+                }
+            }
+        }
+
+        return dateLower + PERIOD_SEPARATOR + dateUpper;
+    }
+
+    /**
+     * Build the periods map
+     *
+     * @param listReferences
+     *            the references
+     * @return the map
+     */
+    private static Map<String, Period [ ]> buildMap( List<InseeReference> listReferences )
+    {
+        Map<String, List<Period>> mapLists = new HashMap<>( );
+
+        for ( InseeReference reference : listReferences )
+        {
+            if ( reference.getCode( ) != null && reference.getLabel( ) != null )
+            {
+                Period period = new Period( reference.getLabel( ),
+                        ( reference.getDateValidityStart( ) != null ) ? reference.getDateValidityStart( ).toLocalDate( ) : null,
+                        ( reference.getDateValidityEnd( ) != null ) ? reference.getDateValidityEnd( ).toLocalDate( ) : null );
+                mapLists.computeIfAbsent( reference.getCode( ).trim( ), k -> new ArrayList<>( 1 ) ).add( period );
+            }
+        }
+
+        Map<String, Period [ ]> map = new HashMap<>( mapLists.size( ) * 4 / 3 + 1 );
+
+        for ( Map.Entry<String, List<Period>> entry : mapLists.entrySet( ) )
+        {
+            List<Period> listPeriods = entry.getValue( );
+            listPeriods.sort( Comparator.comparing( ( Period p ) -> p._dateStart, Comparator.nullsFirst( Comparator.naturalOrder( ) ) ) );
+            map.put( entry.getKey( ), listPeriods.toArray( new Period [ listPeriods.size( )] ) );
+        }
+
+        return Collections.unmodifiableMap( map );
+    }
+
+    /**
+     * A label with its validity period. Start is inclusive, end is exclusive, null bounds are open.
+     */
+    private static final class Period
+    {
+        private final String _strLabel;
+        private final LocalDate _dateStart;
+        private final LocalDate _dateEnd;
+
+        /**
+         * Constructor
+         *
+         * @param strLabel
+         *            the label
+         * @param dateStart
+         *            the start date
+         * @param dateEnd
+         *            the end date
+         */
+        Period( String strLabel, LocalDate dateStart, LocalDate dateEnd )
+        {
+            _strLabel = strLabel;
+            _dateStart = dateStart;
+            _dateEnd = dateEnd;
+        }
+
+        /**
+         * Check if the period contains a date. A null date matches only the current period.
+         *
+         * @param date
+         *            the date
+         * @return true if the label is valid at this date
+         */
+        boolean contains( LocalDate date )
+        {
+            if ( date == null )
+            {
+                return _dateEnd == null;
+            }
+
+            return ( _dateStart == null || !date.isBefore( _dateStart ) ) && ( _dateEnd == null || date.isBefore( _dateEnd ) );
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.business.InseeReference;
+import fr.paris.lutece.plugins.fccertifier.business.InseeReferenceChanges;
+import fr.paris.lutece.plugins.fccertifier.business.InseeReferenceHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Loads the INSEE reference tables from the communes and countries files, plain or gzip compressed. A file holds one reference per line :
+ * code;label;first day of validity;last day of validity, the dates in the yyyy-MM-dd format or empty, the lines starting with # being ignored. The
+ * tables are synchronized with the files, so that loading the same files again changes nothing, then the in-memory index is replaced.
+ */
+public final class InseeReferenceLoader
+{
+    private static final String PROPERTY_COMMUNES_FILE = "fccertifier.insee.communesFile";
+    private static final String PROPERTY_COUNTRIES_FILE = "fccertifier.insee.countriesFile";
+    private static final String PROPERTY_BATCH_SIZE = "fccertifier.insee.batchSize";
+    private static final String PROPERTY_LOAD_ON_STARTUP = "fccertifier.insee.loadOnStartup";
+    private static final String DEFAULT_COMMUNES_FILE = "/WEB-INF/plugins/fccertifier/insee/communes.csv.gz";
+    private static final String DEFAULT_COUNTRIES_FILE = "/WEB-INF/plugins/fccertifier/insee/countries.csv.gz";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final String LOAD_ALWAYS = "always";
+    private static final String LOAD_IF_EMPTY = "ifEmpty";
+    private static final String EXTENSION_GZIP = ".gz";
+    private static final String PREFIX_COMMENT = "#";
+    private static final String SEPARATOR = ";";
+    private static final int FIELDS_COUNT = 4;
+
+    /**
+     * Private constructor
+     */
+    private InseeReferenceLoader( )
+    {
+    }
+
+    /**
+     * Load the tables at startup, according to the loadOnStartup property : always, ifEmpty (default) when there is no commune yet, or never
+     */
+    public static void loadOnStartup( )
+    {
+        String strMode = AppPropertiesService.getProperty( PROPERTY_LOAD_ON_STARTUP, LOAD_IF_EMPTY );
+
+        if ( LOAD_ALWAYS.equals( strMode ) || ( LOAD_IF_EMPTY.equals( strMode ) && InseeReferenceService.getIndex( ).getCommunesCount( ) == 0 ) )
+        {
+            try
+            {
+                load( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "FCCertifier : unable to load the INSEE reference files", e );
+            }
+        }
+    }
+
+    /**
+     * Load the communes and countries files into the tables, then replace the in-memory index
+     *
+     * @return a summary of the changes
+     * @throws IOException
+     *             if a file can't be read or is invalid
+     */
+    public static synchronized String load( ) throws IOException
+    {
+        long lStart = System.currentTimeMillis( );
+        int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+
+        // Both files are read before writing anything, an invalid file leaves the tables untouched
+        List<InseeReference> listCommunes = read( getPath( PROPERTY_COMMUNES_FILE, DEFAULT_COMMUNES_FILE ) );
+        List<InseeReference> listCountries = read( getPath( PROPERTY_COUNTRIES_FILE, DEFAULT_COUNTRIES_FILE ) );
+
+        InseeReferenceChanges changesCommunes = InseeReferenceHome.synchronizeCommunes( listCommunes, nBatchSize );
+        InseeReferenceChanges changesCountries = InseeReferenceHome.synchronizeCountries( listCountries, nBatchSize );
+        InseeReferenceService.setIndex( InseeReferenceIndex.build( listCommunes, listCountries ) );
+
+        String strSummary = "Communes : " + changesCommunes + " / Countries : " + changesCountries;
+        AppLogService.info( "FCCertifier : INSEE reference tables loaded in {} ms. {}", System.currentTimeMillis( ) - lStart, strSummary );
+
+        return strSummary;
+    }
+
+    /**
+     * Read the references of a file
+     *
+     * @param path
+     *            the file, gzip compressed if its name ends with .gz
+     * @return the references
+     * @throws IOException
+     *             if the file can't be read or holds an invalid line
+     */
+    public static List<InseeReference> read( Path path ) throws IOException
+    {
+        List<InseeReference> listReferences = new ArrayList<>( );
+
+        try ( InputStream in = open( path ); BufferedReader reader = new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) ) )
+        {
+            int nLineNumber = 0;
+            String strLine;
+
+            while ( ( strLine = reader.readLine( ) ) != null )
+            {
+                nLineNumber++;
+
+                if ( StringUtils.isBlank( strLine ) || strLine.startsWith( PREFIX_COMMENT ) )
+                {
+                    continue;
+                }
+
+                try
+                {
+                    listReferences.add( parse( strLine ) );
+                }
+                catch( IllegalArgumentException e )
+                {
+                    throw new IOException( "Invalid line " + nLineNumber + " of " + path.getFileName( ) + " : " + e.getMessage( ), e );
+                }
+            }
+        }
+
+        return listReferences;
+    }
+
+    /**
+     * Parse a line
+     *
+     * @param strLine
+     *            the line
+     * @return the reference
+     */
+    private static InseeReference parse( String strLine )
+    {
+        String [ ] fields = strLine.split( SEPARATOR, -1 );
+
+        if ( fields.length != FIELDS_COUNT || StringUtils.isBlank( fields [0] ) )
+        {
+            throw new IllegalArgumentException( FIELDS_COUNT + " fields and a code expected" );
+        }
+
+        InseeReference reference = new InseeReference( );
+        reference.setCode( fields [0].trim( ) );
+        reference.setLabel( fields [1].trim( ) );
+        reference.setDateValidityStart( parseDate( fields [2] ) );
+        reference.setDateValidityEnd( parseDate( fields [3] ) );
+
+        return reference;
+    }
+
+    /**
+     * Parse a date
+     *
+     * @param strDate
+     *            the date in the yyyy-MM-dd format, or empty
+     * @return the date or null
+     */
+    private static Date parseDate( String strDate )
+    {
+        return StringUtils.isBlank( strDate ) ? null : Date.valueOf( strDate.trim( ) );
+    }
+
+    /**
+     * Open a file, uncompressing it if needed
+     *
+     * @param path
+     *            the file
+     * @return the stream
+     * @throws IOException
+     *             if the file can't be opened
+     */
+    private static InputStream open( Path path ) throws IOException
+    {
+        InputStream in = Files.newInputStream( path );
+
+        if ( path.getFileName( ).toString( ).endsWith( EXTENSION_GZIP ) )
+        {
+            try
+            {
+                return new GZIPInputStream( in );
+            }
+            catch( IOException e )
+            {
+                in.close( );
+                throw e;
+            }
+        }
+
+        return in;
+    }
+
+    /**
+     * Returns the path of a file
+     *
+     * @param strProperty
+     *            the property holding the path, absolute or relative to the webapp
+     * @param strDefault
+     *            the default path, relative to the webapp
+     * @return the path
+     */
+    private static Path getPath( String strProperty, String strDefault )
+    {
+        String strPath = AppPropertiesService.getProperty( strProperty, strDefault );
+        Path path = Paths.get( strPath );
+
+        return path.isAbsolute( ) && Files.exists( path ) ? path : Paths.get( AppPathService.getAbsolutePathFromRelativePath( strPath ) );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import fr.paris.lutece.plugins.fccertifier.business.InseeReferenceHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Provides the in-memory index of the INSEE reference tables
+ */
+public final class InseeReferenceService
+{
+    private static volatile InseeReferenceIndex _index;
+
+    /**
+     * Private constructor
+     */
+    private InseeReferenceService( )
+    {
+    }
+
+    /**
+     * Returns the index, loading it from the database at first call
+     *
+     * @return the index
+     */
+    public static InseeReferenceIndex getIndex( )
+    {
+        InseeReferenceIndex index = _index;
+
+        if ( index == null )
+        {
+            synchronized( InseeReferenceService.class )
+            {
+                index = _index;
+
+                if ( index == null )
+                {
+                    index = load( );
+                    _index = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Reload the index from the database
+     */
+    public static synchronized void reload( )
+    {
+        _index = load( );
+    }
+
+    /**
+     * Replace the index by one already built, for instance by a loader of the reference tables
+     *
+     * @param index
+     *            the index
+     */
+    public static synchronized void setIndex( InseeReferenceIndex index )
+    {
+        _index = index;
+    }
+
+    /**
+     * Load the index from the database
+     *
+     * @return the index, empty if the tables could not be read
+     */
+    private static InseeReferenceIndex load( )
+    {
+        try
+        {
+            long lStart = System.currentTimeMillis( );
+            InseeReferenceIndex index = InseeReferenceIndex.build( InseeReferenceHome.getCommunesList( ), InseeReferenceHome.getCountriesList( ) );
+            AppLogService.info( "FCCertifier : INSEE reference index loaded ({} communes, {} countries) in {} ms", index.getCommunesCount( ),
+                    index.getCountriesCount( ), System.currentTimeMillis( ) - lStart );
+
+            return index;
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "FCCertifier : unable to load the INSEE reference index, the geocodes service will be used instead", e );
+
+            return InseeReferenceIndex.empty( );
+        }
+    }
+}
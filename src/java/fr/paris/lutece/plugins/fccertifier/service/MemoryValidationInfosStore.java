@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * In-memory, size-bounded store of the validation infos of the users in progress. Entries are indexed in a timer wheel by their expiration time (plus a grace
+ * period during which an expired entry can still be reported as such), so the sweep only visits the slots elapsed since the previous one.
+ */
+public class MemoryValidationInfosStore implements IValidationInfosStore
+{
+    private static final long TICK_DURATION = 1000L;
+    private static final String PROPERTY_CAPACITY = "fccertifier.validationInfos.capacity";
+    private static final String PROPERTY_GRACE_PERIOD = "fccertifier.validationInfos.gracePeriod";
+    private static final String PROPERTY_EXPIRES_DELAY = "identitystore.fccertifier.expiresDelay";
+    private static final int DEFAULT_CAPACITY = 100000;
+    private static final int DEFAULT_GRACE_PERIOD = 300;
+    private static final int DEFAULT_EXPIRES_DELAY = 5;
+
+    private final int _nCapacity;
+    private final long _lGracePeriod;
+    private final Map<String, ValidationInfos> _map = new ConcurrentHashMap<>( );
+    private final Set<String> [ ] _wheel;
+    private final AtomicLong _lEvictions = new AtomicLong( );
+    private final AtomicLong _lExpirations = new AtomicLong( );
+    private long _lLastSweptTick;
+
+    /**
+     * Constructor using the plugin properties
+     */
+    public MemoryValidationInfosStore( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_CAPACITY, DEFAULT_CAPACITY ),
+                AppPropertiesService.getPropertyInt( PROPERTY_EXPIRES_DELAY, DEFAULT_EXPIRES_DELAY ) * 60000L,
+                AppPropertiesService.getPropertyInt( PROPERTY_GRACE_PERIOD, DEFAULT_GRACE_PERIOD ) * 1000L );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nCapacity
+     *            the maximum number of entries
+     * @param lExpiresDelay
+     *            the expiration delay of the entries in milliseconds
+     * @param lGracePeriod
+     *            the time in milliseconds an expired entry is kept before being purged
+     */
+    @SuppressWarnings( "unchecked" )
+    public MemoryValidationInfosStore( int nCapacity, long lExpiresDelay, long lGracePeriod )
+    {
+        _nCapacity = nCapacity;
+        _lGracePeriod = lGracePeriod;
+
+        int nSlots = (int) ( ( lExpiresDelay + lGracePeriod ) / TICK_DURATION ) + 2;
+        _wheel = new Set [ nSlots];
+
+        for ( int i = 0; i < nSlots; i++ )
+        {
+            _wheel [i] = ConcurrentHashMap.newKeySet( );
+        }
+
+        _lLastSweptTick = System.currentTimeMillis( ) / TICK_DURATION;
+    }
+
+    /**
+     * {@inheritDoc }. If the store is full, the entry closest to its expiration is evicted.
+     */
+    @Override
+    public synchronized void put( String strKey, ValidationInfos infos )
+    {
+        if ( _map.size( ) >= _nCapacity && !_map.containsKey( strKey ) )
+        {
+            evictOne( );
+        }
+
+        ValidationInfos previous = _map.put( strKey, infos );
+
+        if ( previous != null )
+        {
+            getSlot( previous ).remove( strKey );
+        }
+
+        getSlot( infos ).add( strKey );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ValidationInfos get( String strKey )
+    {
+        return _map.get( strKey );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized boolean complete( String strKey, ValidationInfos infos, String strResult, long lExpiresTime )
+    {
+        ValidationInfos current = _map.get( strKey );
+
+        // The entries are compared by their expiration time, as in the database : a replaced, removed or completed entry is not completed
+        if ( current == null || current.getExpiresTime( ) != infos.getExpiresTime( ) || current.getValidationResult( ) != null )
+        {
+            return false;
+        }
+
+        ValidationInfos completed = copy( current );
+        completed.setExpiresTime( lExpiresTime );
+        completed.setValidationResult( strResult );
+
+        if ( !_map.replace( strKey, current, completed ) )
+        {
+            return false;
+        }
+
+        getSlot( current ).remove( strKey );
+        getSlot( completed ).add( strKey );
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void recordSuspiciousCheck( String strKey, String strSub, boolean bStrictSuspicious )
+    {
+        ValidationInfos current = _map.get( strKey );
+
+        if ( current == null || current.getValidationResult( ) != null )
+        {
+            return;
+        }
+
+        // The entries are not modified in place : a reader always sees a consistent entry
+        ValidationInfos checked = copy( current );
+        checked.setSuspiciousCheckSub( strSub );
+        checked.setStrictSuspicious( bStrictSuspicious );
+        _map.replace( strKey, current, checked );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized int sweep( )
+    {
+        long lNow = System.currentTimeMillis( );
+        long lTick = lNow / TICK_DURATION;
+        long lFirstTick = Math.max( _lLastSweptTick, lTick - _wheel.length + 1 );
+        int nPurged = 0;
+
+        for ( long t = lFirstTick; t <= lTick; t++ )
+        {
+            Iterator<String> iterator = _wheel [(int) ( t % _wheel.length )].iterator( );
+
+            while ( iterator.hasNext( ) )
+            {
+                String strKey = iterator.next( );
+                ValidationInfos infos = _map.get( strKey );
+
+                if ( infos == null )
+                {
+                    iterator.remove( );
+                }
+                else
+                    if ( getDeadline( infos ) <= lNow && _map.remove( strKey, infos ) )
+                    {
+                        iterator.remove( );
+                        nPurged++;
+                    }
+            }
+        }
+
+        _lLastSweptTick = lTick;
+        _lExpirations.addAndGet( nPurged );
+
+        return nPurged;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int size( )
+    {
+        return _map.size( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCapacity( )
+    {
+        return _nCapacity;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getEvictionCount( )
+    {
+        return _lEvictions.get( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getExpirationCount( )
+    {
+        return _lExpirations.get( );
+    }
+
+    /**
+     * Evict the entry closest to its expiration, starting from the oldest slot not yet swept
+     */
+    private void evictOne( )
+    {
+        long lTick = _lLastSweptTick;
+
+        for ( int i = 0; i < _wheel.length; i++ )
+        {
+            Iterator<String> iterator = _wheel [(int) ( ( lTick + i ) % _wheel.length )].iterator( );
+
+            while ( iterator.hasNext( ) )
+            {
+                String strKey = iterator.next( );
+                iterator.remove( );
+
+                if ( _map.remove( strKey ) != null )
+                {
+                    _lEvictions.incrementAndGet( );
+
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy an entry
+     *
+     * @param infos
+     *            the validation infos
+     * @return the copy
+     */
+    private static ValidationInfos copy( ValidationInfos infos )
+    {
+        ValidationInfos copy = new ValidationInfos( );
+        copy.setUserConnectionId( infos.getUserConnectionId( ) );
+        copy.setUserEmail( infos.getUserEmail( ) );
+        copy.setFCUserInfo( infos.getFCUserInfo( ) );
+        copy.setExpiresTime( infos.getExpiresTime( ) );
+        copy.setInvalidAttempts( infos.getInvalidAttempts( ) );
+        copy.setValidationResult( infos.getValidationResult( ) );
+        copy.setSuspiciousCheckSub( infos.getSuspiciousCheckSub( ) );
+        copy.setStrictSuspicious( infos.isStrictSuspicious( ) );
+
+        return copy;
+    }
+
+    /**
+     * Returns the time after which an entry can be purged
+     *
+     * @param infos
+     *            the validation infos
+     * @return the deadline
+     */
+    private long getDeadline( ValidationInfos infos )
+    {
+        return infos.getExpiresTime( ) + _lGracePeriod;
+    }
+
+    /**
+     * Returns the wheel slot of an entry
+     *
+     * @param infos
+     *            the validation infos
+     * @return the slot
+     */
+    private Set<String> getSlot( ValidationInfos infos )
+    {
+        return _wheel [(int) ( ( getDeadline( infos ) / TICK_DURATION ) % _wheel.length )];
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+import fr.paris.lutece.plugins.fccertifier.service.cache.ExpiringCache;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Runs the strict suspicious identities check of a user in the background, so that its result is available when the user asks for the certification.
+ * The result is recorded with the validation infos of the user, so that it is found on any node. The node running the check also keeps it for a
+ * while, to wait for it if the user is faster than the check.
+ */
+public final class SuspiciousIdentityService
+{
+    private static final String PROPERTY_TIMEOUT = "fccertifier.timeout.suspiciousIdentities";
+    private static final String PROPERTY_EXPIRES_DELAY = "identitystore.fccertifier.expiresDelay";
+    private static final int DEFAULT_TIMEOUT = 10000;
+    private static final int DEFAULT_EXPIRES_DELAY = 5;
+    private static final int MAX_PENDING_CHECKS = 10000;
+    private static final long TIMEOUT = AppPropertiesService.getPropertyInt( PROPERTY_TIMEOUT, DEFAULT_TIMEOUT );
+    private static final String CALL_NAME = "Strict suspicious identities check";
+
+    private static final ExpiringCache<String, PendingCheck> _cachePendingChecks = new ExpiringCache<>( "fccertifier.suspiciousChecks", MAX_PENDING_CHECKS,
+            AppPropertiesService.getPropertyInt( PROPERTY_EXPIRES_DELAY, DEFAULT_EXPIRES_DELAY ) * 60000L, 0 );
+
+    /**
+     * Private constructor
+     */
+    private SuspiciousIdentityService( )
+    {
+    }
+
+    /**
+     * Start the check of a user in the background, unless a check of the same identity is already running on this node or recorded
+     *
+     * @param strConnectionId
+     *            the user connection ID
+     * @param fcIdentity
+     *            the FranceConnect identity
+     */
+    public static void startCheck( String strConnectionId, FcIdentity fcIdentity )
+    {
+        if ( strConnectionId == null || fcIdentity == null )
+        {
+            return;
+        }
+
+        PendingCheck check = _cachePendingChecks.get( strConnectionId );
+
+        if ( ( check != null && StringUtils.equals( check._strSub, fcIdentity.getSub( ) ) ) || getRecordedCheck( strConnectionId, fcIdentity ) != null )
+        {
+            return;
+        }
+
+        Future<Boolean> future = AsyncCallService.submit( ( ) -> runCheck( strConnectionId, fcIdentity ) );
+        _cachePendingChecks.put( strConnectionId, new PendingCheck( fcIdentity.getSub( ), future ) );
+    }
+
+    /**
+     * Return true if strict suspicious identities exist. Uses the check of this identity started on this node, waiting for what remains of its
+     * timeout, or the check recorded by another node. If there is none, or if it failed or timed out, the check is run now.
+     *
+     * @param strConnectionId
+     *            the user connection ID
+     * @param fcIdentity
+     *            the FranceConnect identity
+     * @return true if strict suspicious identities exist
+     */
+    public static boolean isStrictSuspicious( String strConnectionId, FcIdentity fcIdentity )
+    {
+        PendingCheck check = _cachePendingChecks.get( strConnectionId );
+        _cachePendingChecks.remove( strConnectionId );
+
+        Boolean bStrictSuspicious;
+
+        if ( check != null && StringUtils.equals( check._strSub, fcIdentity.getSub( ) ) )
+        {
+            long lRemainingTime = Math.max( 0, check._lStartTime + TIMEOUT - System.currentTimeMillis( ) );
+            bStrictSuspicious = AsyncCallService.get( check._future, lRemainingTime, null, CALL_NAME );
+        }
+        else
+        {
+            bStrictSuspicious = getRecordedCheck( strConnectionId, fcIdentity );
+        }
+
+        if ( bStrictSuspicious == null )
+        {
+            return CertifierService.existStrictSuspiciousIdentities( fcIdentity, strConnectionId );
+        }
+
+        return bStrictSuspicious;
+    }
+
+    /**
+     * Run the check and record its result, unless identityquality did not answer
+     *
+     * @param strConnectionId
+     *            the user connection ID
+     * @param fcIdentity
+     *            the FranceConnect identity
+     * @return the result, or null if identityquality did not answer
+     */
+    private static Boolean runCheck( String strConnectionId, FcIdentity fcIdentity )
+    {
+        Boolean bStrictSuspicious = CertifierService.findStrictSuspiciousIdentities( fcIdentity, strConnectionId );
+
+        if ( bStrictSuspicious != null && fcIdentity.getSub( ) != null )
+        {
+            CertifierService.getValidationInfosStore( ).recordSuspiciousCheck( strConnectionId, fcIdentity.getSub( ), bStrictSuspicious );
+        }
+
+        return bStrictSuspicious;
+    }
+
+    /**
+     * Returns the result of the check of an identity recorded with the validation infos of the user
+     *
+     * @param strConnectionId
+     *            the user connection ID
+     * @param fcIdentity
+     *            the FranceConnect identity
+     * @return the result, or null if no check of this identity is recorded
+     */
+    private static Boolean getRecordedCheck( String strConnectionId, FcIdentity fcIdentity )
+    {
+        ValidationInfos infos = CertifierService.getValidationInfosStore( ).get( strConnectionId );
+
+        if ( infos != null && infos.getSuspiciousCheckSub( ) != null && infos.getSuspiciousCheckSub( ).equals( fcIdentity.getSub( ) ) )
+        {
+            return infos.isStrictSuspicious( );
+        }
+
+        return null;
+    }
+
+    /**
+     * A check running in the background
+     */
+    private static final class PendingCheck
+    {
+        private final String _strSub;
+        private final Future<Boolean> _future;
+        private final long _lStartTime;
+
+        /**
+         * Constructor
+         *
+         * @param strSub
+         *            the FranceConnect subject of the checked identity
+         * @param future
+         *            the future result
+         */
+        PendingCheck( String strSub, Future<Boolean> future )
+        {
+            _strSub = strSub;
+            _future = future;
+            _lStartTime = System.currentTimeMillis( );
+        }
+    }
+}
@@ -47,9 +47,12 @@ public class ValidationInfos
     private FcIdentity _identity;
     private long _expiresTime;
     private int _nInvalidAttempts;
+    private String _strValidationResult;
+    private String _strSuspiciousCheckSub;
+    private boolean _bStrictSuspicious;
 
     /**
-     * Returns the FC FcIdentity
+     * Returns the FC FcIdentity. Since 2.0.0 it is not a UserInfo and holds only the claims used by the certification, see FcIdentity.
      *
      * @return The FC FcIdentity
      */
@@ -148,4 +151,67 @@ public class ValidationInfos
     {
         _nInvalidAttempts = nInvalidAttempts;
     }
+
+    /**
+     * Returns the result of the validation, null while it is in progress
+     *
+     * @return The ValidationResult name
+     */
+    public String getValidationResult( )
+    {
+        return _strValidationResult;
+    }
+
+    /**
+     * Sets the ValidationResult
+     *
+     * @param strValidationResult
+     *            The ValidationResult name
+     */
+    public void setValidationResult( String strValidationResult )
+    {
+        _strValidationResult = strValidationResult;
+    }
+
+    /**
+     * Returns the FranceConnect subject of the identity whose strict suspicious identities check is recorded, null if no check is recorded
+     *
+     * @return The SuspiciousCheckSub
+     */
+    public String getSuspiciousCheckSub( )
+    {
+        return _strSuspiciousCheckSub;
+    }
+
+    /**
+     * Sets the SuspiciousCheckSub
+     *
+     * @param strSuspiciousCheckSub
+     *            The SuspiciousCheckSub
+     */
+    public void setSuspiciousCheckSub( String strSuspiciousCheckSub )
+    {
+        _strSuspiciousCheckSub = strSuspiciousCheckSub;
+    }
+
+    /**
+     * Returns the result of the recorded strict suspicious identities check
+     *
+     * @return true if strict suspicious identities exist
+     */
+    public boolean isStrictSuspicious( )
+    {
+        return _bStrictSuspicious;
+    }
+
+    /**
+     * Sets the StrictSuspicious
+     *
+     * @param bStrictSuspicious
+     *            The StrictSuspicious
+     */
+    public void setStrictSuspicious( boolean bStrictSuspicious )
+    {
+        _bStrictSuspicious = bStrictSuspicious;
+    }
 }
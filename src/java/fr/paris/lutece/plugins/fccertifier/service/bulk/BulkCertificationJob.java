@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.plugins.fccertifier.util.RateLimiter;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Certify the records of a file with the same logic as the interactive flow. The file is streamed by chunks : the records of a chunk are certified in
+ * parallel, then their outcomes are appended to the report and the checkpoint, holding the last line processed and the report length, is moved after
+ * the chunk. An interrupted job resumes after the last checkpoint : the report is truncated to the saved length, then the records of the chunk in
+ * progress are certified again. The identitystore is not updated again for the records already certified, which are reported UNCHANGED.
+ */
+public class BulkCertificationJob
+{
+    public static final String SUFFIX_REPORT = ".report";
+    public static final String SUFFIX_CHECKPOINT = ".checkpoint";
+    private static final String SUFFIX_TMP = ".tmp";
+    private static final String CHECKPOINT_SEPARATOR = ";";
+    private static final String STATUS_INVALID = "INVALID";
+    private static final String STATUS_ERROR = "ERROR";
+
+    private final Path _pathInput;
+    private final Path _pathReport;
+    private final Path _pathCheckpoint;
+    private final int _nThreads;
+    private final int _nChunkSize;
+    private final RateLimiter _rateLimiter;
+    private final Function<BulkCertificationRecord, CertifierService.CertificationStatus> _certifier;
+
+    /**
+     * Constructor
+     *
+     * @param fileInput
+     *            the records file
+     * @param nThreads
+     *            the number of records certified in parallel
+     * @param nRatePerSecond
+     *            the maximum number of records certified per second, 0 for no limit
+     * @param nChunkSize
+     *            the number of records between two checkpoints
+     */
+    public BulkCertificationJob( File fileInput, int nThreads, int nRatePerSecond, int nChunkSize )
+    {
+        this( fileInput, nThreads, nRatePerSecond, nChunkSize, new CertifierService( ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param fileInput
+     *            the records file
+     * @param nThreads
+     *            the number of records certified in parallel
+     * @param nRatePerSecond
+     *            the maximum number of records certified per second, 0 for no limit
+     * @param nChunkSize
+     *            the number of records between two checkpoints
+     * @param certifierService
+     *            the certifier service
+     */
+    private BulkCertificationJob( File fileInput, int nThreads, int nRatePerSecond, int nChunkSize, CertifierService certifierService )
+    {
+        this( fileInput, nThreads, nRatePerSecond, nChunkSize, record -> certifierService.certify( record.toValidationInfos( ) ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param fileInput
+     *            the records file
+     * @param nThreads
+     *            the number of records certified in parallel
+     * @param nRatePerSecond
+     *            the maximum number of records certified per second, 0 for no limit
+     * @param nChunkSize
+     *            the number of records between two checkpoints
+     * @param certifier
+     *            the certification of a record
+     */
+    BulkCertificationJob( File fileInput, int nThreads, int nRatePerSecond, int nChunkSize,
+            Function<BulkCertificationRecord, CertifierService.CertificationStatus> certifier )
+    {
+        _pathInput = fileInput.toPath( );
+        _pathReport = new File( fileInput.getPath( ) + SUFFIX_REPORT ).toPath( );
+        _pathCheckpoint = new File( fileInput.getPath( ) + SUFFIX_CHECKPOINT ).toPath( );
+        _nThreads = Math.max( 1, nThreads );
+        _nChunkSize = Math.max( _nThreads, nChunkSize );
+        _rateLimiter = new RateLimiter( nRatePerSecond );
+        _certifier = certifier;
+    }
+
+    /**
+     * Run the job, from the last checkpoint if any
+     *
+     * @return the job summary
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    public BulkCertificationSummary run( ) throws IOException
+    {
+        BulkCertificationSummary summary = new BulkCertificationSummary( );
+        long [ ] checkpoint = readCheckpoint( );
+        long lCheckpoint = checkpoint [0];
+        summary.setResumedAfterLine( lCheckpoint );
+        truncateReport( checkpoint [1] );
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( _nThreads, _nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( _nChunkSize ),
+                new NamedThreadFactory( "fccertifier-bulk-" ) );
+
+        try ( BufferedReader reader = Files.newBufferedReader( _pathInput, StandardCharsets.UTF_8 );
+                BufferedWriter writer = Files.newBufferedWriter( _pathReport, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND ) )
+        {
+            List<BulkCertificationRecord> listChunk = new ArrayList<>( _nChunkSize );
+            List<String> listInvalid = new ArrayList<>( );
+            long lLineNumber = 0;
+            String strLine;
+
+            while ( !Thread.currentThread( ).isInterrupted( ) && ( strLine = reader.readLine( ) ) != null )
+            {
+                lLineNumber++;
+
+                if ( lLineNumber <= lCheckpoint || !BulkCertificationRecord.isRecord( strLine ) )
+                {
+                    continue;
+                }
+
+                try
+                {
+                    listChunk.add( BulkCertificationRecord.parse( lLineNumber, strLine ) );
+                }
+                catch( IllegalArgumentException e )
+                {
+                    listInvalid.add( formatLine( lLineNumber, StringUtils.substringBefore( strLine, BulkCertificationRecord.SEPARATOR ), STATUS_INVALID,
+                            e.getMessage( ) ) );
+                    summary.increment( STATUS_INVALID );
+                }
+
+                if ( listChunk.size( ) >= _nChunkSize && processChunk( executor, listChunk, listInvalid, writer, summary ) )
+                {
+                    saveCheckpoint( lLineNumber, Files.size( _pathReport ) );
+                }
+            }
+
+            if ( !Thread.currentThread( ).isInterrupted( ) && processChunk( executor, listChunk, listInvalid, writer, summary ) )
+            {
+                saveCheckpoint( lLineNumber, Files.size( _pathReport ) );
+                summary.setCompleted( true );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+
+        return summary;
+    }
+
+    /**
+     * Delete the checkpoint of a completed job
+     *
+     * @throws IOException
+     *             if the checkpoint can't be deleted
+     */
+    public void deleteCheckpoint( ) throws IOException
+    {
+        Files.deleteIfExists( _pathCheckpoint );
+    }
+
+    /**
+     * Certify the records of a chunk and append their outcomes to the report
+     *
+     * @param executor
+     *            the executor
+     * @param listChunk
+     *            the records, cleared on return
+     * @param listInvalid
+     *            the report lines of the invalid records, cleared on return
+     * @param writer
+     *            the report writer
+     * @param summary
+     *            the job summary
+     * @return true if the whole chunk has been processed, false if the job has been interrupted
+     * @throws IOException
+     *             if the report can't be written
+     */
+    private boolean processChunk( ThreadPoolExecutor executor, List<BulkCertificationRecord> listChunk, List<String> listInvalid, BufferedWriter writer,
+            BulkCertificationSummary summary ) throws IOException
+    {
+        List<Future<CertifierService.CertificationStatus>> listFutures = new ArrayList<>( listChunk.size( ) );
+
+        try
+        {
+            for ( BulkCertificationRecord record : listChunk )
+            {
+                _rateLimiter.acquire( );
+                listFutures.add( executor.submit( ( ) -> _certifier.apply( record ) ) );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            // The job is stopping : the chunk will be processed again on resume
+            listFutures.forEach( f -> f.cancel( true ) );
+            Thread.currentThread( ).interrupt( );
+
+            return false;
+        }
+
+        for ( String strInvalid : listInvalid )
+        {
+            writer.write( strInvalid );
+            writer.newLine( );
+        }
+
+        for ( int i = 0; i < listFutures.size( ); i++ )
+        {
+            BulkCertificationRecord record = listChunk.get( i );
+            String strStatus;
+            String strMessage = StringUtils.EMPTY;
+
+            try
+            {
+                strStatus = listFutures.get( i ).get( ).name( );
+            }
+            catch( ExecutionException e )
+            {
+                AppLogService.error( "FCCertifier : bulk certification failed for line {}", record.getLineNumber( ), e.getCause( ) );
+                strStatus = STATUS_ERROR;
+                strMessage = String.valueOf( e.getCause( ) );
+            }
+            catch( InterruptedException e )
+            {
+                listFutures.forEach( f -> f.cancel( true ) );
+                Thread.currentThread( ).interrupt( );
+
+                return false;
+            }
+
+            writer.write( formatLine( record.getLineNumber( ), record.getConnectionId( ), strStatus, strMessage ) );
+            writer.newLine( );
+            summary.increment( strStatus );
+        }
+
+        writer.flush( );
+        listChunk.clear( );
+        listInvalid.clear( );
+
+        return true;
+    }
+
+    /**
+     * Read the checkpoint
+     *
+     * @return the number of the last line processed, 0 if none, and the report length, -1 if unknown
+     * @throws IOException
+     *             if the checkpoint can't be read
+     */
+    private long [ ] readCheckpoint( ) throws IOException
+    {
+        if ( !Files.exists( _pathCheckpoint ) )
+        {
+            // A job started from scratch : the lines of a first chunk reported without checkpoint are dropped
+            return new long [ ] {
+                    0, 0
+            };
+        }
+
+        String [ ] values = new String( Files.readAllBytes( _pathCheckpoint ), StandardCharsets.UTF_8 ).trim( ).split( CHECKPOINT_SEPARATOR );
+        long lLineNumber = StringUtils.isNumeric( values [0] ) && !values [0].isEmpty( ) ? Long.parseLong( values [0] ) : 0;
+        long lReportLength = ( values.length > 1 && StringUtils.isNumeric( values [1] ) && !values [1].isEmpty( ) ) ? Long.parseLong( values [1] ) : -1;
+
+        return new long [ ] {
+                lLineNumber, lReportLength
+        };
+    }
+
+    /**
+     * Truncate the report to its length at the checkpoint, dropping the lines of a chunk reported after it
+     *
+     * @param lLength
+     *            the report length, -1 if unknown
+     * @throws IOException
+     *             if the report can't be truncated
+     */
+    private void truncateReport( long lLength ) throws IOException
+    {
+        if ( lLength < 0 || !Files.exists( _pathReport ) || Files.size( _pathReport ) <= lLength )
+        {
+            return;
+        }
+
+        try ( FileChannel channel = FileChannel.open( _pathReport, StandardOpenOption.WRITE ) )
+        {
+            channel.truncate( lLength );
+        }
+    }
+
+    /**
+     * Save the checkpoint, replacing the previous one atomically
+     *
+     * @param lLineNumber
+     *            the number of the last line processed
+     * @param lReportLength
+     *            the report length once the outcomes of the lines processed are written
+     * @throws IOException
+     *             if the checkpoint can't be written
+     */
+    private void saveCheckpoint( long lLineNumber, long lReportLength ) throws IOException
+    {
+        Path pathTmp = new File( _pathCheckpoint.toString( ) + SUFFIX_TMP ).toPath( );
+        Files.write( pathTmp, ( lLineNumber + CHECKPOINT_SEPARATOR + lReportLength ).getBytes( StandardCharsets.UTF_8 ) );
+        Files.move( pathTmp, _pathCheckpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Format a report line
+     *
+     * @param lLineNumber
+     *            the line number
+     * @param strConnectionId
+     *            the connection id
+     * @param strStatus
+     *            the outcome
+     * @param strMessage
+     *            the message
+     * @return the report line
+     */
+    private static String formatLine( long lLineNumber, String strConnectionId, String strStatus, String strMessage )
+    {
+        return lLineNumber + BulkCertificationRecord.SEPARATOR + strConnectionId + BulkCertificationRecord.SEPARATOR + strStatus
+                + BulkCertificationRecord.SEPARATOR + StringUtils.replace( strMessage, BulkCertificationRecord.SEPARATOR, "," );
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
+
+/**
+ * A record of a bulk certification file. A record is a line of semicolon separated fields :
+ * connection_id;sub;given_name;family_name;preferred_username;gender;birthdate;birthplace;birthcountry;email with the FranceConnect formats
+ * (birthdate as yyyy-MM-dd, gender as male/female, INSEE codes).
+ */
+public class BulkCertificationRecord
+{
+    public static final String SEPARATOR = ";";
+    private static final String HEADER_FIRST_FIELD = "connection_id";
+    private static final String COMMENT_PREFIX = "#";
+    private static final int FIELDS_COUNT = 10;
+
+    private final long _lLineNumber;
+    private final String [ ] _fields;
+
+    /**
+     * Constructor
+     *
+     * @param lLineNumber
+     *            the line number in the file
+     * @param fields
+     *            the fields
+     */
+    private BulkCertificationRecord( long lLineNumber, String [ ] fields )
+    {
+        _lLineNumber = lLineNumber;
+        _fields = fields;
+    }
+
+    /**
+     * Tells if a line holds a record, and not a blank line, a comment or the header
+     *
+     * @param strLine
+     *            the line
+     * @return true if the line holds a record
+     */
+    public static boolean isRecord( String strLine )
+    {
+        String strTrimmed = strLine.trim( );
+
+        return !strTrimmed.isEmpty( ) && !strTrimmed.startsWith( COMMENT_PREFIX ) && !strTrimmed.startsWith( HEADER_FIRST_FIELD + SEPARATOR );
+    }
+
+    /**
+     * Parse a line
+     *
+     * @param lLineNumber
+     *            the line number in the file
+     * @param strLine
+     *            the line
+     * @return the record
+     * @throws IllegalArgumentException
+     *             if the line has not the expected fields
+     */
+    public static BulkCertificationRecord parse( long lLineNumber, String strLine )
+    {
+        String [ ] fields = strLine.split( SEPARATOR, -1 );
+
+        if ( fields.length != FIELDS_COUNT )
+        {
+            throw new IllegalArgumentException( "expected " + FIELDS_COUNT + " fields, found " + fields.length );
+        }
+
+        for ( int i = 0; i < fields.length; i++ )
+        {
+            fields [i] = fields [i].trim( );
+        }
+
+        if ( StringUtils.isEmpty( fields [0] ) )
+        {
+            throw new IllegalArgumentException( "missing connection id" );
+        }
+
+        return new BulkCertificationRecord( lLineNumber, fields );
+    }
+
+    /**
+     * Returns the line number in the file
+     *
+     * @return the line number
+     */
+    public long getLineNumber( )
+    {
+        return _lLineNumber;
+    }
+
+    /**
+     * Returns the connection id
+     *
+     * @return the connection id
+     */
+    public String getConnectionId( )
+    {
+        return _fields [0];
+    }
+
+    /**
+     * Build the validation infos to certify. The FranceConnect identity is enriched as in the interactive flow.
+     *
+     * @return the validation infos
+     */
+    public ValidationInfos toValidationInfos( )
+    {
+        UserInfo userInfo = new UserInfo( );
+        userInfo.setSub( _fields [1] );
+        userInfo.setGivenName( _fields [2] );
+        userInfo.setFamilyName( _fields [3] );
+        userInfo.setPreferredUsername( StringUtils.defaultIfEmpty( _fields [4], null ) );
+        userInfo.setGender( _fields [5] );
+        userInfo.setBirthDate( _fields [6] );
+        userInfo.setBirthPlace( _fields [7] );
+        userInfo.setBirthCountry( _fields [8] );
+        userInfo.setEmail( StringUtils.defaultIfEmpty( _fields [9], null ) );
+
+        ValidationInfos infos = new ValidationInfos( );
+        infos.setUserConnectionId( getConnectionId( ) );
+        infos.setUserEmail( userInfo.getEmail( ) );
+        infos.setFCUserInfo( new FcIdentity( userInfo ) );
+
+        return infos;
+    }
+}
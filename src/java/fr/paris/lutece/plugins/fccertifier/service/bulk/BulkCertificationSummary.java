@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of a bulk certification run
+ */
+public class BulkCertificationSummary
+{
+    private final Map<String, Long> _mapCounts = new TreeMap<>( );
+    private long _lResumedAfterLine;
+    private boolean _bCompleted;
+
+    /**
+     * Count a record outcome
+     *
+     * @param strStatus
+     *            the outcome
+     */
+    public void increment( String strStatus )
+    {
+        _mapCounts.merge( strStatus, 1L, Long::sum );
+    }
+
+    /**
+     * Returns the number of records by outcome
+     *
+     * @return the counts
+     */
+    public Map<String, Long> getCounts( )
+    {
+        return _mapCounts;
+    }
+
+    /**
+     * Returns the line after which the run resumed
+     *
+     * @return the line number, 0 if the run started from the beginning
+     */
+    public long getResumedAfterLine( )
+    {
+        return _lResumedAfterLine;
+    }
+
+    /**
+     * Sets the line after which the run resumed
+     *
+     * @param lResumedAfterLine
+     *            the line number
+     */
+    public void setResumedAfterLine( long lResumedAfterLine )
+    {
+        _lResumedAfterLine = lResumedAfterLine;
+    }
+
+    /**
+     * Tells if the whole file has been processed
+     *
+     * @return true if completed
+     */
+    public boolean isCompleted( )
+    {
+        return _bCompleted;
+    }
+
+    /**
+     * Sets the completion
+     *
+     * @param bCompleted
+     *            true if completed
+     */
+    public void setCompleted( boolean bCompleted )
+    {
+        _bCompleted = bCompleted;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String toString( )
+    {
+        return ( _bCompleted ? "Completed" : "Interrupted" ) + " - Resumed after line : " + _lResumedAfterLine + " - Outcomes : " + _mapCounts;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.CircuitBreaker;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.ResilienceService;
+import fr.paris.lutece.plugins.fccertifier.util.AdaptiveConcurrencyLimiter;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatusType;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearchResponse;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Screen the records of a file against the strict and not strict duplicates rules. The file is streamed and the records are searched in parallel, the
+ * concurrency adapting itself to the errors of identityquality; the reading pauses while its circuit is open. The matches are written to the
+ * <file>.duplicates file as they are found, one line per record and rules set : line;connection_id;STRICT|NOT_STRICT;customer ids.
+ */
+public class DuplicateScreeningJob
+{
+    public static final String SUFFIX_DUPLICATES = ".duplicates";
+    private static final String RULES_STRICT = "STRICT";
+    private static final String RULES_NOT_STRICT = "NOT_STRICT";
+    private static final String IDS_SEPARATOR = ",";
+    private static final long CIRCUIT_OPEN_PAUSE = 1000L;
+
+    private final File _fileInput;
+    private final File _fileDuplicates;
+    private final long _lLogInterval;
+    private final AdaptiveConcurrencyLimiter _limiter;
+    private final DuplicateScreeningStatistics _statistics;
+    private final List<String> _listStrictRules = CertifierService.getStrictRules( );
+    private final List<String> _listNotStrictRules = CertifierService.getNotStrictRules( );
+
+    /**
+     * Constructor
+     *
+     * @param fileInput
+     *            the records file, in the bulk certification format
+     * @param nMaxConcurrency
+     *            the maximum number of records searched in parallel
+     * @param lLogInterval
+     *            the interval between two logs of the statistics, in milliseconds
+     */
+    public DuplicateScreeningJob( File fileInput, int nMaxConcurrency, long lLogInterval )
+    {
+        _fileInput = fileInput;
+        _fileDuplicates = new File( fileInput.getPath( ) + SUFFIX_DUPLICATES );
+        _lLogInterval = lLogInterval;
+        _limiter = new AdaptiveConcurrencyLimiter( nMaxConcurrency );
+        _statistics = new DuplicateScreeningStatistics( fileInput.getName( ), _limiter );
+    }
+
+    /**
+     * Returns the live statistics of the run
+     *
+     * @return the statistics
+     */
+    public DuplicateScreeningStatistics getStatistics( )
+    {
+        return _statistics;
+    }
+
+    /**
+     * Run the screening
+     *
+     * @return the statistics
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    public DuplicateScreeningStatistics run( ) throws IOException
+    {
+        ExecutorService executor = Executors.newCachedThreadPool( new NamedThreadFactory( "fccertifier-screening-" ) );
+        boolean bInterrupted = false;
+
+        try ( BufferedReader reader = Files.newBufferedReader( _fileInput.toPath( ), StandardCharsets.UTF_8 );
+                BufferedWriter writer = Files.newBufferedWriter( _fileDuplicates.toPath( ), StandardCharsets.UTF_8 ) )
+        {
+            try
+            {
+                readAndScreen( reader, writer, executor );
+                _limiter.awaitIdle( );
+                _statistics.setCompleted( true );
+            }
+            catch( InterruptedException e )
+            {
+                bInterrupted = true;
+            }
+            finally
+            {
+                // The screenings in progress must end before the writer is closed
+                executor.shutdownNow( );
+                awaitTermination( executor );
+            }
+        }
+
+        if ( bInterrupted )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        AppLogService.info( "FCCertifier : duplicate screening {}", _statistics );
+
+        return _statistics;
+    }
+
+    /**
+     * Read the records and submit their screening
+     *
+     * @param reader
+     *            the records reader
+     * @param writer
+     *            the matches writer
+     * @param executor
+     *            the executor
+     * @throws IOException
+     *             if the records can't be read
+     * @throws InterruptedException
+     *             if the job is interrupted
+     */
+    private void readAndScreen( BufferedReader reader, BufferedWriter writer, ExecutorService executor ) throws IOException, InterruptedException
+    {
+        long lLineNumber = 0;
+        long lNextLog = System.currentTimeMillis( ) + _lLogInterval;
+        String strLine;
+
+        while ( ( strLine = reader.readLine( ) ) != null )
+        {
+            lLineNumber++;
+
+            if ( !BulkCertificationRecord.isRecord( strLine ) )
+            {
+                continue;
+            }
+
+            _statistics.incrementRead( );
+
+            BulkCertificationRecord record;
+
+            try
+            {
+                record = BulkCertificationRecord.parse( lLineNumber, strLine );
+            }
+            catch( IllegalArgumentException e )
+            {
+                _statistics.incrementInvalid( );
+                continue;
+            }
+
+            awaitBackend( );
+            _limiter.acquire( );
+            executor.execute( ( ) -> screen( record, writer ) );
+
+            if ( System.currentTimeMillis( ) >= lNextLog )
+            {
+                AppLogService.info( "FCCertifier : duplicate screening {}", _statistics );
+                lNextLog = System.currentTimeMillis( ) + _lLogInterval;
+            }
+        }
+    }
+
+    /**
+     * Screen a record and write its matches
+     *
+     * @param record
+     *            the record
+     * @param writer
+     *            the matches writer
+     */
+    private void screen( BulkCertificationRecord record, BufferedWriter writer )
+    {
+        boolean bSuccess = false;
+
+        try
+        {
+            FcIdentity fcIdentity = record.toValidationInfos( ).getFCUserInfo( );
+            DuplicateSearchResponse responseStrict = CertifierService.searchDuplicates( fcIdentity, _listStrictRules );
+            DuplicateSearchResponse responseNotStrict = CertifierService.searchDuplicates( fcIdentity, _listNotStrictRules );
+
+            if ( responseStrict != null && responseNotStrict != null )
+            {
+                boolean bMatched = write( record, RULES_STRICT, responseStrict, writer );
+                bMatched |= write( record, RULES_NOT_STRICT, responseNotStrict, writer );
+                _statistics.incrementScreened( bMatched );
+                bSuccess = true;
+            }
+            else
+            {
+                _statistics.incrementErrors( );
+            }
+        }
+        catch( IOException | RuntimeException e )
+        {
+            AppLogService.error( "FCCertifier : duplicate screening failed for line {}", record.getLineNumber( ), e );
+            _statistics.incrementErrors( );
+        }
+        finally
+        {
+            _limiter.release( bSuccess );
+        }
+    }
+
+    /**
+     * Write the matches of a search
+     *
+     * @param record
+     *            the record
+     * @param strRules
+     *            the rules set
+     * @param response
+     *            the search response
+     * @param writer
+     *            the matches writer
+     * @return true if duplicates were found
+     * @throws IOException
+     *             if the matches can't be written
+     */
+    private static boolean write( BulkCertificationRecord record, String strRules, DuplicateSearchResponse response, BufferedWriter writer )
+            throws IOException
+    {
+        if ( response.getStatus( ) == null || !ResponseStatusType.OK.equals( response.getStatus( ).getType( ) )
+                || CollectionUtils.isEmpty( response.getIdentities( ) ) )
+        {
+            return false;
+        }
+
+        String strCustomerIds = response.getIdentities( ).stream( ).map( IdentityDto::getCustomerId ).collect( Collectors.joining( IDS_SEPARATOR ) );
+        String strLine = record.getLineNumber( ) + BulkCertificationRecord.SEPARATOR + record.getConnectionId( ) + BulkCertificationRecord.SEPARATOR
+                + strRules + BulkCertificationRecord.SEPARATOR + StringUtils.defaultString( strCustomerIds );
+
+        synchronized( writer )
+        {
+            writer.write( strLine );
+            writer.newLine( );
+            writer.flush( );
+        }
+
+        return true;
+    }
+
+    /**
+     * Pause the reading while the circuit of identityquality is open
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    private static void awaitBackend( ) throws InterruptedException
+    {
+        while ( ResilienceService.identityQuality( ).getState( ) == CircuitBreaker.State.OPEN )
+        {
+            Thread.sleep( CIRCUIT_OPEN_PAUSE );
+        }
+    }
+
+    /**
+     * Wait for the end of the screenings in progress before closing the writer
+     *
+     * @param executor
+     *            the executor
+     */
+    private static void awaitTermination( ExecutorService executor )
+    {
+        try
+        {
+            executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.fccertifier.util.AdaptiveConcurrencyLimiter;
+
+/**
+ * Live statistics of a duplicate screening run
+ */
+public class DuplicateScreeningStatistics
+{
+    private final String _strFileName;
+    private final long _lStartTime = System.currentTimeMillis( );
+    private final AdaptiveConcurrencyLimiter _limiter;
+    private final AtomicLong _lRead = new AtomicLong( );
+    private final AtomicLong _lScreened = new AtomicLong( );
+    private final AtomicLong _lMatched = new AtomicLong( );
+    private final AtomicLong _lInvalid = new AtomicLong( );
+    private final AtomicLong _lErrors = new AtomicLong( );
+    private volatile boolean _bCompleted;
+
+    /**
+     * Constructor
+     *
+     * @param strFileName
+     *            the screened file name
+     * @param limiter
+     *            the concurrency limiter of the run
+     */
+    DuplicateScreeningStatistics( String strFileName, AdaptiveConcurrencyLimiter limiter )
+    {
+        _strFileName = strFileName;
+        _limiter = limiter;
+    }
+
+    /**
+     * Count a record read
+     */
+    void incrementRead( )
+    {
+        _lRead.incrementAndGet( );
+    }
+
+    /**
+     * Count a record screened
+     *
+     * @param bMatched
+     *            true if duplicates were found
+     */
+    void incrementScreened( boolean bMatched )
+    {
+        _lScreened.incrementAndGet( );
+
+        if ( bMatched )
+        {
+            _lMatched.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Count an invalid record
+     */
+    void incrementInvalid( )
+    {
+        _lInvalid.incrementAndGet( );
+    }
+
+    /**
+     * Count a record which could not be screened
+     */
+    void incrementErrors( )
+    {
+        _lErrors.incrementAndGet( );
+    }
+
+    /**
+     * Sets the completion
+     *
+     * @param bCompleted
+     *            true if the whole file has been screened
+     */
+    void setCompleted( boolean bCompleted )
+    {
+        _bCompleted = bCompleted;
+    }
+
+    /**
+     * Returns the screened file name
+     *
+     * @return the file name
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Returns the number of records read
+     *
+     * @return the count
+     */
+    public long getReadCount( )
+    {
+        return _lRead.get( );
+    }
+
+    /**
+     * Returns the number of records screened
+     *
+     * @return the count
+     */
+    public long getScreenedCount( )
+    {
+        return _lScreened.get( );
+    }
+
+    /**
+     * Returns the number of records having duplicates
+     *
+     * @return the count
+     */
+    public long getMatchedCount( )
+    {
+        return _lMatched.get( );
+    }
+
+    /**
+     * Returns the number of invalid records
+     *
+     * @return the count
+     */
+    public long getInvalidCount( )
+    {
+        return _lInvalid.get( );
+    }
+
+    /**
+     * Returns the number of records which could not be screened
+     *
+     * @return the count
+     */
+    public long getErrorCount( )
+    {
+        return _lErrors.get( );
+    }
+
+    /**
+     * Returns the number of records read and waiting for their screening
+     *
+     * @return the backlog
+     */
+    public long getBacklog( )
+    {
+        return _lRead.get( ) - _lScreened.get( ) - _lErrors.get( );
+    }
+
+    /**
+     * Returns the current concurrency limit
+     *
+     * @return the limit
+     */
+    public int getConcurrencyLimit( )
+    {
+        return _limiter.getLimit( );
+    }
+
+    /**
+     * Returns the throughput since the start of the run
+     *
+     * @return the records screened per second
+     */
+    public double getThroughput( )
+    {
+        long lElapsed = Math.max( 1, System.currentTimeMillis( ) - _lStartTime );
+
+        return ( _lScreened.get( ) + _lErrors.get( ) ) * 1000.0 / lElapsed;
+    }
+
+    /**
+     * Tells if the whole file has been screened
+     *
+     * @return true if completed
+     */
+    public boolean isCompleted( )
+    {
+        return _bCompleted;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String toString( )
+    {
+        return _strFileName + " - Read : " + getReadCount( ) + " - Screened : " + getScreenedCount( ) + " - Matched : " + getMatchedCount( )
+                + " - Invalid : " + getInvalidCount( ) + " - Errors : " + getErrorCount( ) + " - Backlog : " + getBacklog( ) + " - Concurrency : "
+                + getConcurrencyLimit( ) + " - Throughput : " + String.format( Locale.ROOT, "%.1f", getThroughput( ) ) + "/s"
+                + ( _bCompleted ? " - Completed" : "" );
+    }
+}
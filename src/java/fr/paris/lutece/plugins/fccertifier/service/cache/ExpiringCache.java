@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache whose entries expire after a time to live. Null values (misses or errors of the loader) are cached too, with their own shorter
+ * time to live, so that an unavailable backend is not called again for every request.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public class ExpiringCache<K, V>
+{
+    private final String _strName;
+    private final int _nMaxSize;
+    private final long _lTimeToLive;
+    private final long _lNegativeTimeToLive;
+    private final Map<K, Entry<V>> _map;
+    private final AtomicLong _lHits = new AtomicLong( );
+    private final AtomicLong _lMisses = new AtomicLong( );
+    private final AtomicLong _lEvictions = new AtomicLong( );
+    private final AtomicLong _lExpirations = new AtomicLong( );
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the cache name
+     * @param nMaxSize
+     *            the maximum number of entries
+     * @param lTimeToLive
+     *            the time to live of an entry in milliseconds
+     * @param lNegativeTimeToLive
+     *            the time to live of a null entry in milliseconds, 0 to not cache null values
+     */
+    public ExpiringCache( String strName, int nMaxSize, long lTimeToLive, long lNegativeTimeToLive )
+    {
+        _strName = strName;
+        _nMaxSize = nMaxSize;
+        _lTimeToLive = lTimeToLive;
+        _lNegativeTimeToLive = lNegativeTimeToLive;
+        _map = new LinkedHashMap<K, Entry<V>>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, Entry<V>> eldest )
+            {
+                if ( size( ) > _nMaxSize )
+                {
+                    _lEvictions.incrementAndGet( );
+
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for a key, calling the loader on a miss. The loader is called outside of any lock.
+     *
+     * @param key
+     *            the key
+     * @param loader
+     *            the loader, may return null
+     * @return the value, may be null
+     */
+    public V get( K key, Function<K, V> loader )
+    {
+        Entry<V> entry = getEntry( key );
+
+        if ( entry != null )
+        {
+            return entry._value;
+        }
+
+        V value = loader.apply( key );
+        put( key, value );
+
+        return value;
+    }
+
+    /**
+     * Returns the cached value for a key
+     *
+     * @param key
+     *            the key
+     * @return the value or null if not found, expired or negatively cached
+     */
+    public V get( K key )
+    {
+        Entry<V> entry = getEntry( key );
+
+        return ( entry != null ) ? entry._value : null;
+    }
+
+    /**
+     * Put a value in the cache
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value, null for a negative entry
+     */
+    public void put( K key, V value )
+    {
+        long lTimeToLive = ( value != null ) ? _lTimeToLive : _lNegativeTimeToLive;
+
+        if ( _nMaxSize <= 0 || lTimeToLive <= 0 )
+        {
+            return;
+        }
+
+        long lExpiresTime = System.currentTimeMillis( ) + lTimeToLive;
+
+        synchronized( _map )
+        {
+            _map.put( key, new Entry<>( value, lExpiresTime ) );
+        }
+    }
+
+    /**
+     * Remove an entry
+     *
+     * @param key
+     *            the key
+     */
+    public void remove( K key )
+    {
+        synchronized( _map )
+        {
+            _map.remove( key );
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear( )
+    {
+        synchronized( _map )
+        {
+            _map.clear( );
+        }
+    }
+
+    /**
+     * Returns the cache name
+     *
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the number of entries
+     *
+     * @return the size
+     */
+    public int size( )
+    {
+        synchronized( _map )
+        {
+            return _map.size( );
+        }
+    }
+
+    /**
+     * Returns the number of hits
+     *
+     * @return the hits count
+     */
+    public long getHitCount( )
+    {
+        return _lHits.get( );
+    }
+
+    /**
+     * Returns the number of misses (including expired entries)
+     *
+     * @return the misses count
+     */
+    public long getMissCount( )
+    {
+        return _lMisses.get( );
+    }
+
+    /**
+     * Returns the number of entries evicted because the cache was full
+     *
+     * @return the evictions count
+     */
+    public long getEvictionCount( )
+    {
+        return _lEvictions.get( );
+    }
+
+    /**
+     * Returns the number of entries removed because they had expired
+     *
+     * @return the expirations count
+     */
+    public long getExpirationCount( )
+    {
+        return _lExpirations.get( );
+    }
+
+    /**
+     * Get a valid entry and update the counters
+     *
+     * @param key
+     *            the key
+     * @return the entry or null
+     */
+    private Entry<V> getEntry( K key )
+    {
+        Entry<V> entry;
+
+        synchronized( _map )
+        {
+            entry = _map.get( key );
+
+            if ( entry != null && entry._lExpiresTime <= System.currentTimeMillis( ) )
+            {
+                _map.remove( key );
+                _lExpirations.incrementAndGet( );
+                entry = null;
+            }
+        }
+
+        if ( entry != null )
+        {
+            _lHits.incrementAndGet( );
+        }
+        else
+        {
+            _lMisses.incrementAndGet( );
+        }
+
+        return entry;
+    }
+
+    /**
+     * Cache entry
+     *
+     * @param <V>
+     *            the value type
+     */
+    private static final class Entry<V>
+    {
+        private final V _value;
+        private final long _lExpiresTime;
+
+        /**
+         * Constructor
+         *
+         * @param value
+         *            the value
+         * @param lExpiresTime
+         *            the expiration time
+         */
+        Entry( V value, long lExpiresTime )
+        {
+            _value = value;
+            _lExpiresTime = lExpiresTime;
+        }
+    }
+}
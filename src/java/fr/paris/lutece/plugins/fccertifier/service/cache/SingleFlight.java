@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * Coalescing of concurrent loads : while a load is in flight for a key, the other callers for the same key wait for it and share its result instead
+ * of loading the value again. Nothing is kept once the load is over.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public class SingleFlight<K, V>
+{
+    private final String _strName;
+    private final ConcurrentMap<K, CompletableFuture<V>> _mapInFlight = new ConcurrentHashMap<>( );
+    private final LongAdder _lCalls = new LongAdder( );
+    private final LongAdder _lCoalesced = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name, used by the metrics
+     */
+    public SingleFlight( String strName )
+    {
+        _strName = strName;
+    }
+
+    /**
+     * Returns the value of a key, loading it unless a load of the same key is already in flight
+     *
+     * @param key
+     *            the key
+     * @param loader
+     *            the loader, may return null
+     * @return the value, may be null
+     */
+    public V get( K key, Function<K, V> loader )
+    {
+        _lCalls.increment( );
+
+        CompletableFuture<V> future = new CompletableFuture<>( );
+        CompletableFuture<V> futureInFlight = _mapInFlight.putIfAbsent( key, future );
+
+        if ( futureInFlight != null )
+        {
+            _lCoalesced.increment( );
+
+            return await( futureInFlight );
+        }
+
+        try
+        {
+            V value = loader.apply( key );
+            future.complete( value );
+
+            return value;
+        }
+        catch( RuntimeException | Error e )
+        {
+            future.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            _mapInFlight.remove( key, future );
+        }
+    }
+
+    /**
+     * Wait for a load in flight
+     *
+     * @param future
+     *            the load
+     * @return the value
+     */
+    private V await( CompletableFuture<V> future )
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while waiting for " + _strName, e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new AppException( "Shared load of " + _strName + " failed", e.getCause( ) );
+        }
+    }
+
+    /**
+     * Returns the name
+     *
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the number of loads in flight
+     *
+     * @return the number of loads in flight
+     */
+    public int getInFlightCount( )
+    {
+        return _mapInFlight.size( );
+    }
+
+    /**
+     * Returns the number of calls
+     *
+     * @return the number of calls
+     */
+    public long getCallCount( )
+    {
+        return _lCalls.sum( );
+    }
+
+    /**
+     * Returns the number of calls served by a load in flight, that is the number of loads saved
+     *
+     * @return the number of coalesced calls
+     */
+    public long getCoalescedCount( )
+    {
+        return _lCoalesced.sum( );
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.service.bulk.BulkCertificationJob;
+import fr.paris.lutece.plugins.fccertifier.service.bulk.BulkCertificationSummary;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Daemon certifying the records files dropped in the bulk certification directory, the oldest first. A completed file is renamed with the .done suffix
+ * next to its report.
+ */
+public class BulkCertificationDaemon extends Daemon
+{
+    private static final String PROPERTY_DIRECTORY = "fccertifier.bulk.directory";
+    private static final String PROPERTY_THREADS = "fccertifier.bulk.threads";
+    private static final String PROPERTY_RATE = "fccertifier.bulk.ratePerSecond";
+    private static final String PROPERTY_CHUNK_SIZE = "fccertifier.bulk.chunkSize";
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_RATE = 20;
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final String EXTENSION_INPUT = ".csv";
+    private static final String SUFFIX_DONE = ".done";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void run( )
+    {
+        String strDirectory = AppPropertiesService.getProperty( PROPERTY_DIRECTORY );
+
+        if ( StringUtils.isEmpty( strDirectory ) )
+        {
+            setLastRunLogs( "No directory configured" );
+
+            return;
+        }
+
+        File [ ] files = new File( strDirectory ).listFiles( ( dir, name ) -> name.endsWith( EXTENSION_INPUT ) );
+        Optional<File> file = ( files == null ) ? Optional.empty( ) : Arrays.stream( files ).min( Comparator.comparingLong( File::lastModified ) );
+
+        if ( !file.isPresent( ) )
+        {
+            setLastRunLogs( "No file to process" );
+
+            return;
+        }
+
+        BulkCertificationJob job = new BulkCertificationJob( file.get( ), AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ),
+                AppPropertiesService.getPropertyInt( PROPERTY_RATE, DEFAULT_RATE ), AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, DEFAULT_CHUNK_SIZE ) );
+
+        try
+        {
+            BulkCertificationSummary summary = job.run( );
+
+            if ( summary.isCompleted( ) )
+            {
+                job.deleteCheckpoint( );
+
+                if ( !file.get( ).renameTo( new File( file.get( ).getPath( ) + SUFFIX_DONE ) ) )
+                {
+                    AppLogService.error( "FCCertifier : unable to rename the processed file {}", file.get( ).getName( ) );
+                }
+            }
+
+            setLastRunLogs( file.get( ).getName( ) + " : " + summary );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "FCCertifier : bulk certification of {} failed", file.get( ).getName( ), e );
+            setLastRunLogs( file.get( ).getName( ) + " : " + e.getMessage( ) );
+        }
+    }
+}
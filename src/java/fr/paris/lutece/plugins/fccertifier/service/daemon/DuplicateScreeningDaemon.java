@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.service.bulk.DuplicateScreeningJob;
+import fr.paris.lutece.plugins.fccertifier.service.bulk.DuplicateScreeningStatistics;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Daemon screening the records files dropped in the duplicate screening directory, the oldest first. A screened file is renamed with the .screened
+ * suffix next to its duplicates file.
+ */
+public class DuplicateScreeningDaemon extends Daemon
+{
+    private static final String PROPERTY_DIRECTORY = "fccertifier.screening.directory";
+    private static final String PROPERTY_MAX_CONCURRENCY = "fccertifier.screening.maxConcurrency";
+    private static final String PROPERTY_LOG_INTERVAL = "fccertifier.screening.logInterval";
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final int DEFAULT_LOG_INTERVAL = 30;
+    private static final String EXTENSION_INPUT = ".csv";
+    private static final String SUFFIX_SCREENED = ".screened";
+
+    private static volatile DuplicateScreeningStatistics _statistics;
+
+    /**
+     * Returns the statistics of the current or last run
+     *
+     * @return the statistics, null if no file has been screened yet
+     */
+    public static DuplicateScreeningStatistics getStatistics( )
+    {
+        return _statistics;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void run( )
+    {
+        String strDirectory = AppPropertiesService.getProperty( PROPERTY_DIRECTORY );
+
+        if ( StringUtils.isEmpty( strDirectory ) )
+        {
+            setLastRunLogs( "No directory configured" );
+
+            return;
+        }
+
+        File [ ] files = new File( strDirectory ).listFiles( ( dir, name ) -> name.endsWith( EXTENSION_INPUT ) );
+        Optional<File> file = ( files == null ) ? Optional.empty( ) : Arrays.stream( files ).min( Comparator.comparingLong( File::lastModified ) );
+
+        if ( !file.isPresent( ) )
+        {
+            setLastRunLogs( "No file to process" );
+
+            return;
+        }
+
+        DuplicateScreeningJob job = new DuplicateScreeningJob( file.get( ), AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONCURRENCY,
+                DEFAULT_MAX_CONCURRENCY ), AppPropertiesService.getPropertyInt( PROPERTY_LOG_INTERVAL, DEFAULT_LOG_INTERVAL ) * 1000L );
+        _statistics = job.getStatistics( );
+
+        try
+        {
+            DuplicateScreeningStatistics statistics = job.run( );
+
+            if ( statistics.isCompleted( ) && !file.get( ).renameTo( new File( file.get( ).getPath( ) + SUFFIX_SCREENED ) ) )
+            {
+                AppLogService.error( "FCCertifier : unable to rename the screened file {}", file.get( ).getName( ) );
+            }
+
+            setLastRunLogs( statistics.toString( ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "FCCertifier : duplicate screening of {} failed", file.get( ).getName( ), e );
+            setLastRunLogs( file.get( ).getName( ) + " : " + e.getMessage( ) );
+        }
+    }
+}
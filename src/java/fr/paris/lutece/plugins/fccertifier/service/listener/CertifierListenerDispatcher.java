@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.listener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.fccertifier.service.ICertifierBatchListener;
+import fr.paris.lutece.plugins.fccertifier.service.ICertifierListener;
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.portal.service.plugin.PluginEvent;
+import fr.paris.lutece.portal.service.plugin.PluginEventListener;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Dispatches the certification events to the certifier listeners, outside of the request thread. Events are queued in a bounded queue : when it is full,
+ * the event is processed by the calling thread. If the ordering by user is enabled, the events of a user are processed by the same single thread, in
+ * their order of arrival, and the calling thread waits for room in the queue instead.
+ * <p>
+ * Single event listeners ({@link ICertifierListener}) are notified of each event. Batch listeners ({@link ICertifierBatchListener}) are notified of the
+ * events coalesced until the batch is full or its maximum delay has elapsed.
+ * </p>
+ */
+public final class CertifierListenerDispatcher implements PluginEventListener
+{
+    private static final String PROPERTY_THREADS = "fccertifier.listeners.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "fccertifier.listeners.queueSize";
+    private static final String PROPERTY_MAX_ATTEMPTS = "fccertifier.listeners.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "fccertifier.listeners.retryDelay";
+    private static final String PROPERTY_ORDERED_BY_USER = "fccertifier.listeners.orderedByUser";
+    private static final String PROPERTY_BATCH_MAX_SIZE = "fccertifier.listeners.batch.maxSize";
+    private static final String PROPERTY_BATCH_MAX_DELAY = "fccertifier.listeners.batch.maxDelay";
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final int DEFAULT_RETRY_DELAY = 500;
+    private static final int DEFAULT_BATCH_MAX_SIZE = 100;
+    private static final int DEFAULT_BATCH_MAX_DELAY = 1000;
+    private static final String THREAD_NAME_PREFIX = "fccertifier-listener-";
+
+    private static CertifierListenerDispatcher _singleton;
+
+    private final ThreadPoolExecutor [ ] _executors;
+    private final ScheduledThreadPoolExecutor _flushScheduler;
+    private final boolean _bOrderedByUser;
+    private final int _nMaxAttempts;
+    private final long _lRetryDelay;
+    private final int _nBatchMaxSize;
+    private final Map<String, ListenerStatistics> _mapStatistics = new ConcurrentHashMap<>( );
+    private volatile List<ListenerTarget> _listTargets;
+
+    /**
+     * Private constructor
+     */
+    private CertifierListenerDispatcher( )
+    {
+        int nThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ) );
+        int nQueueSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) );
+        _bOrderedByUser = AppPropertiesService.getPropertyBoolean( PROPERTY_ORDERED_BY_USER, false );
+        _nMaxAttempts = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ) );
+        _lRetryDelay = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY );
+        _nBatchMaxSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_MAX_SIZE, DEFAULT_BATCH_MAX_SIZE ) );
+        long lBatchMaxDelay = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_MAX_DELAY, DEFAULT_BATCH_MAX_DELAY ) );
+
+        ThreadFactory threadFactory = new NamedThreadFactory( THREAD_NAME_PREFIX );
+
+        if ( _bOrderedByUser )
+        {
+            // One single thread executor per stripe, a user is always bound to the same stripe
+            _executors = new ThreadPoolExecutor [ nThreads];
+
+            for ( int i = 0; i < nThreads; i++ )
+            {
+                _executors [i] = newExecutor( 1, Math.max( 1, nQueueSize / nThreads ), threadFactory, CertifierListenerDispatcher::waitForRoom );
+            }
+        }
+        else
+        {
+            _executors = new ThreadPoolExecutor [ ] {
+                    newExecutor( nThreads, nQueueSize, threadFactory, new ThreadPoolExecutor.CallerRunsPolicy( ) )
+            };
+        }
+
+        _flushScheduler = new ScheduledThreadPoolExecutor( 1, threadFactory );
+        _flushScheduler.scheduleWithFixedDelay( this::flush, lBatchMaxDelay, lBatchMaxDelay, TimeUnit.MILLISECONDS );
+
+        PluginService.registerPluginEventListener( this );
+    }
+
+    /**
+     * Returns the unique instance
+     *
+     * @return the instance
+     */
+    public static synchronized CertifierListenerDispatcher getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new CertifierListenerDispatcher( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Notify the listeners of a new certified user
+     *
+     * @param infos
+     *            the validation infos
+     */
+    public void notifyCertifiedUser( ValidationInfos infos )
+    {
+        dispatch( infos.getUserConnectionId( ), infos );
+    }
+
+    /**
+     * Returns the calls statistics of the listeners
+     *
+     * @return the statistics
+     */
+    public Collection<ListenerStatistics> getStatistics( )
+    {
+        return Collections.unmodifiableCollection( _mapStatistics.values( ) );
+    }
+
+    /**
+     * Returns the number of events waiting in the queues
+     *
+     * @return the number of pending events
+     */
+    public int getPendingCount( )
+    {
+        int nPending = 0;
+
+        for ( ThreadPoolExecutor executor : _executors )
+        {
+            nPending += executor.getQueue( ).size( );
+        }
+
+        return nPending;
+    }
+
+    /**
+     * Send the coalesced events of the batch listeners
+     */
+    public void flush( )
+    {
+        List<ListenerTarget> listTargets = _listTargets;
+
+        if ( listTargets != null )
+        {
+            listTargets.forEach( this::flush );
+        }
+    }
+
+    /**
+     * Stop accepting events and wait for the pending ones to be processed
+     *
+     * @param lTimeout
+     *            the maximum time to wait in milliseconds
+     */
+    public void shutdown( long lTimeout )
+    {
+        _flushScheduler.shutdown( );
+        flush( );
+
+        for ( ThreadPoolExecutor executor : _executors )
+        {
+            executor.shutdown( );
+        }
+
+        try
+        {
+            long lDeadline = System.currentTimeMillis( ) + lTimeout;
+
+            for ( ThreadPoolExecutor executor : _executors )
+            {
+                executor.awaitTermination( Math.max( 0, lDeadline - System.currentTimeMillis( ) ), TimeUnit.MILLISECONDS );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void processPluginEvent( PluginEvent event )
+    {
+        // Installed plugins may provide or remove listeners
+        flush( );
+        _listTargets = null;
+    }
+
+    /**
+     * Returns the listeners, resolved from the Spring context at first call and after any plugin change
+     *
+     * @return the listeners
+     */
+    private List<ListenerTarget> getTargets( )
+    {
+        List<ListenerTarget> listTargets = _listTargets;
+
+        if ( listTargets == null )
+        {
+            listTargets = new ArrayList<>( );
+
+            for ( ICertifierListener listener : SpringContextService.getBeansOfType( ICertifierListener.class ) )
+            {
+                listTargets.add( new ListenerTarget( new CertifierListenerAdapter( listener ), listener.getClass( ).getName( ), false ) );
+            }
+            for ( ICertifierBatchListener listener : SpringContextService.getBeansOfType( ICertifierBatchListener.class ) )
+            {
+                listTargets.add( new ListenerTarget( listener, listener.getClass( ).getName( ), true ) );
+            }
+
+            listTargets = Collections.unmodifiableList( listTargets );
+            _listTargets = listTargets;
+        }
+
+        return listTargets;
+    }
+
+    /**
+     * Queue an event for each listener
+     *
+     * @param strUserKey
+     *            the user key
+     * @param infos
+     *            the validation infos of the certified user
+     */
+    private void dispatch( String strUserKey, ValidationInfos infos )
+    {
+        ThreadPoolExecutor executor = _executors [( _bOrderedByUser && strUserKey != null ) ? Math.floorMod( strUserKey.hashCode( ), _executors.length )
+                : 0];
+
+        for ( ListenerTarget target : getTargets( ) )
+        {
+            if ( target._bCoalesced )
+            {
+                List<ValidationInfos> listBatch = target.add( infos, _nBatchMaxSize );
+
+                if ( listBatch != null )
+                {
+                    // Batches of a listener all go to the first executor, single threaded when the order matters
+                    _executors [0].execute( ( ) -> deliver( target, listBatch ) );
+                }
+            }
+            else
+            {
+                executor.execute( ( ) -> deliver( target, Collections.singletonList( infos ) ) );
+            }
+        }
+    }
+
+    /**
+     * Send the coalesced events of a listener
+     *
+     * @param target
+     *            the listener
+     */
+    private void flush( ListenerTarget target )
+    {
+        List<ValidationInfos> listBatch = target.drain( );
+
+        if ( listBatch != null )
+        {
+            try
+            {
+                _executors [0].execute( ( ) -> deliver( target, listBatch ) );
+            }
+            catch( RejectedExecutionException e )
+            {
+                AppLogService.error( "Certifier listener dispatcher is shut down, {} events lost for {}", listBatch.size( ), target._strName );
+            }
+        }
+    }
+
+    /**
+     * Deliver events to a listener
+     *
+     * @param target
+     *            the listener
+     * @param listEvents
+     *            the validation infos of the certified users
+     */
+    private void deliver( ListenerTarget target, List<ValidationInfos> listEvents )
+    {
+        notify( target, listener -> listener.addCertifiedUsers( listEvents ) );
+    }
+
+    /**
+     * Notify a listener, retrying on failure
+     *
+     * @param target
+     *            the listener
+     * @param notification
+     *            the notification
+     */
+    private void notify( ListenerTarget target, Consumer<ICertifierBatchListener> notification )
+    {
+        ListenerStatistics statistics = _mapStatistics.computeIfAbsent( target._strName, ListenerStatistics::new );
+
+        for ( int nAttempt = 1; nAttempt <= _nMaxAttempts; nAttempt++ )
+        {
+            long lStart = System.nanoTime( );
+
+            try
+            {
+                notification.accept( target._listener );
+                statistics.record( System.nanoTime( ) - lStart, true );
+
+                return;
+            }
+            catch( RuntimeException e )
+            {
+                statistics.record( System.nanoTime( ) - lStart, false );
+                AppLogService.error( "Error notifying certifier listener {} (attempt {}/{})", target._strName, nAttempt, _nMaxAttempts, e );
+            }
+
+            if ( nAttempt < _nMaxAttempts )
+            {
+                statistics.recordRetry( );
+
+                try
+                {
+                    Thread.sleep( _lRetryDelay * nAttempt );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create an executor with a bounded queue
+     *
+     * @param nThreads
+     *            the number of threads
+     * @param nQueueSize
+     *            the queue size
+     * @param threadFactory
+     *            the thread factory
+     * @param rejectionHandler
+     *            the handler called when the queue is full
+     * @return the executor
+     */
+    private static ThreadPoolExecutor newExecutor( int nThreads, int nQueueSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectionHandler )
+    {
+        return new ThreadPoolExecutor( nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( nQueueSize ), threadFactory,
+                rejectionHandler );
+    }
+
+    /**
+     * Rejection handler blocking the calling thread until the queue has room, so that the order of the events is kept
+     *
+     * @param runnable
+     *            the rejected task
+     * @param executor
+     *            the executor
+     */
+    private static void waitForRoom( Runnable runnable, ThreadPoolExecutor executor )
+    {
+        if ( executor.isShutdown( ) )
+        {
+            throw new RejectedExecutionException( "Certifier listener dispatcher is shut down" );
+        }
+
+        try
+        {
+            executor.getQueue( ).put( runnable );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new RejectedExecutionException( e );
+        }
+    }
+
+    /**
+     * A listener with its pending coalesced events
+     */
+    private static final class ListenerTarget
+    {
+        private final ICertifierBatchListener _listener;
+        private final String _strName;
+        private final boolean _bCoalesced;
+        private List<ValidationInfos> _listPending = new ArrayList<>( );
+
+        /**
+         * Constructor
+         *
+         * @param listener
+         *            the listener
+         * @param strName
+         *            the listener name
+         * @param bCoalesced
+         *            true if the events are coalesced
+         */
+        ListenerTarget( ICertifierBatchListener listener, String strName, boolean bCoalesced )
+        {
+            _listener = listener;
+            _strName = strName;
+            _bCoalesced = bCoalesced;
+        }
+
+        /**
+         * Add a pending event
+         *
+         * @param event
+         *            the event
+         * @param nMaxSize
+         *            the batch maximum size
+         * @return the batch to send if it is full, otherwise null
+         */
+        synchronized List<ValidationInfos> add( ValidationInfos event, int nMaxSize )
+        {
+            _listPending.add( event );
+
+            return ( _listPending.size( ) >= nMaxSize ) ? drain( ) : null;
+        }
+
+        /**
+         * Remove the pending events
+         *
+         * @return the pending events or null if none
+         */
+        synchronized List<ValidationInfos> drain( )
+        {
+            if ( _listPending.isEmpty( ) )
+            {
+                return null;
+            }
+
+            List<ValidationInfos> listBatch = _listPending;
+            _listPending = new ArrayList<>( );
+
+            return listBatch;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.listener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import fr.paris.lutece.plugins.fccertifier.service.metrics.LatencyHistogram;
+import fr.paris.lutece.plugins.fccertifier.service.metrics.MetricsService;
+
+/**
+ * Calls statistics of a certifier listener
+ */
+public class ListenerStatistics
+{
+    private final String _strListenerName;
+    private final AtomicLong _lCalls = new AtomicLong( );
+    private final AtomicLong _lFailures = new AtomicLong( );
+    private final AtomicLong _lRetries = new AtomicLong( );
+    private final AtomicLong _lTotalTime = new AtomicLong( );
+    private final LongAccumulator _lMaxTime = new LongAccumulator( Math::max, 0 );
+    private final LatencyHistogram _histogram;
+
+    /**
+     * Constructor
+     *
+     * @param strListenerName
+     *            the listener name
+     */
+    public ListenerStatistics( String strListenerName )
+    {
+        _strListenerName = strListenerName;
+        _histogram = MetricsService.getHistogram( MetricsService.PREFIX_LISTENER + strListenerName );
+    }
+
+    /**
+     * Record a call
+     *
+     * @param lDurationNanos
+     *            the duration of the call in nanoseconds
+     * @param bSuccess
+     *            true if the call succeeded
+     */
+    public void record( long lDurationNanos, boolean bSuccess )
+    {
+        _lCalls.incrementAndGet( );
+        _lTotalTime.addAndGet( lDurationNanos );
+        _lMaxTime.accumulate( lDurationNanos );
+        _histogram.record( lDurationNanos, bSuccess );
+
+        if ( !bSuccess )
+        {
+            _lFailures.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Record a retry
+     */
+    public void recordRetry( )
+    {
+        _lRetries.incrementAndGet( );
+    }
+
+    /**
+     * Returns the listener name
+     *
+     * @return the listener name
+     */
+    public String getListenerName( )
+    {
+        return _strListenerName;
+    }
+
+    /**
+     * Returns the number of calls
+     *
+     * @return the calls count
+     */
+    public long getCallCount( )
+    {
+        return _lCalls.get( );
+    }
+
+    /**
+     * Returns the number of failed calls
+     *
+     * @return the failures count
+     */
+    public long getFailureCount( )
+    {
+        return _lFailures.get( );
+    }
+
+    /**
+     * Returns the number of retries
+     *
+     * @return the retries count
+     */
+    public long getRetryCount( )
+    {
+        return _lRetries.get( );
+    }
+
+    /**
+     * Returns the mean duration of a call
+     *
+     * @return the mean duration in milliseconds
+     */
+    public double getMeanTime( )
+    {
+        long lCalls = _lCalls.get( );
+
+        return ( lCalls == 0 ) ? 0 : _lTotalTime.get( ) / ( lCalls * 1000000.0 );
+    }
+
+    /**
+     * Returns the maximum duration of a call
+     *
+     * @return the maximum duration in milliseconds
+     */
+    public double getMaxTime( )
+    {
+        return _lMaxTime.get( ) / 1000000.0;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets. Recording is lock free and allocation free, the percentiles are estimated by linear interpolation inside
+ * their bucket.
+ */
+public class LatencyHistogram
+{
+    private static final double [ ] BOUNDS_MILLIS = {
+            0.5, 1, 2, 3, 5, 7.5, 10, 15, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 7500, 10000, 15000, 30000, 60000
+    };
+    private static final long [ ] BOUNDS_NANOS = Arrays.stream( BOUNDS_MILLIS ).mapToLong( d -> (long) ( d * TimeUnit.MILLISECONDS.toNanos( 1 ) ) )
+            .toArray( );
+
+    private final String _strName;
+    private final LongAdder [ ] _buckets = new LongAdder [ BOUNDS_NANOS.length + 1];
+    private final LongAdder _lSumNanos = new LongAdder( );
+    private final LongAdder _lErrors = new LongAdder( );
+    private final LongAccumulator _lMaxNanos = new LongAccumulator( Math::max, 0 );
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name
+     */
+    public LatencyHistogram( String strName )
+    {
+        _strName = strName;
+
+        for ( int i = 0; i < _buckets.length; i++ )
+        {
+            _buckets [i] = new LongAdder( );
+        }
+    }
+
+    /**
+     * Record a duration
+     *
+     * @param lNanos
+     *            the duration in nanoseconds
+     * @param bSuccess
+     *            false to count an error
+     */
+    public void record( long lNanos, boolean bSuccess )
+    {
+        int nIndex = Arrays.binarySearch( BOUNDS_NANOS, lNanos );
+        _buckets [( nIndex >= 0 ) ? nIndex : -nIndex - 1].increment( );
+        _lSumNanos.add( lNanos );
+        _lMaxNanos.accumulate( lNanos );
+
+        if ( !bSuccess )
+        {
+            _lErrors.increment( );
+        }
+    }
+
+    /**
+     * Returns the name
+     *
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the upper bounds of the buckets, the last bucket having no bound
+     *
+     * @return the bounds in milliseconds
+     */
+    public static double [ ] getBoundsMillis( )
+    {
+        return BOUNDS_MILLIS.clone( );
+    }
+
+    /**
+     * Returns a snapshot of the buckets counts
+     *
+     * @return the counts, one more than the bounds
+     */
+    public long [ ] getBucketCounts( )
+    {
+        long [ ] counts = new long [ _buckets.length];
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            counts [i] = _buckets [i].sum( );
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the number of recorded durations
+     *
+     * @return the count
+     */
+    public long getCount( )
+    {
+        long lCount = 0;
+
+        for ( LongAdder bucket : _buckets )
+        {
+            lCount += bucket.sum( );
+        }
+
+        return lCount;
+    }
+
+    /**
+     * Returns the number of errors
+     *
+     * @return the errors count
+     */
+    public long getErrorCount( )
+    {
+        return _lErrors.sum( );
+    }
+
+    /**
+     * Returns the sum of the recorded durations
+     *
+     * @return the sum in milliseconds
+     */
+    public double getSumMillis( )
+    {
+        return _lSumNanos.sum( ) / 1_000_000.0;
+    }
+
+    /**
+     * Returns the longest recorded duration
+     *
+     * @return the max in milliseconds
+     */
+    public double getMaxMillis( )
+    {
+        return _lMaxNanos.get( ) / 1_000_000.0;
+    }
+
+    /**
+     * Estimate a percentile
+     *
+     * @param dQuantile
+     *            the quantile, between 0 and 1
+     * @return the percentile in milliseconds, 0 if nothing has been recorded
+     */
+    public double getPercentile( double dQuantile )
+    {
+        long [ ] counts = getBucketCounts( );
+        long lTotal = Arrays.stream( counts ).sum( );
+
+        if ( lTotal == 0 )
+        {
+            return 0;
+        }
+
+        double dRank = dQuantile * lTotal;
+        long lCumulated = 0;
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            if ( counts [i] > 0 && lCumulated + counts [i] >= dRank )
+            {
+                double dLower = ( i == 0 ) ? 0 : BOUNDS_MILLIS [i - 1];
+                double dUpper = ( i < BOUNDS_MILLIS.length ) ? Math.min( BOUNDS_MILLIS [i], getMaxMillis( ) ) : getMaxMillis( );
+
+                return dLower + ( dUpper - dLower ) * Math.max( 0, dRank - lCumulated ) / counts [i];
+            }
+
+            lCumulated += counts [i];
+        }
+
+        return getMaxMillis( );
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.plugins.fccertifier.service.AsyncCallService;
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService;
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService.CertificationStatus;
+import fr.paris.lutece.plugins.fccertifier.service.FcCertifierPlugin;
+import fr.paris.lutece.plugins.fccertifier.service.IValidationInfosStore;
+import fr.paris.lutece.plugins.fccertifier.service.cache.ExpiringCache;
+import fr.paris.lutece.plugins.fccertifier.service.cache.SingleFlight;
+import fr.paris.lutece.plugins.fccertifier.service.listener.CertifierListenerDispatcher;
+import fr.paris.lutece.plugins.fccertifier.service.listener.ListenerStatistics;
+import fr.paris.lutece.plugins.fccertifier.service.outbox.CertificationOutbox;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.BackendGuard;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.ResilienceService;
+import fr.paris.lutece.plugins.fccertifier.util.InseeUtils;
+
+/**
+ * Export of the stages latencies and of the plugin gauges, as JSON or in the Prometheus text format
+ */
+public final class MetricsExporter
+{
+    private static final String PREFIX = "fccertifier_";
+    private static final double [ ] QUANTILES = {
+            0.5, 0.95, 0.99
+    };
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    /**
+     * Private constructor
+     */
+    private MetricsExporter( )
+    {
+    }
+
+    /**
+     * Export the metrics as JSON
+     *
+     * @return the JSON document
+     * @throws JsonProcessingException
+     *             if the document can't be written
+     */
+    public static String toJson( ) throws JsonProcessingException
+    {
+        Map<String, Object> mapStages = new LinkedHashMap<>( );
+
+        for ( LatencyHistogram histogram : MetricsService.getHistograms( ) )
+        {
+            Map<String, Object> mapStage = new LinkedHashMap<>( );
+            mapStage.put( "count", histogram.getCount( ) );
+            mapStage.put( "errors", histogram.getErrorCount( ) );
+            mapStage.put( "sumMs", histogram.getSumMillis( ) );
+            mapStage.put( "maxMs", histogram.getMaxMillis( ) );
+
+            for ( double dQuantile : QUANTILES )
+            {
+                mapStage.put( "p" + Math.round( dQuantile * 100 ) + "Ms", histogram.getPercentile( dQuantile ) );
+            }
+
+            mapStages.put( histogram.getName( ), mapStage );
+        }
+
+        List<Map<String, Object>> listGauges = new ArrayList<>( );
+
+        for ( Sample sample : collectSamples( ) )
+        {
+            Map<String, Object> mapGauge = new LinkedHashMap<>( );
+            mapGauge.put( "name", sample._strName );
+            mapGauge.put( "labels", sample._mapLabels );
+            mapGauge.put( "value", sample._dValue );
+            listGauges.add( mapGauge );
+        }
+
+        Map<String, Object> mapDocument = new LinkedHashMap<>( );
+        mapDocument.put( "stages", mapStages );
+        mapDocument.put( "gauges", listGauges );
+
+        return _mapper.writeValueAsString( mapDocument );
+    }
+
+    /**
+     * Export the metrics in the Prometheus text format
+     *
+     * @return the document
+     */
+    public static String toPrometheus( )
+    {
+        StringBuilder sb = new StringBuilder( );
+        double [ ] bounds = LatencyHistogram.getBoundsMillis( );
+        String strHistogram = PREFIX + "stage_duration_seconds";
+        String strQuantiles = PREFIX + "stage_latency_seconds";
+        String strErrors = PREFIX + "stage_errors_total";
+
+        sb.append( "# TYPE " ).append( strHistogram ).append( " histogram\n" );
+
+        for ( LatencyHistogram histogram : MetricsService.getHistograms( ) )
+        {
+            String strStage = "stage=\"" + escape( histogram.getName( ) ) + "\"";
+            long [ ] counts = histogram.getBucketCounts( );
+            long lCumulated = 0;
+
+            for ( int i = 0; i < counts.length; i++ )
+            {
+                lCumulated += counts [i];
+                String strBound = ( i < bounds.length ) ? format( bounds [i] / 1000 ) : "+Inf";
+                sb.append( strHistogram ).append( "_bucket{" ).append( strStage ).append( ",le=\"" ).append( strBound ).append( "\"} " ).append( lCumulated )
+                        .append( '\n' );
+            }
+
+            sb.append( strHistogram ).append( "_sum{" ).append( strStage ).append( "} " ).append( format( histogram.getSumMillis( ) / 1000 ) ).append( '\n' );
+            sb.append( strHistogram ).append( "_count{" ).append( strStage ).append( "} " ).append( lCumulated ).append( '\n' );
+        }
+
+        sb.append( "# TYPE " ).append( strQuantiles ).append( " gauge\n" );
+
+        for ( LatencyHistogram histogram : MetricsService.getHistograms( ) )
+        {
+            for ( double dQuantile : QUANTILES )
+            {
+                sb.append( strQuantiles ).append( "{stage=\"" ).append( escape( histogram.getName( ) ) ).append( "\",quantile=\"" ).append( format( dQuantile ) )
+                        .append( "\"} " ).append( format( histogram.getPercentile( dQuantile ) / 1000 ) ).append( '\n' );
+            }
+        }
+
+        sb.append( "# TYPE " ).append( strErrors ).append( " counter\n" );
+
+        for ( LatencyHistogram histogram : MetricsService.getHistograms( ) )
+        {
+            sb.append( strErrors ).append( "{stage=\"" ).append( escape( histogram.getName( ) ) ).append( "\"} " ).append( histogram.getErrorCount( ) )
+                    .append( '\n' );
+        }
+
+        String strLastName = null;
+
+        for ( Sample sample : collectSamples( ) )
+        {
+            String strName = PREFIX + sample._strName;
+
+            if ( !strName.equals( strLastName ) )
+            {
+                sb.append( "# TYPE " ).append( strName ).append( strName.endsWith( "_total" ) ? " counter\n" : " gauge\n" );
+                strLastName = strName;
+            }
+
+            sb.append( strName );
+
+            if ( !sample._mapLabels.isEmpty( ) )
+            {
+                sb.append( '{' );
+                String strSeparator = "";
+
+                for ( Map.Entry<String, String> label : sample._mapLabels.entrySet( ) )
+                {
+                    sb.append( strSeparator ).append( label.getKey( ) ).append( "=\"" ).append( escape( label.getValue( ) ) ).append( '"' );
+                    strSeparator = ",";
+                }
+
+                sb.append( '}' );
+            }
+
+            sb.append( ' ' ).append( format( sample._dValue ) ).append( '\n' );
+        }
+
+        return sb.toString( );
+    }
+
+    /**
+     * Collect the gauges and counters of the caches, stores, backends and listeners, grouped by name
+     *
+     * @return the samples
+     */
+    private static List<Sample> collectSamples( )
+    {
+        List<Sample> listSamples = new ArrayList<>( );
+        List<ExpiringCache<?, ?>> listCaches = Arrays.asList( CertifierService.getIdentitiesCache( ), CertifierService.getDuplicateSearchesCache( ),
+                InseeUtils.getPlacesCache( ), InseeUtils.getCountriesCache( ) );
+
+        listCaches.forEach( c -> listSamples.add( new Sample( "cache_size", "cache", c.getName( ), c.size( ) ) ) );
+        listCaches.forEach( c -> listSamples.add( new Sample( "cache_hits_total", "cache", c.getName( ), c.getHitCount( ) ) ) );
+        listCaches.forEach( c -> listSamples.add( new Sample( "cache_misses_total", "cache", c.getName( ), c.getMissCount( ) ) ) );
+        listCaches.forEach( c -> listSamples.add( new Sample( "cache_evictions_total", "cache", c.getName( ), c.getEvictionCount( ) ) ) );
+        listCaches.forEach( c -> listSamples.add( new Sample( "cache_expirations_total", "cache", c.getName( ), c.getExpirationCount( ) ) ) );
+
+        SingleFlight<?, ?> flight = CertifierService.getIdentitiesSingleFlight( );
+        listSamples.add( new Sample( "singleflight_in_flight", "flight", flight.getName( ), flight.getInFlightCount( ) ) );
+        listSamples.add( new Sample( "singleflight_calls_total", "flight", flight.getName( ), flight.getCallCount( ) ) );
+        listSamples.add( new Sample( "singleflight_coalesced_total", "flight", flight.getName( ), flight.getCoalescedCount( ) ) );
+
+        for ( CertificationStatus status : CertificationStatus.values( ) )
+        {
+            listSamples.add( new Sample( "certifications_total", "status", status.name( ), CertifierService.getCertificationCount( status ) ) );
+        }
+
+        listSamples.add( new Sample( "validations_deduplicated_total", null, null, CertifierService.getDuplicateValidationCount( ) ) );
+
+        CertificationOutbox outbox = CertificationOutbox.getInstance( );
+        listSamples.add( new Sample( "outbox_pending", null, null, outbox.getPendingCount( ) ) );
+        listSamples.add( new Sample( "outbox_failed", null, null, outbox.getFailedCount( ) ) );
+        listSamples.add( new Sample( "outbox_applied_total", null, null, outbox.getAppliedCount( ) ) );
+        listSamples.add( new Sample( "outbox_retries_total", null, null, outbox.getRetryCount( ) ) );
+        listSamples.add( new Sample( "outbox_abandoned_total", null, null, outbox.getAbandonedCount( ) ) );
+
+        IValidationInfosStore store = CertifierService.getValidationInfosStore( );
+        listSamples.add( new Sample( "validation_infos_size", null, null, store.size( ) ) );
+        listSamples.add( new Sample( "validation_infos_capacity", null, null, store.getCapacity( ) ) );
+        listSamples.add( new Sample( "validation_infos_evictions_total", null, null, store.getEvictionCount( ) ) );
+        listSamples.add( new Sample( "validation_infos_expirations_total", null, null, store.getExpirationCount( ) ) );
+
+        List<BackendGuard> listGuards = ResilienceService.getGuards( );
+        listGuards.forEach( g -> listSamples.add( new Sample( "backend_circuit_state", "backend", g.getName( ), g.getState( ).ordinal( ) ) ) );
+        listGuards.forEach( g -> listSamples.add( new Sample( "backend_calls_total", "backend", g.getName( ), g.getCallCount( ) ) ) );
+        listGuards.forEach( g -> listSamples.add( new Sample( "backend_failures_total", "backend", g.getName( ), g.getFailureCount( ) ) ) );
+        listGuards.forEach( g -> listSamples.add( new Sample( "backend_timeouts_total", "backend", g.getName( ), g.getTimeoutCount( ) ) ) );
+        listGuards.forEach( g -> listSamples.add( new Sample( "backend_rejections_total", "backend", g.getName( ), g.getRejectionCount( ) ) ) );
+
+        CertifierListenerDispatcher dispatcher = CertifierListenerDispatcher.getInstance( );
+        listSamples.add( new Sample( "listener_pending", null, null, dispatcher.getPendingCount( ) ) );
+
+        for ( ListenerStatistics statistics : dispatcher.getStatistics( ) )
+        {
+            listSamples.add( new Sample( "listener_retries_total", "listener", statistics.getListenerName( ), statistics.getRetryCount( ) ) );
+        }
+
+        listSamples.add( new Sample( "async_pending", null, null, AsyncCallService.getPendingCount( ) ) );
+        listSamples.add( new Sample( "plugin_ready", null, null, FcCertifierPlugin.getReadiness( ).isServing( ) ? 1 : 0 ) );
+
+        return listSamples;
+    }
+
+    /**
+     * Format a value
+     *
+     * @param dValue
+     *            the value
+     * @return the formatted value
+     */
+    private static String format( double dValue )
+    {
+        return ( dValue == Math.rint( dValue ) && Math.abs( dValue ) < 1e15 ) ? String.valueOf( (long) dValue ) : String.format( Locale.ROOT, "%.6f", dValue );
+    }
+
+    /**
+     * Escape a label value
+     *
+     * @param strValue
+     *            the value
+     * @return the escaped value
+     */
+    private static String escape( String strValue )
+    {
+        return strValue.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\n", "\\n" );
+    }
+
+    /**
+     * A gauge or counter value
+     */
+    private static final class Sample
+    {
+        private final String _strName;
+        private final Map<String, String> _mapLabels;
+        private final double _dValue;
+
+        /**
+         * Constructor
+         *
+         * @param strName
+         *            the name
+         * @param strLabel
+         *            the label name, or null
+         * @param strLabelValue
+         *            the label value
+         * @param dValue
+         *            the value
+         */
+        Sample( String strName, String strLabel, String strLabelValue, double dValue )
+        {
+            _strName = strName;
+            _mapLabels = ( strLabel != null ) ? Collections.singletonMap( strLabel, strLabelValue ) : Collections.emptyMap( );
+            _dValue = dValue;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Latency histograms of the certification flow stages
+ */
+public final class MetricsService
+{
+    public static final String STAGE_USERINFO_FETCH = "userinfoFetch";
+    public static final String STAGE_ENRICHMENT = "fcIdentityEnrichment";
+    public static final String STAGE_GET_IDENTITY = "getIdentity";
+    public static final String STAGE_UPDATE_IDENTITY = "updateIdentity";
+    public static final String STAGE_SEARCH_DUPLICATES = "searchDuplicates";
+    public static final String PREFIX_LISTENER = "listener:";
+
+    private static final Map<String, LatencyHistogram> _mapHistograms = new ConcurrentSkipListMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private MetricsService( )
+    {
+    }
+
+    /**
+     * Returns the histogram of a stage, created on first use
+     *
+     * @param strStage
+     *            the stage
+     * @return the histogram
+     */
+    public static LatencyHistogram getHistogram( String strStage )
+    {
+        return _mapHistograms.computeIfAbsent( strStage, LatencyHistogram::new );
+    }
+
+    /**
+     * Record the duration of a stage
+     *
+     * @param strStage
+     *            the stage
+     * @param lStartNanos
+     *            the start of the stage, from System.nanoTime( )
+     * @param bSuccess
+     *            false to count an error
+     */
+    public static void record( String strStage, long lStartNanos, boolean bSuccess )
+    {
+        getHistogram( strStage ).record( System.nanoTime( ) - lStartNanos, bSuccess );
+    }
+
+    /**
+     * Returns the histograms, sorted by stage
+     *
+     * @return the histograms
+     */
+    public static Collection<LatencyHistogram> getHistograms( )
+    {
+        return Collections.unmodifiableCollection( _mapHistograms.values( ) );
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.outbox;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import fr.paris.lutece.plugins.fccertifier.business.CertificationIntent;
+import fr.paris.lutece.plugins.fccertifier.business.CertificationIntentHome;
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService;
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService.CertificationStatus;
+import fr.paris.lutece.plugins.fccertifier.service.FcCertifierPlugin;
+import fr.paris.lutece.plugins.fccertifier.service.ValidationInfos;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Outbox of the certifications. A certification is stored in the plugin database with the completion of its validation, before the user gets the
+ * answer, then applied by a worker pool. A failed attempt is retried with an exponential backoff until fccertifier.outbox.maxAttempts attempts, the
+ * intent being then kept with the failed status, as is at once an intent whose identity is unknown to the identitystore. An unavailable
+ * identitystore is retried like any other failure. The intents not applied at once (full pool, retries, restart of the node) are claimed by the
+ * outbox daemon, through a conditional update so that the daemons of several nodes don't apply the same intent.
+ */
+public final class CertificationOutbox
+{
+    private static final String PROPERTY_ENABLED = "fccertifier.outbox.enabled";
+    private static final String PROPERTY_THREADS = "fccertifier.outbox.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "fccertifier.outbox.queueSize";
+    private static final String PROPERTY_MAX_ATTEMPTS = "fccertifier.outbox.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "fccertifier.outbox.retryDelay";
+    private static final String PROPERTY_MAX_RETRY_DELAY = "fccertifier.outbox.maxRetryDelay";
+    private static final String PROPERTY_LEASE = "fccertifier.outbox.lease";
+    private static final String PROPERTY_BATCH_SIZE = "fccertifier.outbox.batchSize";
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 10;
+    private static final int DEFAULT_RETRY_DELAY = 10;
+    private static final int DEFAULT_MAX_RETRY_DELAY = 3600;
+    private static final int DEFAULT_LEASE = 120;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final String THREAD_NAME_PREFIX = "fccertifier-outbox-";
+
+    private static CertificationOutbox _singleton;
+
+    private final boolean _bEnabled;
+    private final int _nMaxAttempts;
+    private final long _lRetryDelay;
+    private final long _lMaxRetryDelay;
+    private final long _lLease;
+    private final int _nBatchSize;
+    private final ThreadPoolExecutor _executor;
+    private final CertifierService _certifierService = new CertifierService( );
+    private final LongAdder _lApplied = new LongAdder( );
+    private final LongAdder _lRetries = new LongAdder( );
+    private final LongAdder _lFailed = new LongAdder( );
+    private volatile int _nPendingCount;
+    private volatile int _nFailedCount;
+
+    /**
+     * Constructor
+     */
+    private CertificationOutbox( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+        _nMaxAttempts = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ) );
+        _lRetryDelay = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY ) ) * 1000L;
+        _lMaxRetryDelay = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_RETRY_DELAY, DEFAULT_MAX_RETRY_DELAY ) ) * 1000L;
+        _lLease = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_LEASE, DEFAULT_LEASE ) ) * 1000L;
+        _nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+
+        int nThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ) );
+        int nQueueSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) );
+
+        // A rejected intent stays in the database and is claimed later by the daemon
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( nQueueSize ),
+                new NamedThreadFactory( THREAD_NAME_PREFIX ), new ThreadPoolExecutor.DiscardPolicy( ) );
+    }
+
+    /**
+     * Returns the unique instance
+     *
+     * @return the outbox
+     */
+    public static synchronized CertificationOutbox getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new CertificationOutbox( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Certify the identity of a validation. The certification is stored in the same transaction as the completion of the validation, then applied
+     * asynchronously. If the outbox is disabled, the validation is completed and the certification applied at once.
+     *
+     * @param infos
+     *            the validation infos holding the identity to certify
+     * @param completion
+     *            the completion of the validation, returning false if another request has completed it first
+     * @return false if the validation was completed by another request : nothing is stored
+     */
+    public boolean submit( ValidationInfos infos, BooleanSupplier completion )
+    {
+        if ( !_bEnabled )
+        {
+            if ( !completion.getAsBoolean( ) )
+            {
+                return false;
+            }
+            _certifierService.certify( infos );
+
+            return true;
+        }
+
+        long lNow = System.currentTimeMillis( );
+        CertificationIntent intent = new CertificationIntent( );
+        intent.setUserConnectionId( infos.getUserConnectionId( ) );
+        intent.setUserEmail( infos.getUserEmail( ) );
+        intent.setIdentity( infos.getFCUserInfo( ) );
+        intent.setCreationTime( lNow );
+        intent.setNextAttemptTime( lNow + _lLease );
+        intent.setStatus( CertificationIntent.STATUS_PENDING );
+
+        Plugin plugin = PluginService.getPlugin( FcCertifierPlugin.PLUGIN_NAME );
+        TransactionManager.beginTransaction( plugin );
+
+        try
+        {
+            CertificationIntentHome.create( intent );
+
+            if ( !completion.getAsBoolean( ) )
+            {
+                TransactionManager.rollBack( plugin );
+
+                return false;
+            }
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin );
+            throw e;
+        }
+
+        _executor.execute( ( ) -> apply( intent ) );
+
+        return true;
+    }
+
+    /**
+     * Claim the intents due and submit them to the worker pool
+     *
+     * @return the number of intents submitted
+     */
+    public int processDue( )
+    {
+        int nRoom = _executor.getQueue( ).remainingCapacity( );
+        int nSubmitted = 0;
+
+        if ( nRoom > 0 )
+        {
+            List<CertificationIntent> listIntents = CertificationIntentHome.claimDue( System.currentTimeMillis( ), _lLease, Math.min( nRoom, _nBatchSize ) );
+
+            for ( CertificationIntent intent : listIntents )
+            {
+                _executor.execute( ( ) -> apply( intent ) );
+            }
+            nSubmitted = listIntents.size( );
+        }
+
+        _nPendingCount = CertificationIntentHome.countByStatus( CertificationIntent.STATUS_PENDING );
+        _nFailedCount = CertificationIntentHome.countByStatus( CertificationIntent.STATUS_FAILED );
+
+        return nSubmitted;
+    }
+
+    /**
+     * Apply an intent : the listeners are notified by certify on success only
+     *
+     * @param intent
+     *            the intent
+     */
+    private void apply( CertificationIntent intent )
+    {
+        String strError;
+        boolean bPermanent = false;
+
+        if ( intent.getIdentity( ) == null )
+        {
+            strError = "Unreadable identity";
+            bPermanent = true;
+        }
+        else
+        {
+            try
+            {
+                CertificationStatus status = _certifierService.certify( intent.toValidationInfos( ) );
+
+                if ( status == CertificationStatus.CERTIFIED || status == CertificationStatus.UNCHANGED )
+                {
+                    CertificationIntentHome.remove( intent.getId( ) );
+                    _lApplied.increment( );
+
+                    return;
+                }
+                strError = status.name( );
+                // A real "no identity" answer only : UNAVAILABLE and FAILED are retried with the backoff
+                bPermanent = status == CertificationStatus.NOT_FOUND;
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "FCCertifier : certification of {} failed", intent.getUserConnectionId( ), e );
+                strError = String.valueOf( e.getMessage( ) );
+            }
+        }
+
+        onFailure( intent, strError, bPermanent );
+    }
+
+    /**
+     * Schedule the next attempt of a failed intent, or mark it as failed after the last attempt or a permanent error
+     *
+     * @param intent
+     *            the intent
+     * @param strError
+     *            the error of the attempt
+     * @param bPermanent
+     *            true if another attempt would fail the same way
+     */
+    private void onFailure( CertificationIntent intent, String strError, boolean bPermanent )
+    {
+        int nAttempts = intent.getAttempts( ) + 1;
+        intent.setAttempts( nAttempts );
+        intent.setLastError( strError );
+
+        if ( nAttempts >= _nMaxAttempts || bPermanent )
+        {
+            AppLogService.error( "FCCertifier : certification of {} abandoned after {} attempts : {}", intent.getUserConnectionId( ), nAttempts, strError );
+            intent.setStatus( CertificationIntent.STATUS_FAILED );
+            _lFailed.increment( );
+        }
+        else
+        {
+            intent.setNextAttemptTime( System.currentTimeMillis( ) + getRetryDelay( nAttempts ) );
+            _lRetries.increment( );
+        }
+
+        try
+        {
+            CertificationIntentHome.update( intent );
+        }
+        catch( AppException e )
+        {
+            // The lease expires and the intent is claimed again
+            AppLogService.error( "FCCertifier : unable to store the attempt of the certification of {}", intent.getUserConnectionId( ), e );
+        }
+    }
+
+    /**
+     * Compute the delay before an attempt : the retry delay doubled on each failure, up to the maximum delay, with a jitter of a quarter of the delay
+     * so that the intents failed during an outage are not all retried at once
+     *
+     * @param nAttempts
+     *            the number of failed attempts
+     * @return the delay in milliseconds
+     */
+    private long getRetryDelay( int nAttempts )
+    {
+        long lDelay = Math.min( _lMaxRetryDelay, _lRetryDelay << Math.min( nAttempts - 1, 30 ) );
+
+        return lDelay - ThreadLocalRandom.current( ).nextLong( lDelay / 4 + 1 );
+    }
+
+    /**
+     * Returns the number of pending intents, as counted by the last daemon run
+     *
+     * @return the number of pending intents
+     */
+    public int getPendingCount( )
+    {
+        return _nPendingCount;
+    }
+
+    /**
+     * Returns the number of abandoned intents, as counted by the last daemon run
+     *
+     * @return the number of failed intents
+     */
+    public int getFailedCount( )
+    {
+        return _nFailedCount;
+    }
+
+    /**
+     * Returns the number of intents applied by this node
+     *
+     * @return the count
+     */
+    public long getAppliedCount( )
+    {
+        return _lApplied.sum( );
+    }
+
+    /**
+     * Returns the number of retries scheduled by this node
+     *
+     * @return the count
+     */
+    public long getRetryCount( )
+    {
+        return _lRetries.sum( );
+    }
+
+    /**
+     * Returns the number of intents abandoned by this node
+     *
+     * @return the count
+     */
+    public long getAbandonedCount( )
+    {
+        return _lFailed.sum( );
+    }
+
+    /**
+     * Stop the worker pool, waiting for the intents being applied. The intents still queued stay in the database.
+     *
+     * @param lTimeout
+     *            the maximum time to wait in milliseconds
+     */
+    public void shutdown( long lTimeout )
+    {
+        _executor.shutdown( );
+
+        try
+        {
+            if ( !_executor.awaitTermination( lTimeout, TimeUnit.MILLISECONDS ) )
+            {
+                _executor.shutdownNow( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            _executor.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
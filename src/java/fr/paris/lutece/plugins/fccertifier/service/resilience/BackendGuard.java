@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.resilience;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.fccertifier.service.metrics.MetricsService;
+import fr.paris.lutece.plugins.fccertifier.util.NamedThreadFactory;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Protects the calls to a remote backend : each call runs on a bounded pool dedicated to the backend, with a timeout, behind a circuit breaker. When the
+ * backend is unavailable, the calls fail fast and return the degraded value given by the call site.
+ */
+public class BackendGuard
+{
+    private static final String PROPERTY_PREFIX = "fccertifier.resilience.";
+    private static final String SUFFIX_TIMEOUT = ".timeout";
+    private static final String SUFFIX_THREADS = ".threads";
+    private static final String SUFFIX_QUEUE_SIZE = ".queueSize";
+    private static final String SUFFIX_WINDOW_SIZE = ".windowSize";
+    private static final String SUFFIX_MINIMUM_CALLS = ".minimumCalls";
+    private static final String SUFFIX_FAILURE_RATE_THRESHOLD = ".failureRateThreshold";
+    private static final String SUFFIX_OPEN_DURATION = ".openDuration";
+    private static final String SUFFIX_HALF_OPEN_PROBES = ".halfOpenProbes";
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final int DEFAULT_THREADS = 10;
+    private static final int DEFAULT_QUEUE_SIZE = 50;
+    private static final int DEFAULT_WINDOW_SIZE = 50;
+    private static final int DEFAULT_MINIMUM_CALLS = 10;
+    private static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    private static final int DEFAULT_OPEN_DURATION = 30000;
+    private static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private final String _strName;
+    private final long _lTimeout;
+    private final CircuitBreaker _circuitBreaker;
+    private final ThreadPoolExecutor _executor;
+    private final AtomicLong _lCalls = new AtomicLong( );
+    private final AtomicLong _lFailures = new AtomicLong( );
+    private final AtomicLong _lTimeouts = new AtomicLong( );
+    private final AtomicLong _lRejections = new AtomicLong( );
+
+    /**
+     * Constructor, configured by the properties fccertifier.resilience.[name].*
+     *
+     * @param strName
+     *            the backend name
+     */
+    public BackendGuard( String strName )
+    {
+        _strName = strName;
+        _lTimeout = getProperty( SUFFIX_TIMEOUT, DEFAULT_TIMEOUT );
+        _circuitBreaker = new CircuitBreaker( getProperty( SUFFIX_WINDOW_SIZE, DEFAULT_WINDOW_SIZE ), getProperty( SUFFIX_MINIMUM_CALLS, DEFAULT_MINIMUM_CALLS ),
+                getProperty( SUFFIX_FAILURE_RATE_THRESHOLD, DEFAULT_FAILURE_RATE_THRESHOLD ), getProperty( SUFFIX_OPEN_DURATION, DEFAULT_OPEN_DURATION ),
+                getProperty( SUFFIX_HALF_OPEN_PROBES, DEFAULT_HALF_OPEN_PROBES ) );
+
+        int nThreads = Math.max( 1, getProperty( SUFFIX_THREADS, DEFAULT_THREADS ) );
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( Math.max( 1, getProperty( SUFFIX_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) ) ),
+                new NamedThreadFactory( "fccertifier-" + strName + "-" ), new ThreadPoolExecutor.AbortPolicy( ) );
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Call the backend
+     *
+     * @param <T>
+     *            the result type
+     * @param call
+     *            the call
+     * @param degradedValue
+     *            the value returned if the backend is unavailable, fails or times out
+     * @param strCallName
+     *            the call name, for the logs and the latency metrics
+     * @return the result, or the degraded value
+     */
+    public <T> T call( Callable<T> call, T degradedValue, String strCallName )
+    {
+        long lStart = System.nanoTime( );
+        boolean bSuccess = false;
+
+        try
+        {
+            T result = doCall( call, strCallName );
+            bSuccess = true;
+
+            return result;
+        }
+        catch( DegradedCallException e )
+        {
+            return degradedValue;
+        }
+        finally
+        {
+            MetricsService.record( strCallName, lStart, bSuccess );
+        }
+    }
+
+    /**
+     * Call the backend through the circuit breaker and the pool
+     *
+     * @param <T>
+     *            the result type
+     * @param call
+     *            the call
+     * @param strCallName
+     *            the call name, for the logs
+     * @return the result
+     * @throws DegradedCallException
+     *             if the backend has not been called or has not answered
+     */
+    private <T> T doCall( Callable<T> call, String strCallName ) throws DegradedCallException
+    {
+        _lCalls.incrementAndGet( );
+
+        CircuitBreaker.Permit permit = _circuitBreaker.tryAcquire( );
+
+        if ( permit == CircuitBreaker.Permit.REJECTED )
+        {
+            _lRejections.incrementAndGet( );
+            AppLogService.debug( "FCCertifier : {} circuit open, {} not called", _strName, strCallName );
+
+            throw new DegradedCallException( );
+        }
+
+        Future<T> future;
+
+        try
+        {
+            future = _executor.submit( call );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // Too many calls waiting for the backend : fail fast and count it as a failure
+            _lRejections.incrementAndGet( );
+            _circuitBreaker.onFailure( permit );
+            AppLogService.error( "FCCertifier : {} saturated, {} not called", _strName, strCallName );
+
+            throw new DegradedCallException( );
+        }
+
+        try
+        {
+            T result = future.get( _lTimeout, TimeUnit.MILLISECONDS );
+            _circuitBreaker.onSuccess( permit );
+
+            return result;
+        }
+        catch( TimeoutException e )
+        {
+            future.cancel( true );
+            _lTimeouts.incrementAndGet( );
+            _lFailures.incrementAndGet( );
+            _circuitBreaker.onFailure( permit );
+            AppLogService.error( "FCCertifier : {} {} timed out after {} ms", _strName, strCallName, _lTimeout );
+        }
+        catch( ExecutionException e )
+        {
+            _lFailures.incrementAndGet( );
+            _circuitBreaker.onFailure( permit );
+            AppLogService.error( "FCCertifier : {} {} failed", _strName, strCallName, e.getCause( ) );
+        }
+        catch( InterruptedException e )
+        {
+            // The caller gave up : no outcome is recorded for the backend
+            future.cancel( true );
+            _circuitBreaker.release( permit );
+            Thread.currentThread( ).interrupt( );
+        }
+
+        throw new DegradedCallException( );
+    }
+
+    /**
+     * Returns the backend name
+     *
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the circuit state
+     *
+     * @return the state
+     */
+    public CircuitBreaker.State getState( )
+    {
+        return _circuitBreaker.getState( );
+    }
+
+    /**
+     * Returns the number of calls
+     *
+     * @return the calls count
+     */
+    public long getCallCount( )
+    {
+        return _lCalls.get( );
+    }
+
+    /**
+     * Returns the number of failed calls, timeouts included
+     *
+     * @return the failures count
+     */
+    public long getFailureCount( )
+    {
+        return _lFailures.get( );
+    }
+
+    /**
+     * Returns the number of timed out calls
+     *
+     * @return the timeouts count
+     */
+    public long getTimeoutCount( )
+    {
+        return _lTimeouts.get( );
+    }
+
+    /**
+     * Returns the number of calls rejected without calling the backend
+     *
+     * @return the rejections count
+     */
+    public long getRejectionCount( )
+    {
+        return _lRejections.get( );
+    }
+
+    /**
+     * Stop the pool
+     */
+    public void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Read a property of the backend
+     *
+     * @param strSuffix
+     *            the property suffix
+     * @param nDefault
+     *            the default value
+     * @return the value
+     */
+    private int getProperty( String strSuffix, int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + _strName + strSuffix, nDefault );
+    }
+
+    /**
+     * Signals a call answered by the degraded value. The failure is already logged : the exception has no stack trace.
+     */
+    private static final class DegradedCallException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         */
+        DegradedCallException( )
+        {
+            super( null, null, false, false );
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.resilience;
+
+/**
+ * Circuit breaker over a rolling window of the last calls outcomes. The circuit opens when the failure rate of the window reaches a threshold, rejects
+ * the calls while open, then lets a few probe calls through (half open) : the circuit closes if they all succeed and opens again otherwise.
+ */
+public class CircuitBreaker
+{
+    /**
+     * Circuit states
+     */
+    public enum State
+    {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Permission given to a call
+     */
+    public enum Permit
+    {
+        REJECTED, NORMAL, PROBE
+    }
+
+    private final int _nMinimumCalls;
+    private final int _nFailureRateThreshold;
+    private final long _lOpenDuration;
+    private final int _nHalfOpenProbes;
+    private final boolean [ ] _window;
+    private int _nWindowIndex;
+    private int _nWindowCount;
+    private int _nWindowFailures;
+    private State _state = State.CLOSED;
+    private long _lOpenedTime;
+    private int _nProbesInFlight;
+    private int _nProbesSucceeded;
+
+    /**
+     * Constructor
+     *
+     * @param nWindowSize
+     *            the number of calls of the rolling window
+     * @param nMinimumCalls
+     *            the minimum number of calls in the window before the failure rate is evaluated
+     * @param nFailureRateThreshold
+     *            the failure rate opening the circuit, in percent
+     * @param lOpenDuration
+     *            the time the circuit stays open before probing, in milliseconds
+     * @param nHalfOpenProbes
+     *            the number of probe calls needed to close the circuit
+     */
+    public CircuitBreaker( int nWindowSize, int nMinimumCalls, int nFailureRateThreshold, long lOpenDuration, int nHalfOpenProbes )
+    {
+        _window = new boolean [ Math.max( 1, nWindowSize )];
+        _nMinimumCalls = Math.max( 1, Math.min( nMinimumCalls, _window.length ) );
+        _nFailureRateThreshold = nFailureRateThreshold;
+        _lOpenDuration = lOpenDuration;
+        _nHalfOpenProbes = Math.max( 1, nHalfOpenProbes );
+    }
+
+    /**
+     * Ask the permission to make a call
+     *
+     * @return the permit
+     */
+    public synchronized Permit tryAcquire( )
+    {
+        if ( _state == State.OPEN && System.currentTimeMillis( ) - _lOpenedTime >= _lOpenDuration )
+        {
+            _state = State.HALF_OPEN;
+            _nProbesInFlight = 0;
+            _nProbesSucceeded = 0;
+        }
+
+        switch( _state )
+        {
+            case CLOSED:
+                return Permit.NORMAL;
+            case HALF_OPEN:
+                if ( _nProbesInFlight + _nProbesSucceeded < _nHalfOpenProbes )
+                {
+                    _nProbesInFlight++;
+
+                    return Permit.PROBE;
+                }
+                return Permit.REJECTED;
+            default:
+                return Permit.REJECTED;
+        }
+    }
+
+    /**
+     * Record a successful call
+     *
+     * @param permit
+     *            the permit of the call
+     */
+    public synchronized void onSuccess( Permit permit )
+    {
+        if ( permit == Permit.PROBE )
+        {
+            if ( _state == State.HALF_OPEN )
+            {
+                _nProbesInFlight--;
+                _nProbesSucceeded++;
+
+                if ( _nProbesSucceeded >= _nHalfOpenProbes )
+                {
+                    close( );
+                }
+            }
+        }
+        else
+            if ( _state == State.CLOSED )
+            {
+                record( false );
+            }
+    }
+
+    /**
+     * Record a failed call
+     *
+     * @param permit
+     *            the permit of the call
+     */
+    public synchronized void onFailure( Permit permit )
+    {
+        if ( permit == Permit.PROBE )
+        {
+            if ( _state == State.HALF_OPEN )
+            {
+                open( );
+            }
+        }
+        else
+            if ( _state == State.CLOSED )
+            {
+                record( true );
+
+                if ( _nWindowCount >= _nMinimumCalls && _nWindowFailures * 100 >= _nFailureRateThreshold * _nWindowCount )
+                {
+                    open( );
+                }
+            }
+    }
+
+    /**
+     * Give back the permit of a call whose outcome says nothing about the backend, for instance an interrupted call. A probe permit can be acquired
+     * again.
+     *
+     * @param permit
+     *            the permit of the call
+     */
+    public synchronized void release( Permit permit )
+    {
+        if ( permit == Permit.PROBE && _state == State.HALF_OPEN )
+        {
+            _nProbesInFlight--;
+        }
+    }
+
+    /**
+     * Returns the state
+     *
+     * @return the state
+     */
+    public synchronized State getState( )
+    {
+        return _state;
+    }
+
+    /**
+     * Record an outcome in the rolling window
+     *
+     * @param bFailure
+     *            true for a failure
+     */
+    private void record( boolean bFailure )
+    {
+        if ( _nWindowCount == _window.length )
+        {
+            if ( _window [_nWindowIndex] )
+            {
+                _nWindowFailures--;
+            }
+        }
+        else
+        {
+            _nWindowCount++;
+        }
+
+        _window [_nWindowIndex] = bFailure;
+
+        if ( bFailure )
+        {
+            _nWindowFailures++;
+        }
+
+        _nWindowIndex = ( _nWindowIndex + 1 ) % _window.length;
+    }
+
+    /**
+     * Open the circuit
+     */
+    private void open( )
+    {
+        _state = State.OPEN;
+        _lOpenedTime = System.currentTimeMillis( );
+    }
+
+    /**
+     * Close the circuit and reset the window
+     */
+    private void close( )
+    {
+        _state = State.CLOSED;
+        _nWindowIndex = 0;
+        _nWindowCount = 0;
+        _nWindowFailures = 0;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.service.resilience;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Guards of the remote backends used by the plugin
+ */
+public final class ResilienceService
+{
+    public static final String BACKEND_IDENTITYSTORE = "identitystore";
+    public static final String BACKEND_IDENTITYQUALITY = "identityquality";
+    public static final String BACKEND_GEOCODES = "geocodes";
+
+    private static final BackendGuard _guardIdentityStore = new BackendGuard( BACKEND_IDENTITYSTORE );
+    private static final BackendGuard _guardIdentityQuality = new BackendGuard( BACKEND_IDENTITYQUALITY );
+    private static final BackendGuard _guardGeocodes = new BackendGuard( BACKEND_GEOCODES );
+
+    /**
+     * Private constructor
+     */
+    private ResilienceService( )
+    {
+    }
+
+    /**
+     * Returns the guard of the identitystore backend
+     *
+     * @return the guard
+     */
+    public static BackendGuard identityStore( )
+    {
+        return _guardIdentityStore;
+    }
+
+    /**
+     * Returns the guard of the identityquality backend
+     *
+     * @return the guard
+     */
+    public static BackendGuard identityQuality( )
+    {
+        return _guardIdentityQuality;
+    }
+
+    /**
+     * Returns the guard of the geocodes backend
+     *
+     * @return the guard
+     */
+    public static BackendGuard geocodes( )
+    {
+        return _guardGeocodes;
+    }
+
+    /**
+     * Returns all the guards
+     *
+     * @return the guards
+     */
+    public static List<BackendGuard> getGuards( )
+    {
+        return Collections.unmodifiableList( Arrays.asList( _guardIdentityStore, _guardIdentityQuality, _guardGeocodes ) );
+    }
+
+    /**
+     * Stop the pools of all the guards
+     */
+    public static void shutdown( )
+    {
+        getGuards( ).forEach( BackendGuard::shutdown );
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.util;
+
+/**
+ * Concurrency limiter adapting its limit to the health of the called backend : the limit grows by one after a full round of successful calls and is
+ * halved on each failure (additive increase, multiplicative decrease).
+ */
+public class AdaptiveConcurrencyLimiter
+{
+    private final int _nMaxLimit;
+    private int _nLimit;
+    private int _nInFlight;
+    private int _nSuccessesSinceIncrease;
+
+    /**
+     * Constructor
+     *
+     * @param nMaxLimit
+     *            the maximum number of calls in flight, also the initial limit
+     */
+    public AdaptiveConcurrencyLimiter( int nMaxLimit )
+    {
+        _nMaxLimit = Math.max( 1, nMaxLimit );
+        _nLimit = _nMaxLimit;
+    }
+
+    /**
+     * Wait until a call can be made
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public synchronized void acquire( ) throws InterruptedException
+    {
+        while ( _nInFlight >= _nLimit )
+        {
+            wait( );
+        }
+
+        _nInFlight++;
+    }
+
+    /**
+     * Release a call and adapt the limit to its outcome
+     *
+     * @param bSuccess
+     *            true if the call succeeded
+     */
+    public synchronized void release( boolean bSuccess )
+    {
+        _nInFlight--;
+
+        if ( bSuccess )
+        {
+            if ( ++_nSuccessesSinceIncrease >= _nLimit )
+            {
+                _nLimit = Math.min( _nMaxLimit, _nLimit + 1 );
+                _nSuccessesSinceIncrease = 0;
+            }
+        }
+        else
+        {
+            _nLimit = Math.max( 1, _nLimit / 2 );
+            _nSuccessesSinceIncrease = 0;
+        }
+
+        notifyAll( );
+    }
+
+    /**
+     * Wait until no call is in flight
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public synchronized void awaitIdle( ) throws InterruptedException
+    {
+        while ( _nInFlight > 0 )
+        {
+            wait( );
+        }
+    }
+
+    /**
+     * Returns the current limit
+     *
+     * @return the limit
+     */
+    public synchronized int getLimit( )
+    {
+        return _nLimit;
+    }
+
+    /**
+     * Returns the number of calls in flight
+     *
+     * @return the calls in flight
+     */
+    public synchronized int getInFlight( )
+    {
+        return _nInFlight;
+    }
+}
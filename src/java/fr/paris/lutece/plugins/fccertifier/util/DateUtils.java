@@ -35,18 +35,17 @@
 package fr.paris.lutece.plugins.fccertifier.util;
 
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.portal.web.l10n.LocaleService;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
 
 /**
- * DateUtils
+ * DateUtils. Conversions are done on the characters of the dates, without shared formatters, so they are thread-safe and need no locking.
  */
 public final class DateUtils
 {
-    private static final SimpleDateFormat DATE_FORMAT_IDENTITYSTORE = new SimpleDateFormat( "dd/MM/yyyy" , LocaleService.getDefault() );
-    private static final SimpleDateFormat DATE_FORMAT_FRANCECONNECT = new SimpleDateFormat( "yyyy-MM-dd" , LocaleService.getDefault() );
+    private static final int FC_DATE_LENGTH = 10; // yyyy-MM-dd
+    private static final int IDS_DATE_LENGTH = 10; // dd/MM/yyyy
+    private static final char FC_DATE_SEPARATOR = '-';
+    private static final char IDS_DATE_SEPARATOR = '/';
 
     /**
      * Private constructor
@@ -60,19 +59,153 @@ public final class DateUtils
      * @param strDate The input date
      * @return The output date
      */
-    public static synchronized String convertFcToIds( String strDate )
+    public static String convertFcToIds( String strDate )
     {
-        String strConvertedDate = null;
-        try
+        LocalDate date = parseFcDate( strDate );
+
+        return ( date != null ) ? formatIds( date ) : null;
+    }
+
+    /**
+     * Parse a FranceConnect date (yyyy-MM-dd). Parsing is strict : the date must have this exact format and exist in the calendar.
+     * @param strDate The input date
+     * @return The date or null if invalid
+     */
+    public static LocalDate parseFcDate( String strDate )
+    {
+        if ( strDate == null )
+        {
+            return null;
+        }
+
+        if ( strDate.length( ) == FC_DATE_LENGTH && strDate.charAt( 4 ) == FC_DATE_SEPARATOR && strDate.charAt( 7 ) == FC_DATE_SEPARATOR )
+        {
+            LocalDate date = toDate( parseDigits( strDate, 0, 4 ), parseDigits( strDate, 5, 7 ), parseDigits( strDate, 8, 10 ) );
+
+            if ( date != null )
+            {
+                return date;
+            }
+        }
+
+        AppLogService.error( "Error converting date : invalid FranceConnect date {}", strDate );
+
+        return null;
+    }
+
+    /**
+     * Parse an IdentityStore date (dd/MM/yyyy). Parsing is strict : the date must have this exact format and exist in the calendar.
+     * @param strDate The input date
+     * @return The date or null if invalid
+     */
+    public static LocalDate parseIdsDate( String strDate )
+    {
+        if ( strDate == null || strDate.length( ) != IDS_DATE_LENGTH || strDate.charAt( 2 ) != IDS_DATE_SEPARATOR
+                || strDate.charAt( 5 ) != IDS_DATE_SEPARATOR )
         {
-            Date date = DATE_FORMAT_FRANCECONNECT.parse( strDate );
-            strConvertedDate = DATE_FORMAT_IDENTITYSTORE.format( date );
+            return null;
         }
-        catch( ParseException ex )
+
+        return toDate( parseDigits( strDate, 6, 10 ), parseDigits( strDate, 3, 5 ), parseDigits( strDate, 0, 2 ) );
+    }
+
+    /**
+     * Format a date to the IdentityStore format (dd/MM/yyyy)
+     * @param date The date
+     * @return The formatted date
+     */
+    public static String formatIds( LocalDate date )
+    {
+        char [ ] chars = new char [ IDS_DATE_LENGTH];
+        writeDigits( chars, 0, date.getDayOfMonth( ), 2 );
+        chars [2] = IDS_DATE_SEPARATOR;
+        writeDigits( chars, 3, date.getMonthValue( ), 2 );
+        chars [5] = IDS_DATE_SEPARATOR;
+        writeDigits( chars, 6, date.getYear( ), 4 );
+
+        return new String( chars );
+    }
+
+    /**
+     * Build a date from its fields if they are valid
+     * @param nYear The year
+     * @param nMonth The month
+     * @param nDay The day of month
+     * @return The date or null if invalid
+     */
+    private static LocalDate toDate( int nYear, int nMonth, int nDay )
+    {
+        if ( nYear < 1 || nMonth < 1 || nMonth > 12 || nDay < 1 || nDay > lengthOfMonth( nYear, nMonth ) )
+        {
+            return null;
+        }
+
+        return LocalDate.of( nYear, nMonth, nDay );
+    }
+
+    /**
+     * Returns the number of days of a month
+     * @param nYear The year
+     * @param nMonth The month
+     * @return The number of days
+     */
+    private static int lengthOfMonth( int nYear, int nMonth )
+    {
+        switch( nMonth )
+        {
+            case 2:
+                return ( ( nYear % 4 == 0 && nYear % 100 != 0 ) || nYear % 400 == 0 ) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Parse the decimal digits of a substring
+     * @param strValue The string
+     * @param nStart The start index
+     * @param nEnd The end index (exclusive)
+     * @return The value or -1 if a character is not a digit
+     */
+    private static int parseDigits( String strValue, int nStart, int nEnd )
+    {
+        int nValue = 0;
+
+        for ( int i = nStart; i < nEnd; i++ )
+        {
+            char c = strValue.charAt( i );
+
+            if ( c < '0' || c > '9' )
+            {
+                return -1;
+            }
+            nValue = nValue * 10 + ( c - '0' );
+        }
+
+        return nValue;
+    }
+
+    /**
+     * Write a value as zero padded decimal digits
+     * @param chars The destination
+     * @param nOffset The offset
+     * @param nValue The value
+     * @param nDigits The number of digits
+     */
+    private static void writeDigits( char [ ] chars, int nOffset, int nValue, int nDigits )
+    {
+        int nRemaining = nValue;
+
+        for ( int i = nOffset + nDigits - 1; i >= nOffset; i-- )
         {
-            AppLogService.error( "Error converting date : " + ex, ex );
+            chars [i] = (char) ( '0' + nRemaining % 10 );
+            nRemaining /= 10;
         }
-        return strConvertedDate;
     }
 
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * FingerprintUtils : canonical fingerprints of search requests
+ */
+public final class FingerprintUtils
+{
+    private static final String ALGORITHM = "SHA-256";
+    private static final char VALUE_SEPARATOR = '\u0000';
+    private static final char ENTRY_SEPARATOR = '\u0001';
+    private static final char SECTION_SEPARATOR = '\u0002';
+    private static final char [ ] HEX_DIGITS = "0123456789abcdef".toCharArray( );
+
+    /**
+     * Private constructor
+     */
+    private FingerprintUtils( )
+    {
+    }
+
+    /**
+     * Compute the fingerprint of a map of attributes and a list of codes. Attributes and codes are sorted, values are trimmed, lower cased and their
+     * inner blanks collapsed, so that equivalent requests have the same fingerprint.
+     *
+     * @param mapAttributes
+     *            the attributes
+     * @param listCodes
+     *            the codes
+     * @return the fingerprint as an hexadecimal string
+     */
+    public static String fingerprint( Map<String, String> mapAttributes, List<String> listCodes )
+    {
+        StringBuilder sbCanonical = new StringBuilder( );
+
+        if ( mapAttributes != null )
+        {
+            for ( Map.Entry<String, String> entry : new TreeMap<>( mapAttributes ).entrySet( ) )
+            {
+                sbCanonical.append( entry.getKey( ) ).append( VALUE_SEPARATOR ).append( normalize( entry.getValue( ) ) ).append( ENTRY_SEPARATOR );
+            }
+        }
+
+        sbCanonical.append( SECTION_SEPARATOR );
+
+        if ( listCodes != null )
+        {
+            List<String> listSortedCodes = new ArrayList<>( listCodes );
+            Collections.sort( listSortedCodes );
+
+            for ( String strCode : listSortedCodes )
+            {
+                sbCanonical.append( normalize( strCode ) ).append( ENTRY_SEPARATOR );
+            }
+        }
+
+        return hash( sbCanonical.toString( ) );
+    }
+
+    /**
+     * Normalize a value
+     *
+     * @param strValue
+     *            the value
+     * @return the normalized value
+     */
+    private static String normalize( String strValue )
+    {
+        return ( strValue == null ) ? "" : strValue.trim( ).replaceAll( "\\s+", " " ).toLowerCase( Locale.ROOT );
+    }
+
+    /**
+     * Hash a string
+     *
+     * @param strValue
+     *            the string
+     * @return the hash as an hexadecimal string
+     */
+    private static String hash( String strValue )
+    {
+        try
+        {
+            byte [ ] hash = MessageDigest.getInstance( ALGORITHM ).digest( strValue.getBytes( StandardCharsets.UTF_8 ) );
+            char [ ] chars = new char [ hash.length * 2];
+
+            for ( int i = 0; i < hash.length; i++ )
+            {
+                chars [2 * i] = HEX_DIGITS [( hash [i] >> 4 ) & 0x0F];
+                chars [2 * i + 1] = HEX_DIGITS [hash [i] & 0x0F];
+            }
+
+            return new String( chars );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new AppException( "Unable to compute a fingerprint", e );
+        }
+    }
+}
@@ -34,17 +34,22 @@
 package fr.paris.lutece.plugins.fccertifier.util;
 
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
-import java.util.Locale;
 
 import org.apache.commons.lang3.StringUtils;
 
+import fr.paris.lutece.plugins.fccertifier.service.InseeReferenceIndex;
+import fr.paris.lutece.plugins.fccertifier.service.InseeReferenceService;
+import fr.paris.lutece.plugins.fccertifier.service.cache.ExpiringCache;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.ResilienceService;
 import fr.paris.lutece.plugins.geocode.v1.web.rs.dto.City;
 import fr.paris.lutece.plugins.geocode.v1.web.rs.dto.Country;
 import fr.paris.lutece.plugins.geocode.v1.web.service.GeoCodeService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.util.date.DateUtil;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 
 /**
@@ -52,8 +57,25 @@ import fr.paris.lutece.util.date.DateUtil;
  */
 public final class InseeUtils
 {
-     private static GeoCodeService _geoCodeService = SpringContextService.getBean( "geocodes.geoCodesService" );
-     
+    private static final String PROPERTY_CACHE_MAX_SIZE = "fccertifier.insee.cache.maxSize";
+    private static final String PROPERTY_CACHE_TTL = "fccertifier.insee.cache.timeToLive";
+    private static final String PROPERTY_CACHE_NEGATIVE_TTL = "fccertifier.insee.cache.negativeTimeToLive";
+    private static final int DEFAULT_CACHE_MAX_SIZE = 5000;
+    private static final int DEFAULT_CACHE_TTL = 86400;
+    private static final int DEFAULT_CACHE_NEGATIVE_TTL = 60;
+    private static final int CACHE_MAX_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE );
+    private static final long CACHE_TTL = AppPropertiesService.getPropertyInt( PROPERTY_CACHE_TTL, DEFAULT_CACHE_TTL ) * 1000L;
+    private static final long CACHE_NEGATIVE_TTL = AppPropertiesService.getPropertyInt( PROPERTY_CACHE_NEGATIVE_TTL, DEFAULT_CACHE_NEGATIVE_TTL ) * 1000L;
+    private static final char KEY_SEPARATOR = '|';
+
+    private static final String BEAN_GEOCODES_SERVICE = "geocodes.geoCodesService";
+
+    private static GeoCodeService _geoCodeService;
+    private static final ExpiringCache<String, String> _cachePlaces = new ExpiringCache<>( "fccertifier.inseePlaces", CACHE_MAX_SIZE, CACHE_TTL,
+            CACHE_NEGATIVE_TTL );
+    private static final ExpiringCache<String, String> _cacheCountries = new ExpiringCache<>( "fccertifier.inseeCountries", CACHE_MAX_SIZE, CACHE_TTL,
+            CACHE_NEGATIVE_TTL );
+
     /**
      * Private constructor
      */
@@ -67,16 +89,138 @@ public final class InseeUtils
      * @param strCode
      *            The INSEE code
      * @param strBirthdate
-     *            The birthdate
+     *            The birthdate in IdentityStore format
      * @return The name
      */
     public static String getPlaceName( String strCode, String strBirthdate )
     {
-        Date birthdate = DateUtil.formatDate( strBirthdate, Locale.FRANCE );
+        return getPlaceName( strCode, DateUtils.parseIdsDate( strBirthdate ) );
+    }
+
+    /**
+     * Give the name of the place for a given INSEE code
+     * 
+     * @param strCode
+     *            The INSEE code
+     * @param birthdate
+     *            The birthdate
+     * @return The name, empty if the code is blank or unknown
+     */
+    public static String getPlaceName( String strCode, LocalDate birthdate )
+    {
+        // No birthplace code for the users born abroad : nothing to look up
+        if ( StringUtils.isBlank( strCode ) )
+        {
+            return StringUtils.EMPTY;
+        }
+
+        InseeReferenceIndex index = InseeReferenceService.getIndex( );
+
+        String strName = index.getPlaceName( strCode, birthdate );
+        if ( strName != null )
+        {
+            return strName;
+        }
+
+        String strKey = strCode + KEY_SEPARATOR + index.getPlacePeriodKey( strCode, birthdate );
+        strName = _cachePlaces.get( strKey, k -> fetchPlaceName( strCode, toDate( birthdate ) ) );
+
+        return ( strName != null ) ? strName : StringUtils.EMPTY;
+    }
+
+    /**
+     * Give the name of the country for a given INSEE code
+     * 
+     * @param strCode
+     *            The INSEE code
+     * @param strBirthdate
+     *            The birthdate in IdentityStore format
+     * @return The name
+     */
+    public static String getCountryName( String strCode, String strBirthdate )
+    {
+        return getCountryName( strCode, DateUtils.parseIdsDate( strBirthdate ) );
+    }
+
+    /**
+     * Give the name of the country for a given INSEE code
+     * 
+     * @param strCode
+     *            The INSEE code
+     * @param birthdate
+     *            The birthdate
+     * @return The name, empty if the code is blank or unknown
+     */
+    public static String getCountryName( String strCode, LocalDate birthdate )
+    {
+        if ( StringUtils.isBlank( strCode ) )
+        {
+            return StringUtils.EMPTY;
+        }
+
+        InseeReferenceIndex index = InseeReferenceService.getIndex( );
+
+        String strName = index.getCountryName( strCode, birthdate );
+        if ( strName != null )
+        {
+            return strName;
+        }
+
+        String strKey = strCode + KEY_SEPARATOR + index.getCountryPeriodKey( strCode, birthdate );
+        strName = _cacheCountries.get( strKey, k -> fetchCountryName( strCode, toDate( birthdate ) ) );
+
+        return ( strName != null ) ? strName : StringUtils.EMPTY;
+    }
+
+    /**
+     * Returns the cache of the places resolved by the geocodes service
+     * 
+     * @return The cache
+     */
+    public static ExpiringCache<String, String> getPlacesCache( )
+    {
+        return _cachePlaces;
+    }
+
+    /**
+     * Returns the cache of the countries resolved by the geocodes service
+     * 
+     * @return The cache
+     */
+    public static ExpiringCache<String, String> getCountriesCache( )
+    {
+        return _cacheCountries;
+    }
+
+    /**
+     * Returns the geocodes service, resolved at first use : the INSEE index answers most lookups without it
+     * 
+     * @return The service
+     */
+    public static GeoCodeService getGeoCodeService( )
+    {
+        if ( _geoCodeService == null )
+        {
+            _geoCodeService = SpringContextService.getBean( BEAN_GEOCODES_SERVICE );
+        }
 
+        return _geoCodeService;
+    }
+
+    /**
+     * Call the geocodes service to get the name of a place
+     * 
+     * @param strCode
+     *            The INSEE code
+     * @param birthdate
+     *            The birthdate
+     * @return The name or null if not found or on error
+     */
+    private static String fetchPlaceName( String strCode, Date birthdate )
+    {
         try
         {
-            City city = _geoCodeService.getCityByCodeAndDate( strCode, birthdate );
+            City city = ResilienceService.geocodes( ).call( ( ) -> getGeoCodeService( ).getCityByCodeAndDate( strCode, birthdate ), null, "getCityByCodeAndDate" );
             if ( city != null )
             {
                 return city.getValue( );
@@ -86,25 +230,24 @@ public final class InseeUtils
             AppLogService.error( "Une erreur s'est produite lors de la récupération de la ville de naissance pour le code INSEE {}", strCode, e.getMessage( ) );
         }
 
-        return StringUtils.EMPTY;
+        return null;
     }
 
     /**
-     * Give the name of the country for a given INSEE code
+     * Call the geocodes service to get the name of a country
      * 
      * @param strCode
      *            The INSEE code
-     * @param strBirthdate
+     * @param birthdate
      *            The birthdate
-     * @return The name
+     * @return The name or null if not found or on error
      */
-    public static String getCountryName( String strCode, String strBirthdate )
+    private static String fetchCountryName( String strCode, Date birthdate )
     {
-        Date birthdate = DateUtil.formatDate( strBirthdate, Locale.FRANCE );
-
         try
         {
-            Country country = _geoCodeService.getCountryByCodeAndDate( strCode, birthdate );
+            Country country = ResilienceService.geocodes( ).call( ( ) -> getGeoCodeService( ).getCountryByCodeAndDate( strCode, birthdate ), null,
+                    "getCountryByCodeAndDate" );
             if ( country != null )
             {
                 return country.getValue( );
@@ -114,6 +257,18 @@ public final class InseeUtils
             AppLogService.error( "Une erreur s'est produite lors de la récupération du pays de naissance pour le code INSEE {}", strCode, e.getMessage( ) );
         }
 
-        return StringUtils.EMPTY;
+        return null;
+    }
+
+    /**
+     * Convert a local date to a date
+     * 
+     * @param date
+     *            The local date
+     * @return The date or null
+     */
+    private static Date toDate( LocalDate date )
+    {
+        return ( date != null ) ? Date.from( date.atStartOfDay( ZoneId.systemDefault( ) ).toInstant( ) ) : null;
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter spacing the permits evenly over time
+ */
+public class RateLimiter
+{
+    private final long _lIntervalNanos;
+    private long _lNextPermitTime;
+
+    /**
+     * Constructor
+     *
+     * @param nPermitsPerSecond
+     *            the number of permits per second, 0 or less for no limit
+     */
+    public RateLimiter( int nPermitsPerSecond )
+    {
+        _lIntervalNanos = ( nPermitsPerSecond > 0 ) ? TimeUnit.SECONDS.toNanos( 1 ) / nPermitsPerSecond : 0;
+        _lNextPermitTime = System.nanoTime( );
+    }
+
+    /**
+     * Wait for a permit
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public void acquire( ) throws InterruptedException
+    {
+        if ( _lIntervalNanos == 0 )
+        {
+            return;
+        }
+
+        long lWait;
+
+        synchronized( this )
+        {
+            long lNow = System.nanoTime( );
+
+            if ( _lNextPermitTime - lNow < 0 )
+            {
+                _lNextPermitTime = lNow;
+            }
+
+            lWait = _lNextPermitTime - lNow;
+            _lNextPermitTime += _lIntervalNanos;
+        }
+
+        if ( lWait > 0 )
+        {
+            TimeUnit.NANOSECONDS.sleep( lWait );
+        }
+    }
+}
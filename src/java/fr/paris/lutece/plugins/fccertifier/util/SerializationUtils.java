@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpSession;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * SerializationUtils : Java serialization of the objects kept in the HTTP session or in the database, and measure of their size
+ */
+public final class SerializationUtils
+{
+    /**
+     * Private constructor
+     */
+    private SerializationUtils( )
+    {
+    }
+
+    /**
+     * Serialize an object
+     *
+     * @param object
+     *            the object
+     * @return the bytes, or null for a null object
+     */
+    public static byte [ ] serialize( Serializable object )
+    {
+        if ( object == null )
+        {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+
+        try ( ObjectOutputStream oos = new ObjectOutputStream( out ) )
+        {
+            oos.writeObject( object );
+        }
+        catch( IOException e )
+        {
+            throw new AppException( "Unable to serialize " + object.getClass( ).getName( ), e );
+        }
+
+        return out.toByteArray( );
+    }
+
+    /**
+     * Deserialize an object
+     *
+     * @param bytes
+     *            the bytes
+     * @return the object, or null if the bytes are null or can't be read
+     */
+    public static Object deserialize( byte [ ] bytes )
+    {
+        if ( bytes == null )
+        {
+            return null;
+        }
+
+        try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) )
+        {
+            return ois.readObject( );
+        }
+        catch( IOException | ClassNotFoundException e )
+        {
+            AppLogService.error( "FCCertifier : unable to deserialize an object : {}", e.getMessage( ) );
+
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the Java serialization of an object, as written by a session replication
+     *
+     * @param object
+     *            the object
+     * @return the size in bytes, or -1 if the object is not serializable
+     */
+    public static long getSerializedSize( Object object )
+    {
+        CountingOutputStream out = new CountingOutputStream( );
+
+        try ( ObjectOutputStream oos = new ObjectOutputStream( out ) )
+        {
+            oos.writeObject( object );
+        }
+        catch( IOException e )
+        {
+            AppLogService.debug( "FCCertifier : unable to serialize {} : {}", object.getClass( ).getName( ), e.getMessage( ) );
+            return -1;
+        }
+
+        return out._lCount;
+    }
+
+    /**
+     * Returns the number of bytes of the Java serialization of all the attributes of a session
+     *
+     * @param session
+     *            the session
+     * @return the size in bytes, the attributes that are not serializable being ignored
+     */
+    public static long getSerializedSize( HttpSession session )
+    {
+        long lSize = 0;
+        Enumeration<String> names = session.getAttributeNames( );
+
+        while ( names.hasMoreElements( ) )
+        {
+            Object attribute = session.getAttribute( names.nextElement( ) );
+
+            if ( attribute != null )
+            {
+                lSize += Math.max( 0, getSerializedSize( attribute ) );
+            }
+        }
+
+        return lSize;
+    }
+
+    /**
+     * Output stream only counting the written bytes
+     */
+    private static final class CountingOutputStream extends OutputStream
+    {
+        private long _lCount;
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void write( int b )
+        {
+            _lCount++;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void write( byte [ ] b, int off, int len )
+        {
+            _lCount += len;
+        }
+    }
+}
@@ -43,8 +43,8 @@ import fr.paris.lutece.plugins.fccertifier.business.FcIdentity;
 import fr.paris.lutece.plugins.fccertifier.dataclient.UserDataClient;
 import fr.paris.lutece.plugins.fccertifier.service.CertifierService;
 import fr.paris.lutece.plugins.fccertifier.service.CertifierService.ValidationResult;
+import fr.paris.lutece.plugins.fccertifier.service.SuspiciousIdentityService;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
-import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.UserInfo;
 import fr.paris.lutece.plugins.oauth2.modules.franceconnect.business.service.FranceConnectService;
 import fr.paris.lutece.plugins.verifybackurl.service.AuthorizedUrlService;
 import fr.paris.lutece.portal.service.security.LuteceUser;
@@ -159,10 +159,20 @@ public class FranceConnectCertifierApp extends MVCApplication
         LuteceUser user = checkUserAuthentication( request );
         Map<String, Object> model = getModel( );
 
-        UserInfo fcUserInfo = (UserInfo) request.getSession( ).getAttribute( UserDataClient.ATTRIBUTE_USERINFO );
-        IdentityDto identity = CertifierService.getIdentity( user.getName( ) );
+        FcIdentity fcIdentity = UserDataClient.getFcIdentity( request );
 
-        model.put( MARK_FC_INFOS, new FcIdentity( fcUserInfo ) );
+        if ( fcIdentity == null )
+        {
+            return redirectView( request, VIEW_HOME );
+        }
+
+        // Started by the FranceConnect callback, unless the user was not known then
+        SuspiciousIdentityService.startCheck( user.getName( ), fcIdentity );
+
+        // The identitystore guard bounds the duration of the call
+        IdentityDto identity = CertifierService.getPivotIdentity( user.getName( ) );
+
+        model.put( MARK_FC_INFOS, fcIdentity );
         model.put( MARK_IDENTITY, identity );
 
         return getXPage( TEMPLATE_VALIDATE_DATA, LocaleService.getDefault( ), model );
@@ -179,21 +189,26 @@ public class FranceConnectCertifierApp extends MVCApplication
     public XPage doCertify( HttpServletRequest request ) throws UserNotSignedException
     {
         LuteceUser user = checkUserAuthentication( request );
-        UserInfo fcUserInfo = (UserInfo) request.getSession( ).getAttribute( UserDataClient.ATTRIBUTE_USERINFO );        
+        FcIdentity fcIdentity = UserDataClient.getFcIdentity( request );
+
+        if ( fcIdentity == null )
+        {
+            return redirectView( request, VIEW_HOME );
+        }
         
         //Suspicious identity
-        if( CertifierService.existStrictSuspiciousIdentities( new FcIdentity( fcUserInfo ), user.getName( ) ) )
+        if( SuspiciousIdentityService.isStrictSuspicious( user.getName( ), fcIdentity ) )
         {
             return redirect( request, new UrlItem( URL_SUSPICIOUS_IDENTITY ).getUrl( ) );
         } 
         
-        ValidationResult result = _certifierService.validate( request, fcUserInfo );
+        ValidationResult result = _certifierService.validate( request, fcIdentity );
 
         if ( result != ValidationResult.OK )
         {
             addError( result.getMessageKey( ), LocaleService.getDefault( ) );
 
-            if ( result == ValidationResult.SESSION_EXPIRED )
+            if ( result == ValidationResult.SESSION_EXPIRED || result == ValidationResult.CODE_EXPIRED )
             {
                 return redirectView( request, VIEW_HOME );
             }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.plugins.fccertifier.service.FcCertifierPlugin;
+import fr.paris.lutece.plugins.fccertifier.service.FcCertifierPlugin.Readiness;
+
+/**
+ * Servlet exposing the readiness of the plugin : 200 once the warm-up is over, 503 while starting or stopping
+ */
+public class HealthServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 1L;
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_CHECKS = "checks";
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        Readiness readiness = FcCertifierPlugin.getReadiness( );
+        Map<String, Object> mapDocument = new LinkedHashMap<>( );
+        mapDocument.put( KEY_STATUS, readiness.name( ) );
+        mapDocument.put( KEY_CHECKS, FcCertifierPlugin.getChecks( ) );
+
+        response.setStatus( readiness.isServing( ) ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+        response.setHeader( "Cache-Control", "no-store" );
+        response.setCharacterEncoding( StandardCharsets.UTF_8.name( ) );
+        response.setContentType( CONTENT_TYPE_JSON );
+        response.getWriter( ).write( _mapper.writeValueAsString( mapDocument ) );
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.fccertifier.service.metrics.MetricsExporter;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Servlet exposing the metrics of the plugin, as JSON or in the Prometheus text format (parameter format=prometheus)
+ */
+public class MetricsServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 1L;
+    private static final String PROPERTY_ENABLED = "fccertifier.metrics.enabled";
+    private static final String PROPERTY_TOKEN = "fccertifier.metrics.token";
+    private static final String PARAMETER_FORMAT = "format";
+    private static final String FORMAT_PROMETHEUS = "prometheus";
+    private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true ) )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+
+            return;
+        }
+
+        String strToken = AppPropertiesService.getProperty( PROPERTY_TOKEN );
+
+        if ( StringUtils.isNotEmpty( strToken ) && !( BEARER_PREFIX + strToken ).equals( request.getHeader( HEADER_AUTHORIZATION ) ) )
+        {
+            response.sendError( HttpServletResponse.SC_UNAUTHORIZED );
+
+            return;
+        }
+
+        boolean bPrometheus = FORMAT_PROMETHEUS.equals( request.getParameter( PARAMETER_FORMAT ) );
+        String strBody = bPrometheus ? MetricsExporter.toPrometheus( ) : MetricsExporter.toJson( );
+
+        response.setCharacterEncoding( StandardCharsets.UTF_8.name( ) );
+        response.setContentType( bPrometheus ? CONTENT_TYPE_PROMETHEUS : CONTENT_TYPE_JSON );
+        response.getWriter( ).write( strBody );
+    }
+}
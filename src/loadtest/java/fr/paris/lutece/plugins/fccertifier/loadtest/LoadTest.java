@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test of the certification flow against local stub backends. Usage : LoadTest [configuration file], the properties of the file being
+ * overridable by system properties (-Dloadtest.users=200).
+ */
+public final class LoadTest
+{
+    private static final String DEFAULT_CONFIGURATION = "src/loadtest/resources/loadtest.properties";
+    private static final long PROGRESS_INTERVAL = 10000L;
+
+    /**
+     * Private constructor
+     */
+    private LoadTest( )
+    {
+    }
+
+    /**
+     * Run the load test
+     *
+     * @param args
+     *            the configuration file
+     * @throws Exception
+     *             if the test can't be run
+     */
+    public static void main( String [ ] args ) throws Exception
+    {
+        LoadTestConfiguration configuration = new LoadTestConfiguration( new File( ( args.length > 0 ) ? args [0] : DEFAULT_CONFIGURATION ) );
+        int nUsers = configuration.getInt( "loadtest.users", 20 );
+        long lRampUp = configuration.getInt( "loadtest.rampUp", 10 ) * 1000L;
+        long lDuration = configuration.getInt( "loadtest.duration", 60 ) * 1000L;
+
+        StubServer stubServer = null;
+
+        if ( Boolean.parseBoolean( configuration.get( "stub.enabled", "true" ) ) )
+        {
+            stubServer = new StubServer( configuration );
+            stubServer.start( );
+        }
+
+        LoadTestReport report = new LoadTestReport( );
+        long lEndTime = System.currentTimeMillis( ) + lRampUp + lDuration;
+        List<Thread> listThreads = new ArrayList<>( nUsers );
+
+        System.out.println( "Load test : " + nUsers + " users, ramp up " + lRampUp / 1000 + "s, duration " + lDuration / 1000 + "s" );
+
+        try
+        {
+            for ( int i = 0; i < nUsers; i++ )
+            {
+                Thread thread = new Thread( new VirtualUser( i + 1, configuration, report, lEndTime ), "loadtest-user-" + ( i + 1 ) );
+                thread.setDaemon( true );
+                thread.start( );
+                listThreads.add( thread );
+                Thread.sleep( lRampUp / Math.max( 1, nUsers ) );
+            }
+
+            while ( System.currentTimeMillis( ) < lEndTime )
+            {
+                Thread.sleep( Math.min( PROGRESS_INTERVAL, Math.max( 1, lEndTime - System.currentTimeMillis( ) ) ) );
+                report.printProgress( System.out );
+            }
+
+            for ( Thread thread : listThreads )
+            {
+                thread.join( PROGRESS_INTERVAL );
+            }
+        }
+        finally
+        {
+            if ( stubServer != null )
+            {
+                stubServer.stop( );
+            }
+        }
+
+        System.out.println( );
+        report.print( System.out );
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Configuration of a load test, read from a properties file. Relative file names are resolved against the directory of the configuration file.
+ */
+public class LoadTestConfiguration
+{
+    private final Properties _properties = new Properties( );
+    private final File _directory;
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            the properties file
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public LoadTestConfiguration( File file ) throws IOException
+    {
+        try ( Reader reader = Files.newBufferedReader( file.toPath( ), StandardCharsets.UTF_8 ) )
+        {
+            _properties.load( reader );
+        }
+
+        _properties.putAll( System.getProperties( ) );
+        _directory = file.getAbsoluteFile( ).getParentFile( );
+    }
+
+    /**
+     * Returns a value, system properties overriding the file
+     *
+     * @param strKey
+     *            the key
+     * @param strDefault
+     *            the default value
+     * @return the value
+     */
+    public String get( String strKey, String strDefault )
+    {
+        String strValue = _properties.getProperty( strKey );
+
+        return ( strValue != null && !strValue.trim( ).isEmpty( ) ) ? strValue.trim( ) : strDefault;
+    }
+
+    /**
+     * Returns an integer value
+     *
+     * @param strKey
+     *            the key
+     * @param nDefault
+     *            the default value
+     * @return the value
+     */
+    public int getInt( String strKey, int nDefault )
+    {
+        String strValue = get( strKey, null );
+
+        return ( strValue != null ) ? Integer.parseInt( strValue ) : nDefault;
+    }
+
+    /**
+     * Returns a decimal value
+     *
+     * @param strKey
+     *            the key
+     * @param dDefault
+     *            the default value
+     * @return the value
+     */
+    public double getDouble( String strKey, double dDefault )
+    {
+        String strValue = get( strKey, null );
+
+        return ( strValue != null ) ? Double.parseDouble( strValue ) : dDefault;
+    }
+
+    /**
+     * Returns the names declared under a prefix, for instance the route names of the keys stub.route.[name].path
+     *
+     * @param strPrefix
+     *            the prefix
+     * @return the names
+     */
+    public Set<String> getNames( String strPrefix )
+    {
+        Set<String> setNames = new TreeSet<>( );
+
+        for ( String strKey : _properties.stringPropertyNames( ) )
+        {
+            if ( strKey.startsWith( strPrefix ) && strKey.indexOf( '.', strPrefix.length( ) ) > 0 )
+            {
+                setNames.add( strKey.substring( strPrefix.length( ), strKey.indexOf( '.', strPrefix.length( ) ) ) );
+            }
+        }
+
+        return setNames;
+    }
+
+    /**
+     * Resolve a file name
+     *
+     * @param strFileName
+     *            the file name
+     * @return the path
+     */
+    public String resolve( String strFileName )
+    {
+        File file = new File( strFileName );
+
+        return file.isAbsolute( ) ? file.getPath( ) : new File( _directory, strFileName ).getPath( );
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import fr.paris.lutece.plugins.fccertifier.service.metrics.LatencyHistogram;
+
+/**
+ * Latencies of the steps of the certification flow, measured on the client side
+ */
+public class LoadTestReport
+{
+    public static final String STEP_FLOW = "_flow";
+
+    private final Map<String, LatencyHistogram> _mapSteps = new ConcurrentSkipListMap<>( );
+    private final long _lStartTime = System.currentTimeMillis( );
+
+    /**
+     * Record a step
+     *
+     * @param strStep
+     *            the step
+     * @param lStartNanos
+     *            the start of the step, from System.nanoTime( )
+     * @param bSuccess
+     *            false if the step failed
+     */
+    public void record( String strStep, long lStartNanos, boolean bSuccess )
+    {
+        _mapSteps.computeIfAbsent( strStep, LatencyHistogram::new ).record( System.nanoTime( ) - lStartNanos, bSuccess );
+    }
+
+    /**
+     * Returns the number of completed flows
+     *
+     * @return the count
+     */
+    public long getFlowCount( )
+    {
+        LatencyHistogram histogram = _mapSteps.get( STEP_FLOW );
+
+        return ( histogram != null ) ? histogram.getCount( ) : 0;
+    }
+
+    /**
+     * Print the progress
+     *
+     * @param out
+     *            the output
+     */
+    public void printProgress( PrintStream out )
+    {
+        LatencyHistogram histogram = _mapSteps.get( STEP_FLOW );
+
+        if ( histogram != null )
+        {
+            out.println( String.format( Locale.ROOT, "%6ds  flows %8d  errors %6d  %8.1f flows/s  p95 %8.1f ms", elapsedMillis( ) / 1000, histogram.getCount( ),
+                    histogram.getErrorCount( ), rate( histogram.getCount( ) ), histogram.getPercentile( 0.95 ) ) );
+        }
+    }
+
+    /**
+     * Print the latencies of every step
+     *
+     * @param out
+     *            the output
+     */
+    public void print( PrintStream out )
+    {
+        out.println( String.format( Locale.ROOT, "%-16s %9s %7s %9s %9s %9s %9s %9s", "step", "count", "errors", "rate/s", "p50 ms", "p95 ms", "p99 ms",
+                "max ms" ) );
+
+        for ( LatencyHistogram histogram : _mapSteps.values( ) )
+        {
+            out.println( String.format( Locale.ROOT, "%-16s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f", histogram.getName( ), histogram.getCount( ),
+                    histogram.getErrorCount( ), rate( histogram.getCount( ) ), histogram.getPercentile( 0.5 ), histogram.getPercentile( 0.95 ),
+                    histogram.getPercentile( 0.99 ), histogram.getMaxMillis( ) ) );
+        }
+    }
+
+    /**
+     * Compute a rate since the start
+     *
+     * @param lCount
+     *            the count
+     * @return the rate per second
+     */
+    private double rate( long lCount )
+    {
+        return lCount * 1000.0 / Math.max( 1, elapsedMillis( ) );
+    }
+
+    /**
+     * Returns the elapsed time
+     *
+     * @return the elapsed time in milliseconds
+     */
+    private long elapsedMillis( )
+    {
+        return System.currentTimeMillis( ) - _lStartTime;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Behaviour of a stub backend route : response, latency and injected errors
+ */
+public class StubRoute
+{
+    private final String _strName;
+    private final String _strMethod;
+    private final String _strPathPrefix;
+    private final int _nStatus;
+    private final byte [ ] _body;
+    private final int _nLatency;
+    private final int _nLatencyJitter;
+    private final double _dErrorRate;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the route name, for the logs
+     * @param strMethod
+     *            the HTTP method, null for any
+     * @param strPathPrefix
+     *            the prefix of the paths served by the route
+     * @param nStatus
+     *            the HTTP status of the responses
+     * @param body
+     *            the body of the responses
+     * @param nLatency
+     *            the mean latency in milliseconds
+     * @param nLatencyJitter
+     *            the maximum deviation from the mean latency in milliseconds
+     * @param dErrorRate
+     *            the ratio of responses replaced by a 500 error, between 0 and 1
+     */
+    public StubRoute( String strName, String strMethod, String strPathPrefix, int nStatus, byte [ ] body, int nLatency, int nLatencyJitter,
+            double dErrorRate )
+    {
+        _strName = strName;
+        _strMethod = strMethod;
+        _strPathPrefix = strPathPrefix;
+        _nStatus = nStatus;
+        _body = body;
+        _nLatency = nLatency;
+        _nLatencyJitter = nLatencyJitter;
+        _dErrorRate = dErrorRate;
+    }
+
+    /**
+     * Tells if the route serves a request
+     *
+     * @param strMethod
+     *            the HTTP method
+     * @param strPath
+     *            the path
+     * @return true if the route serves the request
+     */
+    public boolean matches( String strMethod, String strPath )
+    {
+        return ( _strMethod == null || _strMethod.equalsIgnoreCase( strMethod ) ) && strPath.startsWith( _strPathPrefix );
+    }
+
+    /**
+     * Wait for the latency of a response
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void pause( ) throws InterruptedException
+    {
+        int nJitter = ( _nLatencyJitter > 0 ) ? ThreadLocalRandom.current( ).nextInt( -_nLatencyJitter, _nLatencyJitter + 1 ) : 0;
+        int nLatency = Math.max( 0, _nLatency + nJitter );
+
+        if ( nLatency > 0 )
+        {
+            Thread.sleep( nLatency );
+        }
+    }
+
+    /**
+     * Draw whether the response is replaced by an error
+     *
+     * @return true to answer an error
+     */
+    public boolean isError( )
+    {
+        return _dErrorRate > 0 && ThreadLocalRandom.current( ).nextDouble( ) < _dErrorRate;
+    }
+
+    /**
+     * Returns the name
+     *
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the status
+     *
+     * @return the status
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Returns the body
+     *
+     * @return the body
+     */
+    public byte [ ] getBody( )
+    {
+        return _body;
+    }
+}
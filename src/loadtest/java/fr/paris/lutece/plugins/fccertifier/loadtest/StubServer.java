@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for FranceConnect, identitystore, identityquality and geocodes. FranceConnect authorize, token and userinfo endpoints are built in;
+ * the other backends are served by the routes declared in the configuration, each with its own latency and error rate.
+ */
+public class StubServer
+{
+    private static final String PATH_FC_AUTHORIZE = "/fc/authorize";
+    private static final String PATH_FC_TOKEN = "/fc/token";
+    private static final String PATH_FC_USERINFO = "/fc/userinfo";
+    private static final String PATH_FC_LOGOUT = "/fc/logout";
+    private static final String PREFIX_ROUTE = "stub.route.";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final HttpServer _server;
+    private final ExecutorService _executor;
+    private final LoadTestConfiguration _configuration;
+    private final StubRoute _routeFranceConnect;
+    private final List<StubRoute> _listRoutes = new ArrayList<>( );
+    private final Map<String, FcSession> _mapSessions = new ConcurrentHashMap<>( );
+    private final AtomicInteger _nUsers = new AtomicInteger( );
+
+    /**
+     * Constructor
+     *
+     * @param configuration
+     *            the configuration
+     * @throws IOException
+     *             if the server can't be created or a body file can't be read
+     */
+    public StubServer( LoadTestConfiguration configuration ) throws IOException
+    {
+        _configuration = configuration;
+        _routeFranceConnect = new StubRoute( "franceconnect", null, "/fc/", 200, new byte [ 0], configuration.getInt( "stub.fc.latency", 20 ),
+                configuration.getInt( "stub.fc.latencyJitter", 10 ), configuration.getDouble( "stub.fc.errorRate", 0 ) );
+
+        for ( String strName : configuration.getNames( PREFIX_ROUTE ) )
+        {
+            String strPrefix = PREFIX_ROUTE + strName + ".";
+            String strBodyFile = configuration.get( strPrefix + "body", null );
+            byte [ ] body = ( strBodyFile != null ) ? Files.readAllBytes( Paths.get( configuration.resolve( strBodyFile ) ) ) : new byte [ 0];
+            _listRoutes.add( new StubRoute( strName, configuration.get( strPrefix + "method", null ), configuration.get( strPrefix + "path", "/" ),
+                    configuration.getInt( strPrefix + "status", 200 ), body, configuration.getInt( strPrefix + "latency", 0 ),
+                    configuration.getInt( strPrefix + "latencyJitter", 0 ), configuration.getDouble( strPrefix + "errorRate", 0 ) ) );
+        }
+
+        _server = HttpServer.create( new InetSocketAddress( configuration.getInt( "stub.port", 8089 ) ), 0 );
+        _executor = Executors.newFixedThreadPool( configuration.getInt( "stub.threads", 200 ) );
+        _server.setExecutor( _executor );
+        _server.createContext( "/", this::handle );
+    }
+
+    /**
+     * Start the server
+     */
+    public void start( )
+    {
+        _server.start( );
+    }
+
+    /**
+     * Stop the server
+     */
+    public void stop( )
+    {
+        _server.stop( 0 );
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Dispatch a request
+     *
+     * @param exchange
+     *            the exchange
+     * @throws IOException
+     *             if the response can't be written
+     */
+    private void handle( HttpExchange exchange ) throws IOException
+    {
+        try
+        {
+            String strPath = exchange.getRequestURI( ).getPath( );
+
+            if ( strPath.startsWith( "/fc/" ) )
+            {
+                handleFranceConnect( exchange, strPath );
+
+                return;
+            }
+
+            for ( StubRoute route : _listRoutes )
+            {
+                if ( route.matches( exchange.getRequestMethod( ), strPath ) )
+                {
+                    drain( exchange.getRequestBody( ) );
+                    route.pause( );
+
+                    if ( route.isError( ) )
+                    {
+                        send( exchange, 500, CONTENT_TYPE_JSON, "{\"message\":\"injected error\"}".getBytes( StandardCharsets.UTF_8 ) );
+                    }
+                    else
+                    {
+                        send( exchange, route.getStatus( ), CONTENT_TYPE_JSON, route.getBody( ) );
+                    }
+
+                    return;
+                }
+            }
+
+            send( exchange, 404, CONTENT_TYPE_JSON, "{\"message\":\"no stub route\"}".getBytes( StandardCharsets.UTF_8 ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            exchange.close( );
+        }
+    }
+
+    /**
+     * Serve the FranceConnect endpoints
+     *
+     * @param exchange
+     *            the exchange
+     * @param strPath
+     *            the path
+     * @throws IOException
+     *             if the response can't be written
+     * @throws InterruptedException
+     *             if interrupted during the latency
+     */
+    private void handleFranceConnect( HttpExchange exchange, String strPath ) throws IOException, InterruptedException
+    {
+        _routeFranceConnect.pause( );
+
+        if ( _routeFranceConnect.isError( ) )
+        {
+            send( exchange, 500, CONTENT_TYPE_JSON, "{\"error\":\"server_error\"}".getBytes( StandardCharsets.UTF_8 ) );
+
+            return;
+        }
+
+        if ( strPath.startsWith( PATH_FC_AUTHORIZE ) )
+        {
+            Map<String, String> mapParameters = parseQuery( exchange.getRequestURI( ).getRawQuery( ) );
+            String strCode = UUID.randomUUID( ).toString( );
+            _mapSessions.put( strCode, new FcSession( mapParameters.get( "nonce" ), _nUsers.incrementAndGet( ) ) );
+
+            String strRedirectUri = mapParameters.get( "redirect_uri" );
+            String strLocation = strRedirectUri + ( strRedirectUri.contains( "?" ) ? "&" : "?" ) + "code=" + strCode + "&state="
+                    + URLEncoder.encode( String.valueOf( mapParameters.get( "state" ) ), "UTF-8" );
+            exchange.getResponseHeaders( ).add( "Location", strLocation );
+            send( exchange, 302, CONTENT_TYPE_JSON, new byte [ 0] );
+        }
+        else
+            if ( strPath.startsWith( PATH_FC_TOKEN ) )
+            {
+                Map<String, String> mapParameters = parseQuery( new String( drain( exchange.getRequestBody( ) ), StandardCharsets.UTF_8 ) );
+                FcSession session = _mapSessions.get( mapParameters.get( "code" ) );
+
+                if ( session == null )
+                {
+                    send( exchange, 400, CONTENT_TYPE_JSON, "{\"error\":\"invalid_grant\"}".getBytes( StandardCharsets.UTF_8 ) );
+
+                    return;
+                }
+
+                String strToken = "{\"access_token\":\"" + mapParameters.get( "code" ) + "\",\"token_type\":\"Bearer\",\"expires_in\":60,\"id_token\":\""
+                        + idToken( session ) + "\"}";
+                send( exchange, 200, CONTENT_TYPE_JSON, strToken.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            else
+                if ( strPath.startsWith( PATH_FC_USERINFO ) )
+                {
+                    String strAuthorization = String.valueOf( exchange.getRequestHeaders( ).getFirst( "Authorization" ) );
+                    FcSession session = _mapSessions.remove( strAuthorization.replace( BEARER_PREFIX, "" ) );
+
+                    if ( session == null )
+                    {
+                        send( exchange, 401, CONTENT_TYPE_JSON, "{\"error\":\"invalid_token\"}".getBytes( StandardCharsets.UTF_8 ) );
+
+                        return;
+                    }
+
+                    send( exchange, 200, CONTENT_TYPE_JSON, userInfo( session._nUser ).getBytes( StandardCharsets.UTF_8 ) );
+                }
+                else
+                    if ( strPath.startsWith( PATH_FC_LOGOUT ) )
+                    {
+                        send( exchange, 200, CONTENT_TYPE_JSON, new byte [ 0] );
+                    }
+                    else
+                    {
+                        send( exchange, 404, CONTENT_TYPE_JSON, new byte [ 0] );
+                    }
+    }
+
+    /**
+     * Build a pivot identity
+     *
+     * @param nUser
+     *            the user number
+     * @return the userinfo JSON
+     */
+    private static String userInfo( int nUser )
+    {
+        return "{\"sub\":\"stub-sub-" + nUser + "\",\"given_name\":\"Jean\",\"family_name\":\"Dupont" + nUser + "\",\"preferred_username\":\"Martin\","
+                + "\"gender\":\"" + ( ( nUser % 2 == 0 ) ? "male" : "female" ) + "\",\"birthdate\":\"19" + ( 40 + nUser % 60 ) + "-0" + ( 1 + nUser % 9 )
+                + "-1" + ( nUser % 9 ) + "\",\"birthplace\":\"75056\",\"birthcountry\":\"99100\",\"email\":\"user" + nUser + "@example.org\"}";
+    }
+
+    /**
+     * Build an id token signed with the client secret, as FranceConnect does
+     *
+     * @param session
+     *            the session
+     * @return the id token
+     * @throws IOException
+     *             if the token can't be signed
+     */
+    private String idToken( FcSession session ) throws IOException
+    {
+        long lNow = System.currentTimeMillis( ) / 1000;
+        String strHeader = base64( "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes( StandardCharsets.UTF_8 ) );
+        String strClaims = base64( ( "{\"iss\":\"" + _configuration.get( "stub.fc.issuer", "http://localhost" ) + "\",\"sub\":\"stub-sub-" + session._nUser
+                + "\",\"aud\":\"" + _configuration.get( "stub.fc.clientId", "" ) + "\",\"iat\":" + lNow + ",\"exp\":" + ( lNow + 60 ) + ",\"nonce\":\""
+                + session._strNonce + "\"}" ).getBytes( StandardCharsets.UTF_8 ) );
+
+        try
+        {
+            Mac mac = Mac.getInstance( "HmacSHA256" );
+            mac.init( new SecretKeySpec( _configuration.get( "stub.fc.clientSecret", "" ).getBytes( StandardCharsets.UTF_8 ), "HmacSHA256" ) );
+
+            return strHeader + "." + strClaims + "." + base64( mac.doFinal( ( strHeader + "." + strClaims ).getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+        catch( Exception e )
+        {
+            throw new IOException( "Unable to sign the id token", e );
+        }
+    }
+
+    /**
+     * Encode in base64url without padding
+     *
+     * @param bytes
+     *            the bytes
+     * @return the encoded string
+     */
+    private static String base64( byte [ ] bytes )
+    {
+        return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( bytes );
+    }
+
+    /**
+     * Parse an url-encoded query
+     *
+     * @param strQuery
+     *            the query
+     * @return the parameters
+     * @throws IOException
+     *             if the query can't be decoded
+     */
+    private static Map<String, String> parseQuery( String strQuery ) throws IOException
+    {
+        Map<String, String> mapParameters = new HashMap<>( );
+
+        if ( strQuery != null )
+        {
+            for ( String strPair : strQuery.split( "&" ) )
+            {
+                int nIndex = strPair.indexOf( '=' );
+
+                if ( nIndex > 0 )
+                {
+                    mapParameters.put( URLDecoder.decode( strPair.substring( 0, nIndex ), "UTF-8" ), URLDecoder.decode( strPair.substring( nIndex + 1 ), "UTF-8" ) );
+                }
+            }
+        }
+
+        return mapParameters;
+    }
+
+    /**
+     * Read a request body
+     *
+     * @param input
+     *            the body stream
+     * @return the body
+     * @throws IOException
+     *             if the body can't be read
+     */
+    private static byte [ ] drain( InputStream input ) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream( );
+        byte [ ] buffer = new byte [ 4096];
+        int nRead;
+
+        while ( ( nRead = input.read( buffer ) ) > 0 )
+        {
+            output.write( buffer, 0, nRead );
+        }
+
+        return output.toByteArray( );
+    }
+
+    /**
+     * Send a response
+     *
+     * @param exchange
+     *            the exchange
+     * @param nStatus
+     *            the status
+     * @param strContentType
+     *            the content type
+     * @param body
+     *            the body
+     * @throws IOException
+     *             if the response can't be written
+     */
+    private static void send( HttpExchange exchange, int nStatus, String strContentType, byte [ ] body ) throws IOException
+    {
+        exchange.getResponseHeaders( ).set( "Content-Type", strContentType );
+        exchange.sendResponseHeaders( nStatus, ( body.length > 0 ) ? body.length : -1 );
+
+        if ( body.length > 0 )
+        {
+            try ( OutputStream output = exchange.getResponseBody( ) )
+            {
+                output.write( body );
+            }
+        }
+
+        exchange.close( );
+    }
+
+    /**
+     * A FranceConnect authorization in progress
+     */
+    private static final class FcSession
+    {
+        private final String _strNonce;
+        private final int _nUser;
+
+        /**
+         * Constructor
+         *
+         * @param strNonce
+         *            the nonce sent by the client
+         * @param nUser
+         *            the user number
+         */
+        FcSession( String strNonce, int nUser )
+        {
+            _strNonce = strNonce;
+            _nUser = nUser;
+        }
+    }
+}
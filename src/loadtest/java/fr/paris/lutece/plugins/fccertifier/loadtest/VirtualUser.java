@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.fccertifier.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A user going through the certification flow of the XPage : home, fetch, FranceConnect authorization, callback, validate view, certify. Each user keeps
+ * its own portal cookies.
+ */
+public class VirtualUser implements Runnable
+{
+    private static final String STEP_LOGIN = "login";
+    private static final String STEP_HOME = "home";
+    private static final String STEP_FETCH = "fetch";
+    private static final String STEP_FC_AUTHORIZE = "fcAuthorize";
+    private static final String STEP_CALLBACK = "callback";
+    private static final String STEP_VALIDATE = "validate";
+    private static final String STEP_CERTIFY = "certify";
+    private static final String STEP_VALIDATION_OK = "validationOK";
+    private static final String STEP_REDIRECT = "redirect";
+    private static final String XPAGE_URL = "/jsp/site/Portal.jsp?page=fccertifier";
+    private static final Pattern PATTERN_TOKEN = Pattern.compile( "name=\"token\"\\s+value=\"([^\"]+)\"" );
+    private static final int MAX_REDIRECTS = 10;
+
+    private final int _nUser;
+    private final String _strBaseUrl;
+    private final String _strStubUrl;
+    private final LoadTestConfiguration _configuration;
+    private final LoadTestReport _report;
+    private final long _lEndTime;
+    private final Map<String, String> _mapCookies = new LinkedHashMap<>( );
+
+    /**
+     * Constructor
+     *
+     * @param nUser
+     *            the user number
+     * @param configuration
+     *            the configuration
+     * @param report
+     *            the report
+     * @param lEndTime
+     *            the end of the test
+     */
+    public VirtualUser( int nUser, LoadTestConfiguration configuration, LoadTestReport report, long lEndTime )
+    {
+        _nUser = nUser;
+        _configuration = configuration;
+        _report = report;
+        _lEndTime = lEndTime;
+        _strBaseUrl = configuration.get( "loadtest.baseUrl", "http://localhost:8080/lutece" );
+        _strStubUrl = configuration.get( "loadtest.stubUrl", "http://localhost:" + configuration.getInt( "stub.port", 8089 ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void run( )
+    {
+        int nThinkTime = _configuration.getInt( "loadtest.thinkTime", 0 );
+
+        while ( System.currentTimeMillis( ) < _lEndTime && !Thread.currentThread( ).isInterrupted( ) )
+        {
+            _mapCookies.clear( );
+            long lStart = System.nanoTime( );
+            boolean bSuccess;
+
+            try
+            {
+                bSuccess = runFlow( );
+            }
+            catch( IOException e )
+            {
+                bSuccess = false;
+            }
+
+            _report.record( LoadTestReport.STEP_FLOW, lStart, bSuccess );
+
+            if ( nThinkTime > 0 )
+            {
+                try
+                {
+                    Thread.sleep( nThinkTime );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Go through the flow once
+     *
+     * @return true if the certification succeeded
+     * @throws IOException
+     *             on a network error
+     */
+    private boolean runFlow( ) throws IOException
+    {
+        String strLoginUrl = _configuration.get( "loadtest.login.url", null );
+
+        if ( strLoginUrl != null )
+        {
+            String strParameters = _configuration.get( "loadtest.login.parameters", "" ).replace( "${user}", String.valueOf( _nUser ) );
+            Response response = send( STEP_LOGIN, _strBaseUrl + strLoginUrl, strParameters );
+
+            if ( response.isError( ) || follow( response ) == null )
+            {
+                return false;
+            }
+        }
+
+        Response response = send( STEP_HOME, _strBaseUrl + XPAGE_URL + "&view=home", null );
+
+        if ( response.isError( ) )
+        {
+            return false;
+        }
+
+        // fetch redirects to FranceConnect, which redirects to the callback, which redirects to the validate view
+        response = follow( send( STEP_FETCH, _strBaseUrl + XPAGE_URL + "&action=fetch", null ) );
+
+        if ( response == null || !response._strUrl.contains( "view=validate" ) )
+        {
+            return false;
+        }
+
+        String strCertifyUrl = _strBaseUrl + XPAGE_URL + "&action=certify";
+        Matcher matcher = PATTERN_TOKEN.matcher( response._strBody );
+
+        if ( matcher.find( ) )
+        {
+            strCertifyUrl += "&token=" + matcher.group( 1 );
+        }
+
+        response = follow( send( STEP_CERTIFY, strCertifyUrl, null ) );
+
+        return response != null && response._strUrl.contains( "view=validationOK" );
+    }
+
+    /**
+     * Follow the redirects of a response, each one timed as the step it leads to
+     *
+     * @param response
+     *            the response
+     * @return the final response, null on error
+     * @throws IOException
+     *             on a network error
+     */
+    private Response follow( Response response ) throws IOException
+    {
+        Response current = response;
+
+        for ( int i = 0; i < MAX_REDIRECTS && current != null && !current.isError( ); i++ )
+        {
+            if ( current._strLocation == null )
+            {
+                return current;
+            }
+
+            String strUrl = new URL( new URL( current._strUrl ), current._strLocation ).toString( );
+            current = send( getStep( strUrl ), strUrl, null );
+        }
+
+        return null;
+    }
+
+    /**
+     * Name the step of an URL
+     *
+     * @param strUrl
+     *            the URL
+     * @return the step
+     */
+    private String getStep( String strUrl )
+    {
+        if ( strUrl.startsWith( _strStubUrl ) )
+        {
+            return STEP_FC_AUTHORIZE;
+        }
+        if ( strUrl.contains( "code=" ) )
+        {
+            return STEP_CALLBACK;
+        }
+        if ( strUrl.contains( "view=validationOK" ) )
+        {
+            return STEP_VALIDATION_OK;
+        }
+        if ( strUrl.contains( "view=validate" ) )
+        {
+            return STEP_VALIDATE;
+        }
+
+        return STEP_REDIRECT;
+    }
+
+    /**
+     * Send a request and record its latency
+     *
+     * @param strStep
+     *            the step
+     * @param strUrl
+     *            the URL
+     * @param strFormData
+     *            the url-encoded form to post, null for a GET
+     * @return the response
+     * @throws IOException
+     *             on a network error
+     */
+    private Response send( String strStep, String strUrl, String strFormData ) throws IOException
+    {
+        long lStart = System.nanoTime( );
+        boolean bPortal = strUrl.startsWith( _strBaseUrl );
+        HttpURLConnection connection = (HttpURLConnection) new URL( strUrl ).openConnection( );
+
+        try
+        {
+            connection.setInstanceFollowRedirects( false );
+            connection.setConnectTimeout( 5000 );
+            connection.setReadTimeout( 30000 );
+
+            if ( bPortal && !_mapCookies.isEmpty( ) )
+            {
+                StringBuilder sbCookies = new StringBuilder( );
+                _mapCookies.forEach( ( name, value ) -> sbCookies.append( ( sbCookies.length( ) > 0 ) ? "; " : "" ).append( name ).append( '=' ).append( value ) );
+                connection.setRequestProperty( "Cookie", sbCookies.toString( ) );
+            }
+
+            if ( strFormData != null )
+            {
+                connection.setRequestMethod( "POST" );
+                connection.setDoOutput( true );
+                connection.setRequestProperty( "Content-Type", "application/x-www-form-urlencoded" );
+
+                try ( OutputStream output = connection.getOutputStream( ) )
+                {
+                    output.write( strFormData.getBytes( StandardCharsets.UTF_8 ) );
+                }
+            }
+
+            int nStatus = connection.getResponseCode( );
+            InputStream input = ( nStatus >= 400 ) ? connection.getErrorStream( ) : connection.getInputStream( );
+            String strBody = ( input != null ) ? read( input ) : "";
+
+            if ( bPortal )
+            {
+                storeCookies( connection.getHeaderFields( ).get( "Set-Cookie" ) );
+            }
+
+            Response response = new Response( strUrl, nStatus, connection.getHeaderField( "Location" ), strBody );
+            _report.record( strStep, lStart, !response.isError( ) );
+
+            return response;
+        }
+        catch( IOException e )
+        {
+            _report.record( strStep, lStart, false );
+            throw e;
+        }
+        finally
+        {
+            connection.disconnect( );
+        }
+    }
+
+    /**
+     * Keep the cookies set by the portal
+     *
+     * @param listCookies
+     *            the Set-Cookie headers
+     */
+    private void storeCookies( List<String> listCookies )
+    {
+        if ( listCookies != null )
+        {
+            for ( String strCookie : listCookies )
+            {
+                String strPair = strCookie.split( ";", 2 ) [0];
+                int nIndex = strPair.indexOf( '=' );
+
+                if ( nIndex > 0 )
+                {
+                    _mapCookies.put( strPair.substring( 0, nIndex ).trim( ), strPair.substring( nIndex + 1 ).trim( ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a response body
+     *
+     * @param input
+     *            the stream
+     * @return the body
+     * @throws IOException
+     *             if the body can't be read
+     */
+    private static String read( InputStream input ) throws IOException
+    {
+        try ( InputStream in = input )
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream( );
+            byte [ ] buffer = new byte [ 8192];
+            int nRead;
+
+            while ( ( nRead = in.read( buffer ) ) > 0 )
+            {
+                output.write( buffer, 0, nRead );
+            }
+
+            return new String( output.toByteArray( ), StandardCharsets.UTF_8 );
+        }
+    }
+
+    /**
+     * A response
+     */
+    private static final class Response
+    {
+        private final String _strUrl;
+        private final int _nStatus;
+        private final String _strLocation;
+        private final String _strBody;
+
+        /**
+         * Constructor
+         *
+         * @param strUrl
+         *            the requested URL
+         * @param nStatus
+         *            the status
+         * @param strLocation
+         *            the redirection, or null
+         * @param strBody
+         *            the body
+         */
+        Response( String strUrl, int nStatus, String strLocation, String strBody )
+        {
+            _strUrl = strUrl;
+            _nStatus = nStatus;
+            _strLocation = strLocation;
+            _strBody = strBody;
+        }
+
+        /**
+         * Tells if the response is an error
+         *
+         * @return true for a 4xx or 5xx status
+         */
+        boolean isError( )
+        {
+            return _nStatus >= 400;
+        }
+    }
+}
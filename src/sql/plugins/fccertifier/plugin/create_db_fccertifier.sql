@@ -1,11 +1,46 @@
-
+DROP TABLE IF EXISTS fccertifier_insee_communes;
 CREATE TABLE fccertifier_insee_communes ( 
     code_commune VARCHAR( 5 ), 
     nom_commune VARCHAR( 100 ),
-    PRIMARY KEY (code_commune )
+    date_validity_start DATE NULL,
+    date_validity_end DATE NULL
 ); 
+CREATE INDEX idx_fccertifier_insee_communes_code ON fccertifier_insee_communes ( code_commune );
 
+DROP TABLE IF EXISTS fccertifier_insee_pays;
 CREATE TABLE fccertifier_insee_pays ( 
     code_pays VARCHAR( 5 ), 
-    nom_pays VARCHAR( 100 )
-); 
\ No newline at end of file
+    nom_pays VARCHAR( 100 ),
+    date_validity_start DATE NULL,
+    date_validity_end DATE NULL
+);
+CREATE INDEX idx_fccertifier_insee_pays_code ON fccertifier_insee_pays ( code_pays );
+
+DROP TABLE IF EXISTS fccertifier_validation_infos;
+CREATE TABLE fccertifier_validation_infos (
+    validation_key VARCHAR( 255 ) NOT NULL,
+    user_connection_id VARCHAR( 255 ),
+    user_email VARCHAR( 255 ),
+    expires_time BIGINT NOT NULL,
+    invalid_attempts INT DEFAULT 0 NOT NULL,
+    validation_result VARCHAR( 50 ),
+    suspicious_check_sub VARCHAR( 255 ),
+    strict_suspicious SMALLINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY ( validation_key )
+);
+CREATE INDEX idx_fccertifier_validation_infos_expires ON fccertifier_validation_infos ( expires_time );
+
+DROP TABLE IF EXISTS fccertifier_certification_outbox;
+CREATE TABLE fccertifier_certification_outbox (
+    id_intent INT AUTO_INCREMENT,
+    user_connection_id VARCHAR( 255 ) NOT NULL,
+    user_email VARCHAR( 255 ),
+    identity LONG VARBINARY,
+    creation_time BIGINT NOT NULL,
+    next_attempt_time BIGINT NOT NULL,
+    attempts INT DEFAULT 0 NOT NULL,
+    status INT DEFAULT 0 NOT NULL,
+    last_error VARCHAR( 255 ),
+    PRIMARY KEY ( id_intent )
+);
+CREATE INDEX idx_fccertifier_certification_outbox_due ON fccertifier_certification_outbox ( status, next_attempt_time );
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * FcIdentity Test. The identities are built from their serialized form, the public constructor resolving the birth places through the INSEE
+ * services.
+ */
+public class FcIdentityTest
+{
+    private static final String CLASS_SERIALIZED_FORM = "fr.paris.lutece.plugins.fccertifier.business.FcIdentity$SerializedForm";
+    private static final byte TC_BLOCKDATA = 0x77;
+
+    /**
+     * Test of the serialization round trip
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testRoundTrip( ) throws Exception
+    {
+        FcIdentity identity = newIdentity( new String [ ] {
+                "sub", "Jean", "Dupont", "Martin", "male", "1985-03-07", "75056", "99100", "jean@test.fr", "Paris", "France"
+        } );
+
+        FcIdentity copy = roundTrip( identity );
+
+        assertEquals( "sub", copy.getSub( ) );
+        assertEquals( "Jean", copy.getGivenName( ) );
+        assertEquals( "Dupont", copy.getFamilyName( ) );
+        assertEquals( "Martin", copy.getPreferredUsername( ) );
+        assertEquals( "male", copy.getGender( ) );
+        assertEquals( "2", copy.getIdsGender( ) );
+        assertEquals( "1985-03-07", copy.getBirthDate( ) );
+        assertEquals( "75056", copy.getBirthPlace( ) );
+        assertEquals( "99100", copy.getBirthCountry( ) );
+        assertEquals( "jean@test.fr", copy.getEmail( ) );
+        assertEquals( "Paris", copy.getIdsBirthPlace( ) );
+        assertEquals( "France", copy.getIdsBirthCountry( ) );
+        // Not serialized, derived from the FranceConnect birth date
+        assertEquals( "07/03/1985", copy.getIdsBirthDate( ) );
+    }
+
+    /**
+     * Test of the serialization round trip of missing and non ASCII values
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testRoundTripMissingValues( ) throws Exception
+    {
+        FcIdentity identity = newIdentity( new String [ ] {
+                "sub", "\u00c9lodie", "Lef\u00e8vre-\u00d1\u00fa\u00f1ez", null, "female", null, "", null, null, "", null
+        } );
+
+        FcIdentity copy = roundTrip( identity );
+
+        assertEquals( "\u00c9lodie", copy.getGivenName( ) );
+        assertEquals( "Lef\u00e8vre-\u00d1\u00fa\u00f1ez", copy.getFamilyName( ) );
+        assertNull( copy.getPreferredUsername( ) );
+        assertEquals( "1", copy.getIdsGender( ) );
+        assertNull( copy.getBirthDate( ) );
+        assertNull( copy.getIdsBirthDate( ) );
+        assertEquals( "", copy.getBirthPlace( ) );
+        assertNull( copy.getBirthCountry( ) );
+        assertNull( copy.getEmail( ) );
+        assertEquals( "", copy.getIdsBirthPlace( ) );
+        assertNull( copy.getIdsBirthCountry( ) );
+    }
+
+    /**
+     * Test of the compactness of the serialized form
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testSerializedFormIsCompact( ) throws Exception
+    {
+        byte [ ] bytes = serialize( newIdentity( new String [ 11] ) );
+
+        // No field descriptor of the identity is written
+        assertFalse( new String( bytes, StandardCharsets.ISO_8859_1 ).contains( "_strGivenName" ) );
+    }
+
+    /**
+     * Test of the deserialization of an unsupported version
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testUnsupportedVersion( ) throws Exception
+    {
+        byte [ ] bytes = serialize( newIdentity( new String [ 11] ) );
+
+        // The external data of an identity without values : a block of 3 bytes, the version and an empty presence mask
+        int nIndex = indexOf( bytes, new byte [ ] {
+                TC_BLOCKDATA, 3, 1, 0, 0
+        } );
+        assertTrue( nIndex >= 0 );
+        bytes [nIndex + 2] = 2;
+
+        try
+        {
+            deserialize( bytes );
+            fail( "An unsupported version should be rejected" );
+        }
+        catch( InvalidObjectException e )
+        {
+            assertTrue( e.getMessage( ).contains( "version" ) );
+        }
+    }
+
+    /**
+     * Build an identity from the values of its serialized form
+     *
+     * @param values
+     *            the values
+     * @return the identity
+     * @throws Exception
+     *             if the identity can't be built
+     */
+    private static FcIdentity newIdentity( String [ ] values ) throws Exception
+    {
+        Class<?> classForm = Class.forName( CLASS_SERIALIZED_FORM );
+        Constructor<?> constructor = classForm.getDeclaredConstructor( );
+        constructor.setAccessible( true );
+        Object form = constructor.newInstance( );
+        Field field = classForm.getDeclaredField( "_values" );
+        field.setAccessible( true );
+        field.set( form, values );
+
+        return (FcIdentity) deserialize( serialize( form ) );
+    }
+
+    /**
+     * Find a sequence of bytes
+     *
+     * @param bytes
+     *            the bytes
+     * @param sequence
+     *            the sequence
+     * @return the index of the sequence, -1 if not found
+     */
+    private static int indexOf( byte [ ] bytes, byte [ ] sequence )
+    {
+        for ( int i = 0; i <= bytes.length - sequence.length; i++ )
+        {
+            int j = 0;
+
+            while ( j < sequence.length && bytes [i + j] == sequence [j] )
+            {
+                j++;
+            }
+
+            if ( j == sequence.length )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Serialize and deserialize an identity
+     *
+     * @param identity
+     *            the identity
+     * @return the deserialized identity
+     * @throws Exception
+     *             if the identity can't be serialized
+     */
+    private static FcIdentity roundTrip( FcIdentity identity ) throws Exception
+    {
+        return (FcIdentity) deserialize( serialize( identity ) );
+    }
+
+    /**
+     * Serialize an object
+     *
+     * @param object
+     *            the object
+     * @return the bytes
+     * @throws IOException
+     *             if the object can't be serialized
+     */
+    private static byte [ ] serialize( Object object ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+
+        try ( ObjectOutputStream stream = new ObjectOutputStream( out ) )
+        {
+            stream.writeObject( object );
+        }
+
+        return out.toByteArray( );
+    }
+
+    /**
+     * Deserialize an object
+     *
+     * @param bytes
+     *            the bytes
+     * @return the object
+     * @throws IOException
+     *             if the object can't be deserialized
+     * @throws ClassNotFoundException
+     *             if the class is unknown
+     */
+    private static Object deserialize( byte [ ] bytes ) throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream stream = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) )
+        {
+            return stream.readObject( );
+        }
+    }
+}
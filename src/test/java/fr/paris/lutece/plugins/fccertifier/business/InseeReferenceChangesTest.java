@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * InseeReferenceChanges Test
+ */
+public class InseeReferenceChangesTest
+{
+    private static final Date START = Date.valueOf( "1943-01-01" );
+    private static final Date END = Date.valueOf( "2016-01-01" );
+
+    /**
+     * Test of identical lists
+     */
+    @Test
+    public void testUnchanged( )
+    {
+        InseeReferenceChanges changes = InseeReferenceChanges.compute( Arrays.asList( reference( "75056", "Paris", START, null ) ),
+                Arrays.asList( reference( "75056", "Paris", START, null ) ) );
+
+        assertTrue( changes.isEmpty( ) );
+        assertEquals( 1, changes.getUnchangedCount( ) );
+    }
+
+    /**
+     * Test of the created, modified and removed references
+     */
+    @Test
+    public void testChanges( )
+    {
+        InseeReference unchanged = reference( "75056", "Paris", START, null );
+        InseeReference closed = reference( "14001", "Ablon", START, END );
+        InseeReference created = reference( "14002", "Nouvelle", END, null );
+        InseeReference removed = reference( "14003", "Ancienne", START, null );
+
+        InseeReferenceChanges changes = InseeReferenceChanges.compute(
+                Arrays.asList( reference( "75056", "Paris", START, null ), reference( "14001", "Ablon", START, null ), removed ),
+                Arrays.asList( unchanged, closed, created ) );
+
+        assertFalse( changes.isEmpty( ) );
+        assertEquals( 1, changes.getUnchangedCount( ) );
+        assertEquals( Collections.singletonList( closed ), changes.getModifiedList( ) );
+        assertEquals( Collections.singletonList( created ), changes.getCreatedList( ) );
+        assertEquals( Collections.singletonList( removed ), changes.getRemovedList( ) );
+    }
+
+    /**
+     * Test of the key : a new label or start date is a new reference
+     */
+    @Test
+    public void testKey( )
+    {
+        InseeReference current = reference( "14001", "Ablon", START, null );
+        InseeReference renamed = reference( "14001", "Ablon-sur-Mer", START, null );
+
+        InseeReferenceChanges changes = InseeReferenceChanges.compute( Arrays.asList( current ), Arrays.asList( renamed ) );
+
+        assertEquals( Collections.singletonList( renamed ), changes.getCreatedList( ) );
+        assertEquals( Collections.singletonList( current ), changes.getRemovedList( ) );
+        assertTrue( changes.getModifiedList( ).isEmpty( ) );
+    }
+
+    /**
+     * Test of duplicated rows : all the rows of the key are removed and the reference created again
+     */
+    @Test
+    public void testDuplicatedRows( )
+    {
+        InseeReference row1 = reference( "75056", "Paris", START, null );
+        InseeReference row2 = reference( "75056", "Paris", START, null );
+        InseeReference source = reference( "75056", "Paris", START, null );
+
+        InseeReferenceChanges changes = InseeReferenceChanges.compute( Arrays.asList( row1, row2 ), Arrays.asList( source ) );
+
+        assertEquals( 1, changes.getRemovedList( ).size( ) );
+        assertSame( row2, changes.getRemovedList( ).get( 0 ) );
+        assertEquals( Collections.singletonList( source ), changes.getCreatedList( ) );
+        assertEquals( 0, changes.getUnchangedCount( ) );
+    }
+
+    /**
+     * Test of a key repeated in the source : the last reference wins
+     */
+    @Test
+    public void testDuplicatedSource( )
+    {
+        InseeReference first = reference( "14001", "Ablon", START, null );
+        InseeReference last = reference( "14001", "Ablon", START, END );
+
+        InseeReferenceChanges changes = InseeReferenceChanges.compute( Collections.<InseeReference> emptyList( ), Arrays.asList( first, last ) );
+
+        assertEquals( 1, changes.getCreatedList( ).size( ) );
+        assertSame( last, changes.getCreatedList( ).get( 0 ) );
+    }
+
+    /**
+     * Build a reference
+     *
+     * @param strCode
+     *            the code
+     * @param strLabel
+     *            the label
+     * @param dateStart
+     *            the first day of validity
+     * @param dateEnd
+     *            the day after the last day of validity, null if still valid
+     * @return the reference
+     */
+    private static InseeReference reference( String strCode, String strLabel, Date dateStart, Date dateEnd )
+    {
+        InseeReference reference = new InseeReference( );
+        reference.setCode( strCode );
+        reference.setLabel( strLabel );
+        reference.setDateValidityStart( dateStart );
+        reference.setDateValidityEnd( dateEnd );
+
+        return reference;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.fccertifier.business.InseeReference;
+
+/**
+ * InseeReferenceIndex Test
+ */
+public class InseeReferenceIndexTest
+{
+    private static final String CODE_COMMUNE = "75056";
+    private static final String CODE_RENAMED = "14001";
+    private static final String CODE_COUNTRY = "99100";
+    private static final LocalDate RENAMING_DATE = LocalDate.of( 1990, 1, 1 );
+
+    /**
+     * Test of the label of a code having a single label
+     */
+    @Test
+    public void testSingleLabel( )
+    {
+        InseeReferenceIndex index = buildIndex( );
+
+        assertEquals( "Paris", index.getPlaceName( CODE_COMMUNE, LocalDate.of( 1980, 5, 1 ) ) );
+        assertEquals( "Paris", index.getPlaceName( CODE_COMMUNE, null ) );
+        assertNull( index.getPlaceName( "00000", LocalDate.of( 1980, 5, 1 ) ) );
+        assertNull( index.getPlaceName( null, LocalDate.of( 1980, 5, 1 ) ) );
+        assertEquals( 2, index.getCommunesCount( ) );
+    }
+
+    /**
+     * Test of the label of a renamed commune : the label valid at the date is given
+     */
+    @Test
+    public void testPeriods( )
+    {
+        InseeReferenceIndex index = buildIndex( );
+
+        assertEquals( "Ancienne", index.getPlaceName( CODE_RENAMED, RENAMING_DATE.minusDays( 1 ) ) );
+        // The start date is inclusive, the end date exclusive
+        assertEquals( "Nouvelle", index.getPlaceName( CODE_RENAMED, RENAMING_DATE ) );
+        assertEquals( "Nouvelle", index.getPlaceName( CODE_RENAMED, null ) );
+    }
+
+    /**
+     * Test of an ambiguous code : several labels valid at the same date give no label
+     */
+    @Test
+    public void testAmbiguity( )
+    {
+        InseeReferenceIndex index = buildIndex( );
+
+        assertNull( index.getCountryName( CODE_COUNTRY, LocalDate.of( 1980, 5, 1 ) ) );
+        assertNull( index.getCountryName( CODE_COUNTRY, null ) );
+
+        // The same label twice is not ambiguous
+        InseeReferenceIndex indexDuplicates = InseeReferenceIndex.build( Arrays.asList( reference( CODE_COMMUNE, "Paris", null, null ),
+                reference( CODE_COMMUNE, "Paris", null, null ) ), Collections.<InseeReference> emptyList( ) );
+        assertEquals( "Paris", indexDuplicates.getPlaceName( CODE_COMMUNE, LocalDate.of( 1980, 5, 1 ) ) );
+    }
+
+    /**
+     * Test of the period keys
+     */
+    @Test
+    public void testPeriodKeys( )
+    {
+        InseeReferenceIndex index = buildIndex( );
+
+        // Two dates resolving to the same label share a key
+        assertEquals( index.getPlacePeriodKey( CODE_RENAMED, LocalDate.of( 1950, 1, 1 ) ),
+                index.getPlacePeriodKey( CODE_RENAMED, LocalDate.of( 1980, 1, 1 ) ) );
+        assertNotEquals( index.getPlacePeriodKey( CODE_RENAMED, RENAMING_DATE.minusDays( 1 ) ), index.getPlacePeriodKey( CODE_RENAMED, RENAMING_DATE ) );
+
+        // Without known periods the date is the key
+        assertEquals( "1980-05-01", index.getPlacePeriodKey( "00000", LocalDate.of( 1980, 5, 1 ) ) );
+        assertEquals( "current", index.getPlacePeriodKey( CODE_RENAMED, null ) );
+    }
+
+    /**
+     * Test of the empty index
+     */
+    @Test
+    public void testEmpty( )
+    {
+        InseeReferenceIndex index = InseeReferenceIndex.empty( );
+
+        assertNull( index.getPlaceName( CODE_COMMUNE, null ) );
+        assertNull( index.getCountryName( CODE_COUNTRY, null ) );
+        assertEquals( 0, index.getCommunesCount( ) );
+        assertEquals( 0, index.getCountriesCount( ) );
+    }
+
+    /**
+     * Build the test index
+     *
+     * @return the index
+     */
+    private static InseeReferenceIndex buildIndex( )
+    {
+        return InseeReferenceIndex.build(
+                Arrays.asList( reference( CODE_COMMUNE, "Paris", null, null ), reference( CODE_RENAMED, "Nouvelle", RENAMING_DATE, null ),
+                        reference( CODE_RENAMED, "Ancienne", null, RENAMING_DATE ) ),
+                Arrays.asList( reference( CODE_COUNTRY, "France", null, null ), reference( CODE_COUNTRY, "Monaco", null, null ) ) );
+    }
+
+    /**
+     * Build a reference
+     *
+     * @param strCode
+     *            the code
+     * @param strLabel
+     *            the label
+     * @param dateStart
+     *            the first day of validity, null if unknown
+     * @param dateEnd
+     *            the day after the last day of validity, null if still valid
+     * @return the reference
+     */
+    private static InseeReference reference( String strCode, String strLabel, LocalDate dateStart, LocalDate dateEnd )
+    {
+        InseeReference reference = new InseeReference( );
+        reference.setCode( strCode );
+        reference.setLabel( strLabel );
+        reference.setDateValidityStart( ( dateStart != null ) ? Date.valueOf( dateStart ) : null );
+        reference.setDateValidityEnd( ( dateEnd != null ) ? Date.valueOf( dateEnd ) : null );
+
+        return reference;
+    }
+}
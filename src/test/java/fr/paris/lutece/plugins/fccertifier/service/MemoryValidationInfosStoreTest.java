@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * MemoryValidationInfosStore Test
+ */
+public class MemoryValidationInfosStoreTest
+{
+    private static final int CAPACITY = 10;
+    private static final long EXPIRES_DELAY = 5000L;
+    private static final long SHORT_DELAY = 100L;
+    private static final String RESULT_OK = "OK";
+
+    /**
+     * Test of put and get
+     */
+    @Test
+    public void testPutAndGet( )
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        ValidationInfos infos = newInfos( "1", EXPIRES_DELAY );
+
+        store.put( "1", infos );
+
+        assertSame( infos, store.get( "1" ) );
+        assertNull( store.get( "2" ) );
+        assertEquals( 1, store.size( ) );
+        assertEquals( CAPACITY, store.getCapacity( ) );
+    }
+
+    /**
+     * Test of the sweep of the timer wheel : only the entries past their deadline are purged
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testSweep( ) throws InterruptedException
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        store.put( "short", newInfos( "short", SHORT_DELAY ) );
+        store.put( "long", newInfos( "long", EXPIRES_DELAY ) );
+
+        assertEquals( 0, store.sweep( ) );
+
+        Thread.sleep( SHORT_DELAY * 2 );
+
+        assertEquals( 1, store.sweep( ) );
+        assertNull( store.get( "short" ) );
+        assertNotNull( store.get( "long" ) );
+        assertEquals( 1, store.getExpirationCount( ) );
+    }
+
+    /**
+     * Test of the grace period : an expired entry is kept until its end
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testGracePeriod( ) throws InterruptedException
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, SHORT_DELAY, EXPIRES_DELAY );
+        store.put( "1", newInfos( "1", SHORT_DELAY ) );
+
+        Thread.sleep( SHORT_DELAY * 2 );
+
+        assertEquals( 0, store.sweep( ) );
+        assertNotNull( store.get( "1" ) );
+    }
+
+    /**
+     * Test of the eviction of a full store : the entry closest to its expiration is evicted
+     */
+    @Test
+    public void testEviction( )
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( 2, EXPIRES_DELAY, 0 );
+        store.put( "late", newInfos( "late", EXPIRES_DELAY ) );
+        store.put( "soon", newInfos( "soon", SHORT_DELAY ) );
+
+        // Replacing an entry doesn't evict
+        store.put( "late", newInfos( "late", EXPIRES_DELAY ) );
+        assertEquals( 0, store.getEvictionCount( ) );
+
+        store.put( "new", newInfos( "new", EXPIRES_DELAY ) );
+
+        assertEquals( 2, store.size( ) );
+        assertEquals( 1, store.getEvictionCount( ) );
+        assertNull( store.get( "soon" ) );
+        assertNotNull( store.get( "late" ) );
+        assertNotNull( store.get( "new" ) );
+    }
+
+    /**
+     * Test of complete
+     */
+    @Test
+    public void testComplete( )
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        ValidationInfos infos = newInfos( "1", EXPIRES_DELAY );
+        store.put( "1", infos );
+        long lCompletedExpiresTime = infos.getExpiresTime( ) + 1000L;
+
+        assertTrue( store.complete( "1", infos, RESULT_OK, lCompletedExpiresTime ) );
+
+        ValidationInfos completed = store.get( "1" );
+        assertEquals( RESULT_OK, completed.getValidationResult( ) );
+        assertEquals( lCompletedExpiresTime, completed.getExpiresTime( ) );
+        assertEquals( "1", completed.getUserConnectionId( ) );
+
+        // The entry read before is not modified
+        assertNull( infos.getValidationResult( ) );
+
+        // A validation is completed once
+        assertFalse( store.complete( "1", infos, RESULT_OK, lCompletedExpiresTime ) );
+        assertFalse( store.complete( "1", completed, RESULT_OK, lCompletedExpiresTime ) );
+        assertFalse( store.complete( "2", infos, RESULT_OK, lCompletedExpiresTime ) );
+    }
+
+    /**
+     * Test of complete with an entry replaced since it was read
+     */
+    @Test
+    public void testCompleteReplaced( )
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        ValidationInfos infos = newInfos( "1", EXPIRES_DELAY );
+        store.put( "1", infos );
+
+        ValidationInfos replacement = newInfos( "1", EXPIRES_DELAY + 1000L );
+        store.put( "1", replacement );
+
+        assertFalse( store.complete( "1", infos, RESULT_OK, infos.getExpiresTime( ) ) );
+        assertSame( replacement, store.get( "1" ) );
+    }
+
+    /**
+     * Test of complete once the suspicious check is recorded
+     */
+    @Test
+    public void testCompleteAfterSuspiciousCheck( )
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        ValidationInfos infos = newInfos( "1", EXPIRES_DELAY );
+        store.put( "1", infos );
+
+        store.recordSuspiciousCheck( "1", "sub", true );
+
+        ValidationInfos checked = store.get( "1" );
+        assertEquals( "sub", checked.getSuspiciousCheckSub( ) );
+        assertTrue( checked.isStrictSuspicious( ) );
+        assertNull( infos.getSuspiciousCheckSub( ) );
+
+        assertTrue( store.complete( "1", infos, RESULT_OK, infos.getExpiresTime( ) ) );
+        assertEquals( "sub", store.get( "1" ).getSuspiciousCheckSub( ) );
+
+        // A completed validation is not checked again
+        store.recordSuspiciousCheck( "1", "other", false );
+        assertEquals( "sub", store.get( "1" ).getSuspiciousCheckSub( ) );
+    }
+
+    /**
+     * Test of the sweep of a completed entry, moved to the slot of its new deadline
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testSweepCompleted( ) throws InterruptedException
+    {
+        MemoryValidationInfosStore store = new MemoryValidationInfosStore( CAPACITY, EXPIRES_DELAY, 0 );
+        ValidationInfos infos = newInfos( "1", EXPIRES_DELAY );
+        store.put( "1", infos );
+
+        assertTrue( store.complete( "1", infos, RESULT_OK, System.currentTimeMillis( ) + SHORT_DELAY ) );
+
+        Thread.sleep( SHORT_DELAY * 2 );
+
+        assertEquals( 1, store.sweep( ) );
+        assertNull( store.get( "1" ) );
+    }
+
+    /**
+     * Build validation infos
+     *
+     * @param strConnectionId
+     *            the connection id
+     * @param lDelay
+     *            the delay before the expiration in milliseconds
+     * @return the validation infos
+     */
+    private static ValidationInfos newInfos( String strConnectionId, long lDelay )
+    {
+        ValidationInfos infos = new ValidationInfos( );
+        infos.setUserConnectionId( strConnectionId );
+        infos.setExpiresTime( System.currentTimeMillis( ) + lDelay );
+
+        return infos;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.paris.lutece.plugins.fccertifier.service.CertifierService.CertificationStatus;
+
+/**
+ * BulkCertificationJob Test
+ */
+public class BulkCertificationJobTest
+{
+    private static final int CHUNK_SIZE = 2;
+    private static final String HEADER = "connection_id;sub;given_name;family_name;preferred_username;gender;birthdate;birthplace;birthcountry;email";
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder( );
+
+    private File _fileInput;
+    private File _fileReport;
+    private File _fileCheckpoint;
+    private final Set<String> _setCertified = ConcurrentHashMap.newKeySet( );
+
+    /**
+     * Write the records file
+     *
+     * @throws IOException
+     *             if the file can't be written
+     */
+    @Before
+    public void setUp( ) throws IOException
+    {
+        _fileInput = _folder.newFile( "records.csv" );
+        _fileReport = new File( _fileInput.getPath( ) + BulkCertificationJob.SUFFIX_REPORT );
+        _fileCheckpoint = new File( _fileInput.getPath( ) + BulkCertificationJob.SUFFIX_CHECKPOINT );
+
+        Files.write( _fileInput.toPath( ), Arrays.asList( HEADER, record( "c1" ), record( "c2" ), "c3;invalid", record( "c4" ), record( "c5" ),
+                record( "c6" ) ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Test of a complete run
+     *
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    @Test
+    public void testRun( ) throws IOException
+    {
+        BulkCertificationSummary summary = newJob( ).run( );
+
+        assertTrue( summary.isCompleted( ) );
+        assertEquals( 0, summary.getResumedAfterLine( ) );
+        assertEquals( Long.valueOf( 5 ), summary.getCounts( ).get( CertificationStatus.CERTIFIED.name( ) ) );
+        assertEquals( Long.valueOf( 1 ), summary.getCounts( ).get( "INVALID" ) );
+        assertEquals( 5, _setCertified.size( ) );
+
+        List<String> listReport = readReport( );
+        assertEquals( 6, listReport.size( ) );
+        assertEquals( "2;c1;CERTIFIED;", listReport.get( 0 ) );
+        assertTrue( listReport.get( 2 ).startsWith( "4;c3;INVALID;" ) );
+        assertEquals( "7;c6;CERTIFIED;", listReport.get( 5 ) );
+
+        assertEquals( "7;" + _fileReport.length( ), readCheckpoint( ) );
+    }
+
+    /**
+     * Test of a run resumed from a checkpoint : the lines reported after the checkpoint are dropped and processed again
+     *
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    @Test
+    public void testResume( ) throws IOException
+    {
+        List<String> listCheckpointed = Arrays.asList( "2;c1;CERTIFIED;", "3;c2;CERTIFIED;" );
+        Files.write( _fileReport.toPath( ), listCheckpointed, StandardCharsets.UTF_8 );
+        long lReportLength = _fileReport.length( );
+        // A chunk reported by a job stopped before its checkpoint
+        Files.write( _fileReport.toPath( ), Collections.singletonList( "5;c4;CERTIFIED;" ), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND );
+        Files.write( _fileCheckpoint.toPath( ), ( "3;" + lReportLength ).getBytes( StandardCharsets.UTF_8 ) );
+
+        BulkCertificationSummary summary = newJob( ).run( );
+
+        assertTrue( summary.isCompleted( ) );
+        assertEquals( 3, summary.getResumedAfterLine( ) );
+        assertFalse( _setCertified.contains( "c1" ) );
+        assertFalse( _setCertified.contains( "c2" ) );
+        assertEquals( 3, _setCertified.size( ) );
+
+        List<String> listReport = readReport( );
+        assertEquals( 6, listReport.size( ) );
+        assertEquals( listCheckpointed, listReport.subList( 0, 2 ) );
+        assertTrue( listReport.get( 2 ).startsWith( "4;c3;INVALID;" ) );
+        assertEquals( "5;c4;CERTIFIED;", listReport.get( 3 ) );
+        assertEquals( 1, Collections.frequency( listReport, "5;c4;CERTIFIED;" ) );
+    }
+
+    /**
+     * Test of a job started from scratch : a report left without checkpoint is dropped
+     *
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    @Test
+    public void testStartDropsReportWithoutCheckpoint( ) throws IOException
+    {
+        Files.write( _fileReport.toPath( ), Collections.singletonList( "2;c1;CERTIFIED;" ), StandardCharsets.UTF_8 );
+
+        newJob( ).run( );
+
+        List<String> listReport = readReport( );
+        assertEquals( 6, listReport.size( ) );
+        assertEquals( 1, Collections.frequency( listReport, "2;c1;CERTIFIED;" ) );
+    }
+
+    /**
+     * Test of a failed certification : the record is reported in error and the job goes on
+     *
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    @Test
+    public void testFailure( ) throws IOException
+    {
+        BulkCertificationJob job = new BulkCertificationJob( _fileInput, 1, 0, CHUNK_SIZE, record -> {
+            if ( "c2".equals( record.getConnectionId( ) ) )
+            {
+                throw new IllegalStateException( "backend down" );
+            }
+
+            return CertificationStatus.UNCHANGED;
+        } );
+
+        BulkCertificationSummary summary = job.run( );
+
+        assertTrue( summary.isCompleted( ) );
+        assertEquals( Long.valueOf( 1 ), summary.getCounts( ).get( "ERROR" ) );
+        assertEquals( Long.valueOf( 4 ), summary.getCounts( ).get( CertificationStatus.UNCHANGED.name( ) ) );
+        assertTrue( readReport( ).get( 1 ).startsWith( "3;c2;ERROR;" ) );
+    }
+
+    /**
+     * Test of the deletion of the checkpoint
+     *
+     * @throws IOException
+     *             if the files can't be read or written
+     */
+    @Test
+    public void testDeleteCheckpoint( ) throws IOException
+    {
+        BulkCertificationJob job = newJob( );
+        job.run( );
+        assertTrue( _fileCheckpoint.exists( ) );
+
+        job.deleteCheckpoint( );
+        assertFalse( _fileCheckpoint.exists( ) );
+    }
+
+    /**
+     * Build a job recording the certified records
+     *
+     * @return the job
+     */
+    private BulkCertificationJob newJob( )
+    {
+        return new BulkCertificationJob( _fileInput, 1, 0, CHUNK_SIZE, record -> {
+            _setCertified.add( record.getConnectionId( ) );
+
+            return CertificationStatus.CERTIFIED;
+        } );
+    }
+
+    /**
+     * Read the report
+     *
+     * @return the report lines
+     * @throws IOException
+     *             if the report can't be read
+     */
+    private List<String> readReport( ) throws IOException
+    {
+        return Files.readAllLines( _fileReport.toPath( ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Read the checkpoint
+     *
+     * @return the checkpoint
+     * @throws IOException
+     *             if the checkpoint can't be read
+     */
+    private String readCheckpoint( ) throws IOException
+    {
+        return new String( Files.readAllBytes( _fileCheckpoint.toPath( ) ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Build a record line
+     *
+     * @param strConnectionId
+     *            the connection id
+     * @return the line
+     */
+    private static String record( String strConnectionId )
+    {
+        return strConnectionId + ";sub-" + strConnectionId + ";Jean;Dupont;;male;1985-03-07;;;";
+    }
+}
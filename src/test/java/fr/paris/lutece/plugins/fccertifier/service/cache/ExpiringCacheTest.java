@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * ExpiringCache Test
+ */
+public class ExpiringCacheTest
+{
+    private static final long TTL = 60000L;
+
+    /**
+     * Test of the loader
+     */
+    @Test
+    public void testGetWithLoader( )
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>( "test", 10, TTL, 0 );
+        AtomicInteger nLoads = new AtomicInteger( );
+
+        assertEquals( "a-1", cache.get( "a", k -> k + "-" + nLoads.incrementAndGet( ) ) );
+        assertEquals( "a-1", cache.get( "a", k -> k + "-" + nLoads.incrementAndGet( ) ) );
+        assertEquals( 1, nLoads.get( ) );
+        assertEquals( 1, cache.getHitCount( ) );
+        assertEquals( 1, cache.getMissCount( ) );
+    }
+
+    /**
+     * Test of the negative entries
+     */
+    @Test
+    public void testNegativeEntries( )
+    {
+        AtomicInteger nLoads = new AtomicInteger( );
+
+        ExpiringCache<String, String> cacheNoNegative = new ExpiringCache<>( "test", 10, TTL, 0 );
+        assertNull( cacheNoNegative.get( "a", k -> count( nLoads ) ) );
+        assertNull( cacheNoNegative.get( "a", k -> count( nLoads ) ) );
+        assertEquals( 2, nLoads.get( ) );
+        assertEquals( 0, cacheNoNegative.size( ) );
+
+        nLoads.set( 0 );
+        ExpiringCache<String, String> cacheNegative = new ExpiringCache<>( "test", 10, TTL, TTL );
+        assertNull( cacheNegative.get( "a", k -> count( nLoads ) ) );
+        assertNull( cacheNegative.get( "a", k -> count( nLoads ) ) );
+        assertEquals( 1, nLoads.get( ) );
+        assertEquals( 1, cacheNegative.size( ) );
+    }
+
+    /**
+     * Test of the expiration
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testExpiration( ) throws InterruptedException
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>( "test", 10, 20, 0 );
+        cache.put( "a", "value" );
+        assertEquals( "value", cache.get( "a" ) );
+
+        Thread.sleep( 50 );
+
+        assertNull( cache.get( "a" ) );
+        assertEquals( 1, cache.getExpirationCount( ) );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    /**
+     * Test of the eviction of the least recently used entry
+     */
+    @Test
+    public void testLeastRecentlyUsedEviction( )
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>( "test", 2, TTL, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+
+        // "a" becomes the most recently used entry : "b" is evicted
+        assertEquals( "A", cache.get( "a" ) );
+        cache.put( "c", "C" );
+
+        assertEquals( 2, cache.size( ) );
+        assertEquals( 1, cache.getEvictionCount( ) );
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( "C", cache.get( "c" ) );
+    }
+
+    /**
+     * Test of a disabled cache
+     */
+    @Test
+    public void testDisabled( )
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>( "test", 0, TTL, TTL );
+        cache.put( "a", "A" );
+
+        assertEquals( 0, cache.size( ) );
+        assertNull( cache.get( "a" ) );
+    }
+
+    /**
+     * Test of remove and clear
+     */
+    @Test
+    public void testRemoveAndClear( )
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>( "test", 10, TTL, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+
+        cache.remove( "a" );
+        assertNull( cache.get( "a" ) );
+        assertEquals( "B", cache.get( "b" ) );
+
+        cache.clear( );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    /**
+     * Count a load returning null
+     *
+     * @param nLoads
+     *            the loads counter
+     * @return null
+     */
+    private static String count( AtomicInteger nLoads )
+    {
+        nLoads.incrementAndGet( );
+
+        return null;
+    }
+}
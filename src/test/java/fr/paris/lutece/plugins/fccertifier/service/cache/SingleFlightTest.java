@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * SingleFlight Test
+ */
+public class SingleFlightTest
+{
+    private static final int FOLLOWERS = 4;
+    private static final long TIMEOUT = 5000L;
+
+    private ExecutorService _executor;
+
+    /**
+     * Start the executor
+     */
+    @Before
+    public void setUp( )
+    {
+        _executor = Executors.newFixedThreadPool( FOLLOWERS + 1 );
+    }
+
+    /**
+     * Stop the executor
+     */
+    @After
+    public void tearDown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Test of the coalescing of the concurrent loads of a key
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testCoalescing( ) throws Exception
+    {
+        SingleFlight<String, String> flight = new SingleFlight<>( "test" );
+        AtomicInteger nLoads = new AtomicInteger( );
+        CountDownLatch latchStarted = new CountDownLatch( 1 );
+        CountDownLatch latchRelease = new CountDownLatch( 1 );
+
+        Future<String> leader = _executor.submit( ( ) -> flight.get( "a", k -> {
+            nLoads.incrementAndGet( );
+            latchStarted.countDown( );
+            await( latchRelease );
+
+            return "A";
+        } ) );
+        assertTrue( latchStarted.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        List<Future<String>> listFollowers = new ArrayList<>( );
+
+        for ( int i = 0; i < FOLLOWERS; i++ )
+        {
+            listFollowers.add( _executor.submit( ( ) -> flight.get( "a", k -> {
+                nLoads.incrementAndGet( );
+
+                return "other";
+            } ) ) );
+        }
+
+        waitForCoalescedCalls( flight, FOLLOWERS );
+        latchRelease.countDown( );
+
+        assertEquals( "A", leader.get( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        for ( Future<String> follower : listFollowers )
+        {
+            assertEquals( "A", follower.get( TIMEOUT, TimeUnit.MILLISECONDS ) );
+        }
+
+        assertEquals( 1, nLoads.get( ) );
+        assertEquals( FOLLOWERS + 1, flight.getCallCount( ) );
+        assertEquals( FOLLOWERS, flight.getCoalescedCount( ) );
+        assertEquals( 0, flight.getInFlightCount( ) );
+    }
+
+    /**
+     * Test of the sequential loads of a key : a completed load is not shared
+     */
+    @Test
+    public void testSequentialLoads( )
+    {
+        SingleFlight<String, String> flight = new SingleFlight<>( "test" );
+        AtomicInteger nLoads = new AtomicInteger( );
+
+        assertEquals( "A1", flight.get( "a", k -> "A" + nLoads.incrementAndGet( ) ) );
+        assertEquals( "A2", flight.get( "a", k -> "A" + nLoads.incrementAndGet( ) ) );
+        assertEquals( 0, flight.getCoalescedCount( ) );
+        assertEquals( 0, flight.getInFlightCount( ) );
+    }
+
+    /**
+     * Test of a failed load : the leader gets the failure, the followers an AppException caused by it
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testFailure( ) throws Exception
+    {
+        SingleFlight<String, String> flight = new SingleFlight<>( "test" );
+        IllegalStateException failure = new IllegalStateException( "backend down" );
+        CountDownLatch latchStarted = new CountDownLatch( 1 );
+        CountDownLatch latchRelease = new CountDownLatch( 1 );
+
+        Future<String> leader = _executor.submit( ( ) -> flight.get( "a", k -> {
+            latchStarted.countDown( );
+            await( latchRelease );
+
+            throw failure;
+        } ) );
+        assertTrue( latchStarted.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        Future<String> follower = _executor.submit( ( ) -> flight.get( "a", k -> "other" ) );
+        waitForCoalescedCalls( flight, 1 );
+        latchRelease.countDown( );
+
+        try
+        {
+            leader.get( TIMEOUT, TimeUnit.MILLISECONDS );
+            fail( "The leader should get the failure" );
+        }
+        catch( ExecutionException e )
+        {
+            assertSame( failure, e.getCause( ) );
+        }
+
+        try
+        {
+            follower.get( TIMEOUT, TimeUnit.MILLISECONDS );
+            fail( "The follower should get the failure" );
+        }
+        catch( ExecutionException e )
+        {
+            assertTrue( e.getCause( ) instanceof AppException );
+            assertSame( failure, e.getCause( ).getCause( ) );
+        }
+
+        // The failed load is not kept
+        assertEquals( 0, flight.getInFlightCount( ) );
+        assertEquals( "A", flight.get( "a", k -> "A" ) );
+    }
+
+    /**
+     * Wait until calls are waiting for the load in flight
+     *
+     * @param flight
+     *            the single flight
+     * @param nCalls
+     *            the number of calls
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    private static void waitForCoalescedCalls( SingleFlight<?, ?> flight, int nCalls ) throws InterruptedException
+    {
+        long lDeadline = System.currentTimeMillis( ) + TIMEOUT;
+
+        while ( flight.getCoalescedCount( ) < nCalls )
+        {
+            assertTrue( "Calls not coalesced", System.currentTimeMillis( ) < lDeadline );
+            Thread.sleep( 5 );
+        }
+    }
+
+    /**
+     * Wait for a latch inside a loader
+     *
+     * @param latch
+     *            the latch
+     */
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.service.resilience;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.fccertifier.service.resilience.CircuitBreaker.Permit;
+import fr.paris.lutece.plugins.fccertifier.service.resilience.CircuitBreaker.State;
+
+/**
+ * CircuitBreaker Test
+ */
+public class CircuitBreakerTest
+{
+    private static final int WINDOW_SIZE = 10;
+    private static final int MINIMUM_CALLS = 4;
+    private static final int FAILURE_RATE = 50;
+    private static final long OPEN_DURATION = 30L;
+    private static final int PROBES = 2;
+
+    /**
+     * Test of the opening of the circuit once the failure rate is reached
+     */
+    @Test
+    public void testOpening( )
+    {
+        CircuitBreaker breaker = newBreaker( );
+
+        // Below the minimum number of calls
+        fail( breaker, 3 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+
+        succeed( breaker, 5 );
+        fail( breaker, 1 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+
+        // 5 failures out of 10 calls
+        fail( breaker, 1 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertEquals( Permit.REJECTED, breaker.tryAcquire( ) );
+    }
+
+    /**
+     * Test of the rolling window : the old outcomes leave the window
+     */
+    @Test
+    public void testRollingWindow( )
+    {
+        CircuitBreaker breaker = newBreaker( );
+
+        succeed( breaker, 6 );
+        fail( breaker, 4 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+
+        // The failures leave the window
+        succeed( breaker, WINDOW_SIZE );
+        fail( breaker, 4 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+
+        fail( breaker, 1 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the half open state : the probes close the circuit once all succeeded
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testHalfOpenClosing( ) throws InterruptedException
+    {
+        CircuitBreaker breaker = openBreaker( );
+
+        Permit probe1 = breaker.tryAcquire( );
+        Permit probe2 = breaker.tryAcquire( );
+        assertEquals( State.HALF_OPEN, breaker.getState( ) );
+        assertEquals( Permit.PROBE, probe1 );
+        assertEquals( Permit.PROBE, probe2 );
+        assertEquals( Permit.REJECTED, breaker.tryAcquire( ) );
+
+        breaker.onSuccess( probe1 );
+        assertEquals( State.HALF_OPEN, breaker.getState( ) );
+        assertEquals( Permit.REJECTED, breaker.tryAcquire( ) );
+
+        breaker.onSuccess( probe2 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+        assertEquals( Permit.NORMAL, breaker.tryAcquire( ) );
+
+        // The window has been reset : the failures before the opening are forgotten
+        fail( breaker, MINIMUM_CALLS - 1 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the half open state : a failed probe opens the circuit again
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testHalfOpenFailure( ) throws InterruptedException
+    {
+        CircuitBreaker breaker = openBreaker( );
+
+        Permit probe1 = breaker.tryAcquire( );
+        Permit probe2 = breaker.tryAcquire( );
+        breaker.onFailure( probe1 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertEquals( Permit.REJECTED, breaker.tryAcquire( ) );
+
+        // The outcome of a probe acquired before the opening is ignored
+        breaker.onSuccess( probe2 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+
+        Thread.sleep( OPEN_DURATION * 2 );
+        assertEquals( Permit.PROBE, breaker.tryAcquire( ) );
+        assertEquals( State.HALF_OPEN, breaker.getState( ) );
+    }
+
+    /**
+     * Test of a released probe : the permit can be acquired again
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testHalfOpenRelease( ) throws InterruptedException
+    {
+        CircuitBreaker breaker = openBreaker( );
+
+        Permit probe1 = breaker.tryAcquire( );
+        Permit probe2 = breaker.tryAcquire( );
+        assertEquals( Permit.REJECTED, breaker.tryAcquire( ) );
+
+        breaker.release( probe1 );
+        Permit probe3 = breaker.tryAcquire( );
+        assertEquals( Permit.PROBE, probe3 );
+        assertEquals( State.HALF_OPEN, breaker.getState( ) );
+
+        breaker.onSuccess( probe2 );
+        breaker.onSuccess( probe3 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Build a breaker
+     *
+     * @return the breaker
+     */
+    private static CircuitBreaker newBreaker( )
+    {
+        return new CircuitBreaker( WINDOW_SIZE, MINIMUM_CALLS, FAILURE_RATE, OPEN_DURATION, PROBES );
+    }
+
+    /**
+     * Build a breaker whose open duration has elapsed
+     *
+     * @return the breaker
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    private static CircuitBreaker openBreaker( ) throws InterruptedException
+    {
+        CircuitBreaker breaker = newBreaker( );
+        fail( breaker, MINIMUM_CALLS );
+        assertEquals( State.OPEN, breaker.getState( ) );
+
+        Thread.sleep( OPEN_DURATION * 2 );
+
+        return breaker;
+    }
+
+    /**
+     * Record successful calls
+     *
+     * @param breaker
+     *            the breaker
+     * @param nCalls
+     *            the number of calls
+     */
+    private static void succeed( CircuitBreaker breaker, int nCalls )
+    {
+        for ( int i = 0; i < nCalls; i++ )
+        {
+            breaker.onSuccess( breaker.tryAcquire( ) );
+        }
+    }
+
+    /**
+     * Record failed calls
+     *
+     * @param breaker
+     *            the breaker
+     * @param nCalls
+     *            the number of calls
+     */
+    private static void fail( CircuitBreaker breaker, int nCalls )
+    {
+        for ( int i = 0; i < nCalls; i++ )
+        {
+            breaker.onFailure( breaker.tryAcquire( ) );
+        }
+    }
+}
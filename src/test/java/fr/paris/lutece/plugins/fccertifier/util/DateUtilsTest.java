@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2023, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.fccertifier.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+/**
+ * DateUtils Test
+ */
+public class DateUtilsTest
+{
+    /**
+     * Test of parseIdsDate
+     */
+    @Test
+    public void testParseIdsDate( )
+    {
+        assertEquals( LocalDate.of( 1985, 3, 7 ), DateUtils.parseIdsDate( "07/03/1985" ) );
+        assertEquals( LocalDate.of( 2000, 2, 29 ), DateUtils.parseIdsDate( "29/02/2000" ) );
+        assertEquals( LocalDate.of( 1, 1, 1 ), DateUtils.parseIdsDate( "01/01/0001" ) );
+    }
+
+    /**
+     * Test of parseIdsDate with invalid dates
+     */
+    @Test
+    public void testParseIdsDateInvalid( )
+    {
+        assertNull( DateUtils.parseIdsDate( null ) );
+        assertNull( DateUtils.parseIdsDate( "" ) );
+        assertNull( DateUtils.parseIdsDate( "7/03/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "07-03-1985" ) );
+        assertNull( DateUtils.parseIdsDate( "1985/03/07" ) );
+        assertNull( DateUtils.parseIdsDate( "0a/03/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "+7/03/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "00/03/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "32/01/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "31/04/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "01/13/1985" ) );
+        assertNull( DateUtils.parseIdsDate( "01/01/0000" ) );
+        // Leap years
+        assertNull( DateUtils.parseIdsDate( "29/02/1900" ) );
+        assertNull( DateUtils.parseIdsDate( "29/02/2023" ) );
+        assertEquals( LocalDate.of( 2024, 2, 29 ), DateUtils.parseIdsDate( "29/02/2024" ) );
+    }
+
+    /**
+     * Test of parseFcDate
+     */
+    @Test
+    public void testParseFcDate( )
+    {
+        assertEquals( LocalDate.of( 1985, 3, 7 ), DateUtils.parseFcDate( "1985-03-07" ) );
+        assertEquals( LocalDate.of( 2000, 2, 29 ), DateUtils.parseFcDate( "2000-02-29" ) );
+        assertNull( DateUtils.parseFcDate( null ) );
+    }
+
+    /**
+     * Test of formatIds
+     */
+    @Test
+    public void testFormatIds( )
+    {
+        assertEquals( "07/03/1985", DateUtils.formatIds( LocalDate.of( 1985, 3, 7 ) ) );
+        assertEquals( "31/12/0999", DateUtils.formatIds( LocalDate.of( 999, 12, 31 ) ) );
+        assertEquals( "29/02/2024", DateUtils.formatIds( LocalDate.of( 2024, 2, 29 ) ) );
+    }
+
+    /**
+     * Test of the formatting of the parsed dates
+     */
+    @Test
+    public void testRoundTrip( )
+    {
+        LocalDate date = LocalDate.of( 1900, 1, 1 );
+
+        for ( int i = 0; i < 366 * 4; i++ )
+        {
+            String strDate = DateUtils.formatIds( date );
+            assertEquals( strDate, date, DateUtils.parseIdsDate( strDate ) );
+            date = date.plusDays( 1 );
+        }
+
+        assertEquals( "07/03/1985", DateUtils.convertFcToIds( "1985-03-07" ) );
+        assertNull( DateUtils.convertFcToIds( null ) );
+    }
+}